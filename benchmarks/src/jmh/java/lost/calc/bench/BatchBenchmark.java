@@ -0,0 +1,77 @@
+package lost.calc.bench;
+
+import lost.calc.Evaler;
+import lost.calc.api.Tree;
+import lost.calc.batch.Batch;
+import lost.calc.impl.DEnv;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 逐行 Tree.eval vs 按列批量求值 (标量内核 / 向量内核)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchBenchmark {
+
+  @Param({"1000000"})
+  public int rows;
+
+  @Param({
+          "a*b + c",
+          "a*b + a/b - (a > b) * c && b < 0.5",
+  })
+  public String expr;
+
+  Tree tree;
+  Map<String, double[]> columns;
+  DEnv env;
+  Batch scalar;
+  Batch vector;
+
+  @Setup
+  public void setup() {
+    var random = new Random(42);
+    var a = new double[rows];
+    var b = new double[rows];
+    for (int i = 0; i < rows; i++) {
+      a[i] = random.nextDouble();
+      b[i] = random.nextDouble();
+    }
+    columns = Map.of("a", a, "b", b);
+    env = new DEnv();
+    env.putVar("c", 3);
+    tree = Evaler.create().compile(expr).tree();
+    scalar = Batch.of(tree, false);
+    vector = Batch.of(tree, true);
+  }
+
+  @Benchmark
+  public double rowByRow() {
+    var a = columns.get("a");
+    var b = columns.get("b");
+    double sum = 0;
+    for (int i = 0; i < rows; i++) {
+      env.putVar("a", a[i]).putVar("b", b[i]);
+      sum += tree.eval(env);
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public double[] batchScalar() {
+    return scalar.eval(columns, env);
+  }
+
+  @Benchmark
+  public double[] batchVector() {
+    return vector.eval(columns, env);
+  }
+}
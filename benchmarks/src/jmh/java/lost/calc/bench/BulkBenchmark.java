@@ -0,0 +1,79 @@
+package lost.calc.bench;
+
+import lost.calc.BulkResult;
+import lost.calc.Evaler;
+import lost.calc.api.Env;
+import lost.calc.impl.DEnv;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Evaler#evalAll} 随线程数的扩展性, 以单线程逐个 {@link Evaler#eval} 为基准
+ * <p>
+ * threads 只作用于 ForkJoinPool; 虚拟线程的载体线程数由
+ * {@code -Djdk.virtualThreadScheduler.parallelism} 决定, 默认为 CPU 核数
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BulkBenchmark {
+
+  @Param({"1", "2", "4", "8"})
+  public int threads;
+
+  @Param({"20000"})
+  public int items;
+
+  List<String> texts;
+  Env env;
+  Evaler evaler;
+  ForkJoinPool pool;
+  ExecutorService virtual;
+
+  @Setup
+  public void setup() {
+    texts = new ArrayList<>(items);
+    for (int i = 0; i < items; i++) {
+      // 不同的常量使每个表达式都需要解析
+      texts.add(STR."\{Corpus.expr("small")} + \{i}");
+    }
+    env = Corpus.env(new DEnv());
+    evaler = Evaler.create();
+    pool = new ForkJoinPool(threads);
+    virtual = Executors.newVirtualThreadPerTaskExecutor();
+  }
+
+  @TearDown
+  public void tearDown() {
+    pool.shutdown();
+    virtual.shutdown();
+  }
+
+  @Benchmark
+  public double loop() {
+    double sum = 0;
+    for (String text : texts) {
+      sum += evaler.eval(text, env);
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public BulkResult forkJoin() {
+    return evaler.evalAll(texts, env, pool);
+  }
+
+  @Benchmark
+  public BulkResult virtualThreads() {
+    return evaler.evalAll(texts, env, virtual);
+  }
+}
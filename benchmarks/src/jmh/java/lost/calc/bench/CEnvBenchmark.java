@@ -0,0 +1,133 @@
+package lost.calc.bench;
+
+import lost.calc.Evaler;
+import lost.calc.api.Env;
+import lost.calc.api.Fn;
+import lost.calc.api.Tree;
+import lost.calc.impl.CEnv;
+import lost.calc.impl.DEnv;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 1 个写线程持续更新变量, 1 / 8 / 64 个读线程在共享 env 上求值
+ * <p>
+ * impl: locked = 读写都加锁的 DEnv, live = 直接读 CEnv, snapshot = 每次求值前取 CEnv 快照
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CEnvBenchmark {
+
+  @Param({"locked", "live", "snapshot"})
+  public String impl;
+
+  Env env;
+  CEnv cEnv;
+  Tree tree;
+  double tick;
+
+  @Setup
+  public void setup() {
+    cEnv = Corpus.env(new CEnv());
+    env = impl.equals("locked") ? new Locked(Corpus.env(new DEnv())) : cEnv;
+    tree = Evaler.create().compile(Corpus.expr("medium")).tree();
+  }
+
+  double read() {
+    return tree.eval(impl.equals("snapshot") ? cEnv.snapshot() : env);
+  }
+
+  Env write() {
+    tick += 0.25;
+    return env.putVar("v" + ((int) tick & (Corpus.VARS - 1)), tick);
+  }
+
+  @Benchmark
+  @Group("r1")
+  @GroupThreads(1)
+  public double r1Read() {
+    return read();
+  }
+
+  @Benchmark
+  @Group("r1")
+  @GroupThreads(1)
+  public Env r1Write() {
+    return write();
+  }
+
+  @Benchmark
+  @Group("r8")
+  @GroupThreads(8)
+  public double r8Read() {
+    return read();
+  }
+
+  @Benchmark
+  @Group("r8")
+  @GroupThreads(1)
+  public Env r8Write() {
+    return write();
+  }
+
+  @Benchmark
+  @Group("r64")
+  @GroupThreads(64)
+  public double r64Read() {
+    return read();
+  }
+
+  @Benchmark
+  @Group("r64")
+  @GroupThreads(1)
+  public Env r64Write() {
+    return write();
+  }
+
+  /**
+   * 对照组: 所有操作同步在同一把锁上
+   */
+  static final class Locked implements Env {
+    private final DEnv env;
+
+    Locked(DEnv env) {
+      this.env = env;
+    }
+
+    @Override
+    public synchronized Env putVar(String name,
+                                   double value) {
+      return env.putVar(name, value);
+    }
+
+    @Override
+    public synchronized boolean hasVar(String name) {
+      return env.hasVar(name);
+    }
+
+    @Override
+    public synchronized double getVar(String name) {
+      return env.getVar(name);
+    }
+
+    @Override
+    public synchronized Env installFn(Fn fn) {
+      return env.installFn(fn);
+    }
+
+    @Override
+    public synchronized Env uninstallFn(Fn fn) {
+      return env.uninstallFn(fn);
+    }
+
+    @Override
+    public synchronized Fn findFn(String name) {
+      return env.findFn(name);
+    }
+  }
+}
@@ -0,0 +1,124 @@
+package lost.calc.bench;
+
+import lost.calc.api.Env;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * 基准测试用的表达式与 env
+ * <p>
+ * tiny / small 为手写表达式, medium / large / huge 为固定种子生成的表达式, 含大量函数调用;
+ * {@link #sheet} 生成共享子表达式的公式组
+ */
+public final class Corpus {
+  public static final int VARS = 8;
+
+  private Corpus() {
+  }
+
+  public static String expr(String size) {
+    return switch (size) {
+      case "tiny" -> "a+b";
+      case "small" -> "(a+b)**2 == a**2 + 2*a*b + b**2 && !(c < d)";
+      case "medium" -> generate(50, 1);
+      case "large" -> generate(1_000, 2);
+      case "huge" -> generate(20_000, 3);
+      default -> throw new IllegalArgumentException("unknown corpus size: " + size);
+    };
+  }
+
+  public static <E extends Env> E env(E env) {
+    String[] names = {"a", "b", "c", "d"};
+    for (int i = 0; i < names.length; i++) {
+      env.putVar(names[i], i + 1.5);
+    }
+    for (int i = 0; i < VARS; i++) {
+      env.putVar("v" + i, i * 0.75 + 1);
+    }
+    env.installFn("abs", Math::abs);
+    env.installFn("max", Math::max);
+    env.installFn("clamp", (x, lo, hi) -> Math.min(Math.max(x, lo), hi));
+    return env;
+  }
+
+  /**
+   * 一组相关的具名公式, 每个公式由若干共享子表达式与一个独立项组成
+   *
+   * @param formulas 公式个数
+   * @param seed     随机种子
+   */
+  public static Map<String, String> sheet(int formulas,
+                                          long seed) {
+    var random = new Random(seed);
+    var shared = new String[Math.max(1, formulas / 10)];
+    for (int i = 0; i < shared.length; i++) {
+      var sb = new StringBuilder("(");
+      term(sb, random, 2);
+      shared[i] = sb.append(')').toString();
+    }
+    var sheet = new LinkedHashMap<String, String>();
+    for (int i = 0; i < formulas; i++) {
+      var sb = new StringBuilder();
+      for (int j = 0; j < 3; j++) {
+        sb.append(shared[random.nextInt(shared.length)]).append(j % 2 == 0 ? " * " : " + ");
+      }
+      term(sb, random, 1);
+      sheet.put("f" + i, sb.toString());
+    }
+    return sheet;
+  }
+
+  /**
+   * @param terms 顶层项数
+   * @param seed  随机种子
+   */
+  static String generate(int terms,
+                         long seed) {
+    var random = new Random(seed);
+    var sb = new StringBuilder();
+    String[] ops = {" + ", " - ", " * ", " / ", " + ", " - "};
+    for (int i = 0; i < terms; i++) {
+      if (i > 0) sb.append(ops[random.nextInt(ops.length)]);
+      term(sb, random, 2);
+    }
+    return sb.toString();
+  }
+
+  private static void term(StringBuilder sb,
+                           Random random,
+                           int depth) {
+    int kind = depth == 0 ? random.nextInt(2) : random.nextInt(6);
+    switch (kind) {
+      case 0 -> sb.append('v').append(random.nextInt(VARS));
+      case 1 -> sb.append(random.nextInt(100)).append('.').append(random.nextInt(10));
+      case 2 -> {
+        sb.append("abs(");
+        term(sb, random, depth - 1);
+        sb.append(" - ");
+        term(sb, random, depth - 1);
+        sb.append(')');
+      }
+      case 3 -> {
+        sb.append("max(");
+        term(sb, random, depth - 1);
+        sb.append(", ");
+        term(sb, random, depth - 1);
+        sb.append(')');
+      }
+      case 4 -> {
+        sb.append("clamp(");
+        term(sb, random, depth - 1);
+        sb.append(", 0, 10)");
+      }
+      default -> {
+        sb.append('(');
+        term(sb, random, depth - 1);
+        sb.append(random.nextBoolean() ? " * " : " > ");
+        term(sb, random, depth - 1);
+        sb.append(')');
+      }
+    }
+  }
+}
@@ -0,0 +1,53 @@
+package lost.calc.bench;
+
+import lost.calc.Evaler;
+import lost.calc.api.Tree;
+import lost.calc.impl.DEnv;
+import lost.calc.sheet.Dag;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.LinkedHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 逐个 Tree.eval vs 合并公共子表达式后的 {@link Dag} 一次求值
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DagBenchmark {
+
+  @Param({"50", "500"})
+  public int formulas;
+
+  Tree[] trees;
+  Dag dag;
+  DEnv env;
+
+  @Setup
+  public void setup() {
+    var evaler = Evaler.create();
+    var sheet = new LinkedHashMap<String, Tree>();
+    Corpus.sheet(formulas, 7).forEach((name, text) -> sheet.put(name, evaler.compile(text).tree()));
+    trees = sheet.values().toArray(Tree[]::new);
+    env = Corpus.env(new DEnv());
+    dag = Dag.of(sheet, env);
+  }
+
+  @Benchmark
+  public double[] treeEach() {
+    var result = new double[trees.length];
+    for (int i = 0; i < trees.length; i++) {
+      result[i] = trees[i].eval(env);
+    }
+    return result;
+  }
+
+  @Benchmark
+  public double[] dag() {
+    return dag.eval(env);
+  }
+}
@@ -0,0 +1,73 @@
+package lost.calc.bench;
+
+import lost.calc.Evaler;
+import lost.calc.api.Tree;
+import lost.calc.decimal.Decimal;
+import lost.calc.decimal.DecimalEnv;
+import lost.calc.decimal.DecimalExpr;
+import lost.calc.impl.DEnv;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 计费公式: double tree 遍历 vs {@link DecimalExpr}; big 使用超出 long 的金额, 走 BigDecimal 路径
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DecimalBenchmark {
+  static final String BILL = "if(qty >= 10, price * qty * (1 - discount), price * qty) * (1 + rate) + fee";
+
+  Tree tree;
+  DecimalExpr decimal;
+  DEnv dEnv;
+  DecimalEnv decimalEnv;
+  DecimalEnv bigEnv;
+
+  @Setup
+  public void setup() {
+    var expr = Evaler.create().compile(BILL);
+    tree = expr.tree();
+    decimal = expr.decimal();
+    dEnv = new DEnv();
+    dEnv.putVar("price", 19.99).putVar("qty", 12).putVar("discount", 0.05)
+            .putVar("rate", 0.0825).putVar("fee", 0.3);
+    decimalEnv = new DecimalEnv()
+            .putVar("price", "19.99").putVar("qty", 12).putVar("discount", "0.05")
+            .putVar("rate", "0.0825").putVar("fee", "0.3");
+    bigEnv = new DecimalEnv()
+            .putVar("price", "123456789012345.99").putVar("qty", 12).putVar("discount", "0.05")
+            .putVar("rate", "0.0825").putVar("fee", "0.3");
+  }
+
+  @Benchmark
+  public double tree() {
+    return tree.eval(dEnv);
+  }
+
+  @Benchmark
+  public Decimal decimal() {
+    return decimal.eval(decimalEnv);
+  }
+
+  @Benchmark
+  public Decimal big() {
+    return decimal.eval(bigEnv);
+  }
+
+  /**
+   * 对照: 手写的 BigDecimal 计算
+   */
+  @Benchmark
+  public BigDecimal bigDecimal() {
+    var price = new BigDecimal("19.99");
+    var qty = BigDecimal.valueOf(12);
+    var sum = price.multiply(qty).multiply(BigDecimal.ONE.subtract(new BigDecimal("0.05")));
+    return sum.multiply(BigDecimal.ONE.add(new BigDecimal("0.0825"))).add(new BigDecimal("0.3"));
+  }
+}
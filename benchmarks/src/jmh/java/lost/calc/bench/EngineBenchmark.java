@@ -0,0 +1,59 @@
+package lost.calc.bench;
+
+import lost.calc.Evaler;
+import lost.calc.api.Tree;
+import lost.calc.impl.DEnv;
+import lost.calc.sheet.Dag;
+import lost.calc.sheet.Engine;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.LinkedHashMap;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 每次修改一个变量: 全量 {@link Dag} 求值 vs {@link Engine} 增量重算
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EngineBenchmark {
+
+  @Param({"500"})
+  public int formulas;
+
+  Dag dag;
+  DEnv dagEnv;
+  Engine engine;
+  int tick;
+
+  @Setup
+  public void setup() {
+    var evaler = Evaler.create();
+    var sheet = new LinkedHashMap<String, Tree>();
+    Corpus.sheet(formulas, 7).forEach((name, text) -> sheet.put(name, evaler.compile(text).tree()));
+    dagEnv = Corpus.env(new DEnv());
+    dag = Dag.of(sheet, dagEnv);
+    engine = Engine.of(sheet, Corpus.env(new DEnv()));
+    engine.recalc();
+  }
+
+  private String var() {
+    return "v" + (tick++ % Corpus.VARS);
+  }
+
+  @Benchmark
+  public double[] full() {
+    dagEnv.putVar(var(), tick);
+    return dag.eval(dagEnv);
+  }
+
+  @Benchmark
+  public Set<String> incremental() {
+    engine.putVar(var(), tick);
+    return engine.recalc();
+  }
+}
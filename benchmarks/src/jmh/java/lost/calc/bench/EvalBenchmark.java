@@ -0,0 +1,93 @@
+package lost.calc.bench;
+
+import lost.calc.Evaler;
+import lost.calc.api.Tree;
+import lost.calc.arena.Arena;
+import lost.calc.impl.DEnv;
+import lost.calc.impl.SEnv;
+import lost.calc.jit.Formula;
+import lost.calc.jit.Jit;
+import lost.calc.link.Program;
+import lost.calc.vm.Assembler;
+import lost.calc.vm.Bytecode;
+import lost.calc.vm.Vm;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 只测求值: tree 遍历, arena 遍历, 链接后遍历, 栈式虚拟机, hidden class 字节码
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EvalBenchmark {
+
+  @Param({"tiny", "small", "medium", "large"})
+  public String size;
+
+  DEnv dEnv;
+  SEnv sEnv;
+  Tree tree;
+  Arena arena;
+  Program program;
+  Formula formula;
+  Bytecode bytecode;
+  Vm vm;
+
+  @Setup
+  public void setup() {
+    dEnv = Corpus.env(new DEnv());
+    sEnv = Corpus.env(new SEnv());
+    var expr = Evaler.create().compile(Corpus.expr(size));
+    tree = expr.tree();
+    var builder = Arena.builder();
+    builder.add(tree);
+    arena = builder.build();
+    program = expr.link(sEnv);
+    formula = Jit.compile(program);
+    bytecode = Assembler.compile(program);
+    vm = new Vm();
+  }
+
+  @Benchmark
+  public double tree() {
+    return tree.eval(dEnv);
+  }
+
+  @Benchmark
+  public double treeSEnv() {
+    return tree.eval(sEnv);
+  }
+
+  @Benchmark
+  public double arena() {
+    return arena.eval(0, dEnv);
+  }
+
+  @Benchmark
+  public double linked() {
+    return program.eval();
+  }
+
+  @Benchmark
+  public double vm() {
+    return vm.run(bytecode, sEnv.values());
+  }
+
+  /**
+   * 经由 {@link Bytecode#eval()}, 使用线程复用的 Vm
+   */
+  @Benchmark
+  public double vmEval() {
+    return bytecode.eval();
+  }
+
+  @Benchmark
+  public double jit() {
+    return formula.evaluate(sEnv.values());
+  }
+}
@@ -0,0 +1,86 @@
+package lost.calc.bench;
+
+import lost.calc.Evaler;
+import lost.calc.api.Env;
+import lost.calc.api.TokenBuffer;
+import lost.calc.impl.BLexer;
+import lost.calc.impl.DEnv;
+import lost.calc.impl.PParser;
+import lost.calc.metrics.JfrMetrics;
+import lost.calc.metrics.Recorder;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 端到端 {@link Evaler#eval(String, Env)}, 以及开启度量后的开销
+ * <p>
+ * pratt 经由 Evaler 走 {@link TokenBuffer} 路径; buffer 直接调用 lexer / parser, 复用同一个 buffer, 作为它的下限
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EvalerBenchmark {
+
+  @Param({"tiny", "small", "medium", "large"})
+  public String size;
+
+  String text;
+  Env env;
+  Evaler evaler;
+  Evaler pratt;
+  BLexer lexer;
+  PParser parser;
+  TokenBuffer buffer;
+  Evaler cached;
+  Evaler recorded;
+  Evaler jfr;
+
+  @Setup
+  public void setup() {
+    text = Corpus.expr(size);
+    env = Corpus.env(new DEnv());
+    evaler = Evaler.create();
+    pratt = new Evaler(new BLexer(), new PParser());
+    lexer = new BLexer();
+    parser = new PParser();
+    buffer = new TokenBuffer();
+    cached = Evaler.create(16);
+    recorded = evaler.withMetrics(new Recorder());
+    jfr = evaler.withMetrics(new JfrMetrics(Duration.ofMillis(10)));
+  }
+
+  @Benchmark
+  public double evaler() {
+    return evaler.eval(text, env);
+  }
+
+  @Benchmark
+  public double pratt() {
+    return pratt.eval(text, env);
+  }
+
+  @Benchmark
+  public double buffer() {
+    return parser.parse(lexer.lex(text, buffer)).eval(env);
+  }
+
+  @Benchmark
+  public double cached() {
+    return cached.eval(text, env);
+  }
+
+  @Benchmark
+  public double recorded() {
+    return recorded.eval(text, env);
+  }
+
+  @Benchmark
+  public double jfr() {
+    return jfr.eval(text, env);
+  }
+}
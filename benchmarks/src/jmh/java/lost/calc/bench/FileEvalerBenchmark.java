@@ -0,0 +1,61 @@
+package lost.calc.bench;
+
+import lost.calc.impl.DEnv;
+import lost.calc.io.FileEvaler;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link FileEvaler} 端到端吞吐, 不同行数下每行耗时应保持不变
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FileEvalerBenchmark {
+
+  @Param({"100000", "1000000"})
+  public int lines;
+
+  @Param({"1", "4"})
+  public int workers;
+
+  Path input;
+  Path output;
+  FileEvaler evaler;
+
+  @Setup
+  public void setup() throws IOException {
+    input = Files.createTempFile("calc-bench", ".in");
+    output = Files.createTempFile("calc-bench", ".out");
+    try (BufferedWriter writer = Files.newBufferedWriter(input)) {
+      for (int i = 0; i < lines; i++) {
+        writer.write(Corpus.expr("small"));
+        writer.write(" + v");
+        writer.write(Integer.toString(i % Corpus.VARS));
+        writer.write(" * ");
+        writer.write(Integer.toString(i));
+        writer.newLine();
+      }
+    }
+    evaler = new FileEvaler(Corpus.env(new DEnv()), workers);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(input);
+    Files.deleteIfExists(output);
+  }
+
+  @Benchmark
+  public FileEvaler.Stats run() throws IOException {
+    return evaler.run(input, output);
+  }
+}
@@ -0,0 +1,73 @@
+package lost.calc.bench;
+
+import lost.calc.Evaler;
+import lost.calc.batch.Batch;
+import lost.calc.batch.Filter;
+import lost.calc.batch.ZoneMap;
+import lost.calc.impl.DEnv;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.BitSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 过滤: 全量按列求值 vs 按 zone map 跳过整块; price 大致递增, 按时间写入的数据常见这种分布
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FilterBenchmark {
+
+  @Param({"1000000"})
+  public int rows;
+
+  @Param({
+          "(price > 99000) && (qty <= 5)",
+          "(price > 50000) && (qty <= 5)",
+          "qty <= 5",
+  })
+  public String expr;
+
+  Map<String, double[]> columns;
+  ZoneMap zones;
+  DEnv env;
+  Batch batch;
+  Filter filter;
+
+  @Setup
+  public void setup() {
+    var random = new Random(42);
+    var price = new double[rows];
+    var qty = new double[rows];
+    for (int i = 0; i < rows; i++) {
+      price[i] = i * 0.1 + random.nextDouble() * 50;
+      qty[i] = random.nextInt(10);
+    }
+    columns = Map.of("price", price, "qty", qty);
+    zones = ZoneMap.of(columns);
+    env = new DEnv();
+    var tree = Evaler.create().compile(expr).tree();
+    batch = Batch.of(tree, false);
+    filter = Filter.of(tree, false);
+  }
+
+  @Benchmark
+  public BitSet scan() {
+    var result = batch.eval(columns, env);
+    var bits = new BitSet(rows);
+    for (int i = 0; i < rows; i++) {
+      if (result[i] != 0) bits.set(i);
+    }
+    return bits;
+  }
+
+  @Benchmark
+  public BitSet zoneMap() {
+    return filter.select(columns, zones, env).rows();
+  }
+}
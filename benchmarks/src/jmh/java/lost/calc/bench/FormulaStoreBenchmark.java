@@ -0,0 +1,86 @@
+package lost.calc.bench;
+
+import lost.calc.Evaler;
+import lost.calc.api.Env;
+import lost.calc.api.Tree;
+import lost.calc.impl.DEnv;
+import lost.calc.io.FormulaStore;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 冷启动: 重新解析所有公式 vs 从 {@link FormulaStore} 读取
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class FormulaStoreBenchmark {
+
+  @Param({"200000"})
+  public int formulas;
+
+  Map<String, String> sheet;
+  Path file;
+  Env env;
+
+  @Setup
+  public void setup() throws IOException {
+    sheet = Corpus.sheet(formulas, 11);
+    var evaler = Evaler.create();
+    var trees = new LinkedHashMap<String, Tree>();
+    sheet.forEach((name, text) -> trees.put(name, evaler.compile(text).tree()));
+    file = Files.createTempFile("calc-bench", ".store");
+    FormulaStore.write(trees, false, file);
+    env = Corpus.env(new DEnv());
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    Files.deleteIfExists(file);
+  }
+
+  @Benchmark
+  public Tree[] parse() {
+    var evaler = Evaler.create();
+    var trees = new Tree[sheet.size()];
+    int i = 0;
+    for (String text : sheet.values()) {
+      trees[i++] = evaler.compile(text).tree();
+    }
+    return trees;
+  }
+
+  @Benchmark
+  public Tree[] openAndRebuild() throws IOException {
+    var store = FormulaStore.open(file);
+    var trees = new Tree[store.size()];
+    for (int i = 0; i < trees.length; i++) {
+      trees[i] = store.tree(i);
+    }
+    return trees;
+  }
+
+  @Benchmark
+  public FormulaStore open() throws IOException {
+    return FormulaStore.open(file);
+  }
+
+  @Benchmark
+  public double openAndEval() throws IOException {
+    var store = FormulaStore.open(file);
+    double sum = 0;
+    for (int i = 0; i < store.size(); i++) {
+      sum += store.eval(i, env);
+    }
+    return sum;
+  }
+}
@@ -0,0 +1,47 @@
+package lost.calc.bench;
+
+import lost.calc.api.Token;
+import lost.calc.api.TokenBuffer;
+import lost.calc.impl.BLexer;
+import lost.calc.impl.DLexer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LexerBenchmark {
+
+  @Param({"tiny", "small", "medium", "large", "huge"})
+  public String size;
+
+  String text;
+  DLexer dLexer;
+  BLexer bLexer;
+  TokenBuffer buffer;
+
+  @Setup
+  public void setup() {
+    text = Corpus.expr(size);
+    dLexer = new DLexer();
+    bLexer = new BLexer();
+    buffer = new TokenBuffer();
+  }
+
+  @Benchmark
+  public void dLexer(Blackhole bh) {
+    for (Token token : dLexer.lex(text)) {
+      bh.consume(token);
+    }
+  }
+
+  @Benchmark
+  public int bLexer() {
+    return bLexer.lex(text, buffer).size();
+  }
+}
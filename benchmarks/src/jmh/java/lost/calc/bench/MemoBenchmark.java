@@ -0,0 +1,61 @@
+package lost.calc.bench;
+
+import lost.calc.Evaler;
+import lost.calc.api.Fn;
+import lost.calc.api.Memo;
+import lost.calc.api.Tree;
+import lost.calc.impl.DEnv;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 纯函数调用: 每次都调用 vs 经由 {@link Memo} 缓存; 参数在 16 个值中循环
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MemoBenchmark {
+
+  Tree tree;
+  DEnv plain;
+  DEnv memoized;
+  int i;
+
+  /**
+   * 用级数求 erf, 模拟昂贵的特殊函数
+   */
+  static double erf(double x) {
+    double sum = 0;
+    double term = x;
+    for (int n = 0; n < 64; n++) {
+      sum += term / (2 * n + 1);
+      term *= -x * x / (n + 1);
+    }
+    return 2 / Math.sqrt(Math.PI) * sum;
+  }
+
+  @Setup
+  public void setup() {
+    tree = Evaler.create().compile("erf(x / 8) * 2 + erf(0.5)").tree();
+    plain = new DEnv();
+    plain.installFn("erf", MemoBenchmark::erf);
+    memoized = new DEnv().memo(new Memo(1024));
+    memoized.installFn(Fn.of("erf", MemoBenchmark::erf).asPure());
+  }
+
+  @Benchmark
+  public double plain() {
+    plain.putVar("x", i++ & 15);
+    return tree.eval(plain);
+  }
+
+  @Benchmark
+  public double memoized() {
+    memoized.putVar("x", i++ & 15);
+    return tree.eval(memoized);
+  }
+}
@@ -0,0 +1,57 @@
+package lost.calc.bench;
+
+import lost.calc.api.Token;
+import lost.calc.api.TokenBuffer;
+import lost.calc.api.Tree;
+import lost.calc.impl.BLexer;
+import lost.calc.impl.DLexer;
+import lost.calc.impl.DParser;
+import lost.calc.impl.PParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 只测解析, token 在 setup 中预先生成
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ParserBenchmark {
+
+  @Param({"tiny", "small", "medium", "large", "huge"})
+  public String size;
+
+  List<Token> tokens;
+  TokenBuffer buffer;
+  DParser dParser;
+  PParser pParser;
+
+  @Setup
+  public void setup() {
+    var text = Corpus.expr(size);
+    tokens = new DLexer().tokenStream(text).toList();
+    buffer = new BLexer().lex(text, new TokenBuffer());
+    dParser = new DParser();
+    pParser = new PParser();
+  }
+
+  @Benchmark
+  public Tree dParser() {
+    return dParser.parse(tokens);
+  }
+
+  @Benchmark
+  public Tree pParser() {
+    return pParser.parse(tokens);
+  }
+
+  @Benchmark
+  public Tree pParserBuffer() {
+    return pParser.parse(buffer);
+  }
+}
@@ -0,0 +1,54 @@
+package lost.calc.bench;
+
+import lost.calc.Evaler;
+import lost.calc.api.Fn;
+import lost.calc.api.Tree;
+import lost.calc.impl.DEnv;
+import lost.calc.opt.Specializer;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * v0 - v5 固定, v6 / v7 每次变化: 原 tree vs 特化后的剩余 tree
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SpecializerBenchmark {
+
+  @Param({"medium", "large"})
+  public String size;
+
+  DEnv env;
+  Tree tree;
+  Specializer specializer;
+  int tick;
+
+  @Setup
+  public void setup() {
+    env = Corpus.env(new DEnv());
+    // 纯函数才能预先计算
+    env.installFn(Fn.of("abs", Math::abs).asPure())
+            .installFn(Fn.of("max", Math::max).asPure())
+            .installFn(Fn.of("clamp", (x, lo, hi) -> Math.min(Math.max(x, lo), hi)).asPure());
+    tree = Evaler.create().compile(Corpus.expr(size)).tree();
+    specializer = new Specializer(tree, Set.of("v0", "v1", "v2", "v3", "v4", "v5"));
+  }
+
+  @Benchmark
+  public double tree() {
+    env.putVar("v6", tick++ & 7);
+    return tree.eval(env);
+  }
+
+  @Benchmark
+  public double specialized() {
+    env.putVar("v6", tick++ & 7);
+    return specializer.eval(env);
+  }
+}
@@ -0,0 +1,82 @@
+package lost.calc.bench;
+
+import lost.calc.api.TokenBuffer;
+import lost.calc.check.Validator;
+import lost.calc.impl.BLexer;
+import lost.calc.impl.PParser;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 校验一批表达式 (约一半有错): 捕获 BLexer / PParser 的异常 vs {@link Validator}
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ValidatorBenchmark {
+
+  @Param({"tiny", "small"})
+  public String size;
+
+  List<String> texts;
+  BLexer lexer;
+  TokenBuffer buffer;
+  PParser parser;
+  Validator validator;
+
+  @Setup
+  public void setup() {
+    var text = Corpus.expr(size);
+    texts = new ArrayList<>();
+    for (int i = 0; i < 100; i++) {
+      // 奇数项在不同位置截断或插入非法字符
+      int at = i * 7 % text.length();
+      texts.add(i % 2 == 0 ? text : i % 4 == 1 ? text.substring(0, at) + " + " : text.substring(0, at) + "$" + text.substring(at));
+    }
+    lexer = new BLexer();
+    buffer = new TokenBuffer();
+    parser = new PParser();
+    validator = new Validator();
+  }
+
+  @Benchmark
+  public int exceptions() {
+    int bad = 0;
+    for (String text : texts) {
+      try {
+        parser.parse(lexer.lex(text, buffer));
+      } catch (RuntimeException e) {
+        bad++;
+      }
+    }
+    return bad;
+  }
+
+  @Benchmark
+  public int exceptionMessages() {
+    int len = 0;
+    for (String text : texts) {
+      try {
+        parser.parse(lexer.lex(text, buffer));
+      } catch (RuntimeException e) {
+        len += e.getMessage().length();
+      }
+    }
+    return len;
+  }
+
+  @Benchmark
+  public int validator() {
+    int bad = 0;
+    for (String text : texts) {
+      bad += validator.validate(text).problems().size();
+    }
+    return bad;
+  }
+}
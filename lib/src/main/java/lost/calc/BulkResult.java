@@ -0,0 +1,30 @@
+package lost.calc;
+
+/**
+ * 批量求值结果, 下标与输入一致
+ *
+ * @param values 结果, 出错的位置为 NaN
+ * @param errors 每个位置的错误, 成功时为 null
+ */
+public record BulkResult(double[] values, RuntimeException[] errors) {
+
+  public int size() {
+    return values.length;
+  }
+
+  public boolean isOk(int i) {
+    return errors[i] == null;
+  }
+
+  public RuntimeException error(int i) {
+    return errors[i];
+  }
+
+  public int errorCount() {
+    int n = 0;
+    for (RuntimeException e : errors) {
+      if (e != null) n++;
+    }
+    return n;
+  }
+}
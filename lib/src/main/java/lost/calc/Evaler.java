@@ -3,31 +3,280 @@ package lost.calc;
 import lost.calc.api.Env;
 import lost.calc.api.Lexer;
 import lost.calc.api.Parser;
+import lost.calc.api.Token;
+import lost.calc.api.TokenBuffer;
+import lost.calc.api.Tree;
+import lost.calc.error.EvalerError;
+import lost.calc.impl.BLexer;
 import lost.calc.impl.DEnv;
 import lost.calc.impl.DLexer;
 import lost.calc.impl.DParser;
+import lost.calc.metrics.Metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 public class Evaler {
+  /**
+   * 批量求值时每块的最少条目数
+   */
+  private static final int BULK_CHUNK_MIN = 256;
+  /**
+   * {@link BLexer} 使用的 buffer, 每个线程复用一个
+   */
+  private static final ThreadLocal<TokenBuffer> BUFFER = ThreadLocal.withInitial(TokenBuffer::new);
+
   private final Lexer lexer;
   private final Parser parser;
+  private final ExprCache cache;
+  private final Metrics metrics;
 
   public Evaler(Lexer lexer,
                 Parser parser) {
+    this(lexer, parser, null);
+  }
+
+  public Evaler(Lexer lexer,
+                Parser parser,
+                ExprCache cache) {
+    this(lexer, parser, cache, Metrics.NOOP);
+  }
+
+  public Evaler(Lexer lexer,
+                Parser parser,
+                ExprCache cache,
+                Metrics metrics) {
     this.lexer = lexer;
     this.parser = parser;
+    this.cache = cache;
+    this.metrics = metrics;
   }
 
   public static Evaler create() {
     return new Evaler(new DLexer(), new DParser());
   }
 
+  /**
+   * 创建带有 LRU 表达式缓存的 Evaler
+   *
+   * @param cacheSize 缓存最大条目数
+   */
+  public static Evaler create(int cacheSize) {
+    return new Evaler(new DLexer(), new DParser(), new ExprCache(cacheSize));
+  }
+
   public static Env createEnv() {
     return new DEnv();
   }
 
+  public Optional<ExprCache> cache() {
+    return Optional.ofNullable(this.cache);
+  }
+
+  public Metrics metrics() {
+    return this.metrics;
+  }
+
+  /**
+   * 返回向 metrics 报告各阶段耗时的 Evaler, 与本对象共用 lexer / parser / 缓存
+   */
+  public Evaler withMetrics(Metrics metrics) {
+    return new Evaler(this.lexer, this.parser, this.cache, metrics);
+  }
+
+  /**
+   * 编译表达式, 返回可复用的 {@link Expr}
+   */
+  public Expr compile(String text) {
+    if (this.cache != null)
+      return this.cache.computeIfAbsent(text, this::doCompile);
+    return doCompile(text);
+  }
+
+  private Expr doCompile(String text) {
+    if (this.metrics != Metrics.NOOP) return compileMeasured(text);
+    return new Expr(text, parse(text));
+  }
+
+  /**
+   * lexer 为 {@link BLexer} 时词法分析写入线程复用的 {@link TokenBuffer}, 由 parser 直接读取;
+   * 其他 lexer 产生 {@link Token} 后交给 {@link Parser#parse(Iterable)}
+   */
+  private Tree parse(String text) {
+    if (this.lexer instanceof BLexer b) return this.parser.parse(b.lex(text, BUFFER.get()));
+    return this.parser.parse(this.lexer.lex(text));
+  }
+
+  /**
+   * 分别计时词法与语法分析; 词法分析可能是惰性的, 先把 token 全部取出
+   */
+  private Expr compileMeasured(String text) {
+    long start = System.nanoTime();
+    if (this.lexer instanceof BLexer b) {
+      var buffer = b.lex(text, BUFFER.get());
+      long lexed = System.nanoTime();
+      this.metrics.lexed(lexed - start, buffer.size());
+      var tree = this.parser.parse(buffer);
+      this.metrics.parsed(System.nanoTime() - lexed, countNodes(tree));
+      return new Expr(text, tree);
+    }
+    var tokens = new ArrayList<Token>();
+    this.lexer.lex(text).forEach(tokens::add);
+    long lexed = System.nanoTime();
+    this.metrics.lexed(lexed - start, tokens.size());
+    var tree = this.parser.parse(tokens);
+    this.metrics.parsed(System.nanoTime() - lexed, countNodes(tree));
+    return new Expr(text, tree);
+  }
+
+  private static int countNodes(Tree tree) {
+    int n = 1;
+    for (Tree kid : tree.kids()) {
+      n += countNodes(kid);
+    }
+    return n;
+  }
+
+  private double evalMeasured(String text,
+                              Env env) {
+    long start = System.nanoTime();
+    try {
+      var expr = compile(text);
+      long compiled = System.nanoTime();
+      try {
+        return expr.eval(env);
+      } finally {
+        this.metrics.evaluated(System.nanoTime() - compiled);
+      }
+    } finally {
+      this.metrics.expression(text, System.nanoTime() - start);
+    }
+  }
+
   public double eval(String text,
                      Env env) {
-    return parser.parse(lexer.lex(text)).eval(env);
+    if (this.metrics != Metrics.NOOP) return evalMeasured(text, env);
+    if (this.cache != null)
+      return this.cache.computeIfAbsent(text, this::doCompile).eval(env);
+    return parse(text).eval(env);
   }
 
+  /**
+   * 在 {@link ForkJoinPool#commonPool()} 上批量求值, 见 {@link #evalAll(List, Env, ExecutorService)}
+   */
+  public BulkResult evalAll(List<String> texts,
+                            Env env) {
+    return evalAll(texts, env, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * 批量求值多个表达式
+   * <p>
+   * 输入按块分给 executor, 与 {@link #eval(String, Env)} 使用同一个 lexer / parser / 缓存 / metrics;
+   * 单个表达式出错 (包括嵌套过深导致的 {@link StackOverflowError}) 只记录在结果中, 不影响其他表达式.
+   * 求值期间 env 只读, 不得修改
+   *
+   * @param executor {@link ForkJoinPool} 或虚拟线程 executor, 如 {@code Executors.newVirtualThreadPerTaskExecutor()}
+   */
+  public BulkResult evalAll(List<String> texts,
+                            Env env,
+                            ExecutorService executor) {
+    return bulk(texts.size(), executor, i -> eval(texts.get(i), env));
+  }
+
+  /**
+   * 在 {@link ForkJoinPool#commonPool()} 上批量求值, 见 {@link #evalAll(String, List, ExecutorService)}
+   */
+  public BulkResult evalAll(String text,
+                            List<? extends Env> envs) {
+    return evalAll(text, envs, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * 同一个表达式在多个 env 上求值, 表达式只编译一次
+   */
+  public BulkResult evalAll(String text,
+                            List<? extends Env> envs,
+                            ExecutorService executor) {
+    Expr expr;
+    try {
+      expr = compile(text);
+    } catch (RuntimeException e) {
+      return bulk(envs.size(), executor, i -> {
+        throw e;
+      });
+    }
+    return bulk(envs.size(), executor, i -> expr.eval(envs.get(i)));
+  }
+
+  /**
+   * 在 {@link ForkJoinPool#commonPool()} 上批量求值, 见 {@link #evalAll(List, List, ExecutorService)}
+   */
+  public BulkResult evalAll(List<String> texts,
+                            List<? extends Env> envs) {
+    return evalAll(texts, envs, ForkJoinPool.commonPool());
+  }
+
+  /**
+   * 逐对求值 texts[i] 与 envs[i]
+   */
+  public BulkResult evalAll(List<String> texts,
+                            List<? extends Env> envs,
+                            ExecutorService executor) {
+    if (texts.size() != envs.size())
+      throw new IllegalArgumentException(STR."Evaler: texts and envs size not match, [texts:\{texts.size()}, envs:\{envs.size()}]");
+    return bulk(texts.size(), executor, i -> eval(texts.get(i), envs.get(i)));
+  }
+
+  private interface Item {
+    double eval(int i);
+  }
+
+  private BulkResult bulk(int n,
+                          ExecutorService executor,
+                          Item item) {
+    var values = new double[n];
+    var errors = new RuntimeException[n];
+    int parallelism = executor instanceof ForkJoinPool pool
+            ? pool.getParallelism()
+            : Runtime.getRuntime().availableProcessors();
+    // 每个线程约 4 块, 平衡负载
+    int chunk = Math.max(BULK_CHUNK_MIN, (n + parallelism * 4 - 1) / (parallelism * 4));
+    var futures = new ArrayList<Future<?>>();
+    for (int start = 0; start < n; start += chunk) {
+      int from = start;
+      int to = Math.min(n, start + chunk);
+      futures.add(executor.submit(() -> {
+        for (int i = from; i < to; i++) {
+          try {
+            values[i] = item.eval(i);
+          } catch (RuntimeException e) {
+            values[i] = Double.NaN;
+            errors[i] = e;
+          } catch (StackOverflowError e) {
+            values[i] = Double.NaN;
+            errors[i] = new EvalerError("expression is nested too deep 😡", e);
+          }
+        }
+      }));
+    }
+    try {
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      futures.forEach(f -> f.cancel(true));
+      Thread.currentThread().interrupt();
+      throw new EvalerError("bulk eval interrupted 😡");
+    } catch (ExecutionException e) {
+      futures.forEach(f -> f.cancel(true));
+      throw new EvalerError(STR."bulk eval failed: \{e.getCause()} 😡", e.getCause());
+    }
+    return new BulkResult(values, errors);
+  }
 }
@@ -0,0 +1,50 @@
+package lost.calc;
+
+import lost.calc.api.Env;
+import lost.calc.api.Tree;
+import lost.calc.decimal.DecimalExpr;
+import lost.calc.impl.SEnv;
+import lost.calc.link.Linker;
+import lost.calc.link.Program;
+import lost.calc.opt.Folder;
+
+/**
+ * 编译后的表达式
+ * <p>
+ * 只持有解析完成的 {@link Tree}, 求值过程不修改 tree, 可被多线程复用
+ *
+ * @param text 源表达式
+ * @param tree 解析结果
+ */
+public record Expr(String text, Tree tree) {
+
+  public double eval(Env env) {
+    return this.tree.eval(env);
+  }
+
+  /**
+   * 常量折叠与化简, 见 {@link Folder}
+   */
+  public Expr fold() {
+    return new Expr(this.text, Folder.fold(this.tree));
+  }
+
+  /**
+   * 链接到 env, 见 {@link Linker}
+   */
+  public Program link(SEnv env) {
+    return Linker.link(this.tree, env);
+  }
+
+  /**
+   * 十进制精确求值, 见 {@link DecimalExpr}
+   */
+  public DecimalExpr decimal() {
+    return DecimalExpr.compile(this);
+  }
+
+  @Override
+  public String toString() {
+    return STR."Expr(\{this.text})";
+  }
+}
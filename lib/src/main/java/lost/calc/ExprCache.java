@@ -0,0 +1,89 @@
+package lost.calc;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * 有界 LRU 表达式缓存, key 为表达式源文本
+ */
+public class ExprCache {
+
+  /**
+   * 缓存统计
+   *
+   * @param hits      命中次数
+   * @param misses    未命中次数
+   * @param evictions 淘汰次数
+   * @param size      当前条目数
+   * @param maxSize   最大条目数
+   */
+  public record Stats(long hits, long misses, long evictions, int size, int maxSize) {
+    public double hitRate() {
+      long total = hits + misses;
+      return total == 0 ? 0 : (double) hits / total;
+    }
+  }
+
+  private final int maxSize;
+  private final LinkedHashMap<String, Expr> map;
+  private long hits;
+  private long misses;
+  private long evictions;
+
+  public ExprCache(int maxSize) {
+    if (maxSize <= 0) {
+      throw new IllegalArgumentException(STR."ExprCache: must be maxSize > 0, [maxSize:\{maxSize}]");
+    }
+    this.maxSize = maxSize;
+    this.map = new LinkedHashMap<>(16, 0.75f, true) {
+      @Override
+      protected boolean removeEldestEntry(Map.Entry<String, Expr> eldest) {
+        if (size() > ExprCache.this.maxSize) {
+          evictions++;
+          return true;
+        }
+        return false;
+      }
+    };
+  }
+
+  /**
+   * 查找缓存, 未命中时调用 compiler 编译并放入缓存
+   * <p>
+   * 编译在锁外进行, 并发未命中同一文本时可能重复编译, 结果等价
+   *
+   * @param text     表达式源文本
+   * @param compiler 编译函数
+   * @return 编译结果
+   */
+  public Expr computeIfAbsent(String text,
+                              Function<String, Expr> compiler) {
+    synchronized (this) {
+      var expr = this.map.get(text);
+      if (expr != null) {
+        hits++;
+        return expr;
+      }
+      misses++;
+    }
+    var expr = compiler.apply(text);
+    synchronized (this) {
+      var old = this.map.putIfAbsent(text, expr);
+      return old != null ? old : expr;
+    }
+  }
+
+  public synchronized void clear() {
+    this.map.clear();
+  }
+
+  public synchronized Stats stats() {
+    return new Stats(hits, misses, evictions, map.size(), maxSize);
+  }
+
+  @Override
+  public String toString() {
+    return STR."ExprCache\{stats()}";
+  }
+}
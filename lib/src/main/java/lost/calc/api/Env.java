@@ -11,9 +11,41 @@ public interface Env {
 
   Env installFn(Fn fn);
 
+  default Env installFn(String name,
+                        Fn.Fn0 body) {
+    return installFn(Fn.of(name, body));
+  }
+
+  default Env installFn(String name,
+                        Fn.Fn1 body) {
+    return installFn(Fn.of(name, body));
+  }
+
+  default Env installFn(String name,
+                        Fn.Fn2 body) {
+    return installFn(Fn.of(name, body));
+  }
+
+  default Env installFn(String name,
+                        Fn.Fn3 body) {
+    return installFn(Fn.of(name, body));
+  }
+
+  default Env installFn(String name,
+                        Fn.Fn4 body) {
+    return installFn(Fn.of(name, body));
+  }
+
   Env uninstallFn(Fn fn);
 
   Fn findFn(String name);
 
+  /**
+   * 纯函数调用使用的缓存, 返回 null 时不缓存; 默认不缓存, 可返回 {@link Memo#shared()} 或自己的实例
+   */
+  default Memo memo() {
+    return null;
+  }
+
 }
 
@@ -7,4 +7,245 @@ public interface Fn {
   int paramCount();
 
   double call(double... params);
+
+  /**
+   * 是否为纯函数: 结果只取决于参数, 没有副作用
+   * <p>
+   * 纯函数的调用经由 {@link Env#memo()} 缓存, 参数全为常量时可在编译期折叠, 见 {@link lost.calc.opt.Folder#fold(Tree, Env)}
+   */
+  default boolean pure() {
+    return false;
+  }
+
+  /**
+   * 返回声明为纯函数的包装, 见 {@link #pure()}
+   */
+  default Fn asPure() {
+    return pure() ? this : new Pure(this);
+  }
+
+  /*
+   * 按参数个数分派的调用, 求值器对 0 - 4 个参数的函数使用它们而不是 call(double...),
+   * 默认实现仍经由 call(double...), 由 Fn.of 创建的函数直接调用 Fn0 - Fn4, 不分配数组
+   */
+
+  default double call0() {
+    return call();
+  }
+
+  default double call1(double a) {
+    return call(a);
+  }
+
+  default double call2(double a,
+                       double b) {
+    return call(a, b);
+  }
+
+  default double call3(double a,
+                       double b,
+                       double c) {
+    return call(a, b, c);
+  }
+
+  default double call4(double a,
+                       double b,
+                       double c,
+                       double d) {
+    return call(a, b, c, d);
+  }
+
+  static Fn of(String name,
+               Fn0 body) {
+    return new Of0(name, body);
+  }
+
+  static Fn of(String name,
+               Fn1 body) {
+    return new Of1(name, body);
+  }
+
+  static Fn of(String name,
+               Fn2 body) {
+    return new Of2(name, body);
+  }
+
+  static Fn of(String name,
+               Fn3 body) {
+    return new Of3(name, body);
+  }
+
+  static Fn of(String name,
+               Fn4 body) {
+    return new Of4(name, body);
+  }
+
+  @FunctionalInterface
+  interface Fn0 {
+    double apply();
+  }
+
+  @FunctionalInterface
+  interface Fn1 {
+    double apply(double a);
+  }
+
+  @FunctionalInterface
+  interface Fn2 {
+    double apply(double a, double b);
+  }
+
+  @FunctionalInterface
+  interface Fn3 {
+    double apply(double a, double b, double c);
+  }
+
+  @FunctionalInterface
+  interface Fn4 {
+    double apply(double a, double b, double c, double d);
+  }
+
+  record Of0(String name, Fn0 body) implements Fn {
+    @Override
+    public int paramCount() {
+      return 0;
+    }
+
+    @Override
+    public double call(double... params) {
+      return body.apply();
+    }
+
+    @Override
+    public double call0() {
+      return body.apply();
+    }
+  }
+
+  record Of1(String name, Fn1 body) implements Fn {
+    @Override
+    public int paramCount() {
+      return 1;
+    }
+
+    @Override
+    public double call(double... params) {
+      return body.apply(params[0]);
+    }
+
+    @Override
+    public double call1(double a) {
+      return body.apply(a);
+    }
+  }
+
+  record Of2(String name, Fn2 body) implements Fn {
+    @Override
+    public int paramCount() {
+      return 2;
+    }
+
+    @Override
+    public double call(double... params) {
+      return body.apply(params[0], params[1]);
+    }
+
+    @Override
+    public double call2(double a,
+                        double b) {
+      return body.apply(a, b);
+    }
+  }
+
+  record Of3(String name, Fn3 body) implements Fn {
+    @Override
+    public int paramCount() {
+      return 3;
+    }
+
+    @Override
+    public double call(double... params) {
+      return body.apply(params[0], params[1], params[2]);
+    }
+
+    @Override
+    public double call3(double a,
+                        double b,
+                        double c) {
+      return body.apply(a, b, c);
+    }
+  }
+
+  record Of4(String name, Fn4 body) implements Fn {
+    @Override
+    public int paramCount() {
+      return 4;
+    }
+
+    @Override
+    public double call(double... params) {
+      return body.apply(params[0], params[1], params[2], params[3]);
+    }
+
+    @Override
+    public double call4(double a,
+                        double b,
+                        double c,
+                        double d) {
+      return body.apply(a, b, c, d);
+    }
+  }
+
+  record Pure(Fn fn) implements Fn {
+    @Override
+    public String name() {
+      return fn.name();
+    }
+
+    @Override
+    public int paramCount() {
+      return fn.paramCount();
+    }
+
+    @Override
+    public boolean pure() {
+      return true;
+    }
+
+    @Override
+    public double call(double... params) {
+      return fn.call(params);
+    }
+
+    @Override
+    public double call0() {
+      return fn.call0();
+    }
+
+    @Override
+    public double call1(double a) {
+      return fn.call1(a);
+    }
+
+    @Override
+    public double call2(double a,
+                        double b) {
+      return fn.call2(a, b);
+    }
+
+    @Override
+    public double call3(double a,
+                        double b,
+                        double c) {
+      return fn.call3(a, b, c);
+    }
+
+    @Override
+    public double call4(double a,
+                        double b,
+                        double c,
+                        double d) {
+      return fn.call4(a, b, c, d);
+    }
+  }
 }
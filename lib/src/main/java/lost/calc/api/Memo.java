@@ -0,0 +1,237 @@
+package lost.calc.api;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 纯函数 ({@link Fn#pure()}) 调用结果的有界缓存, key 为函数与参数的位模式
+ * <p>
+ * 直接映射表: 每个 (函数, 参数) 只可能位于一个槽, 冲突时新结果覆盖旧结果, 条目数不超过容量.
+ * 查找与写入无锁, 可被多个线程共享. 0 - 4 个参数的查找不分配数组, 只在未命中写入时复制参数.
+ * <p>
+ * 按函数统计命中率: 统计以弱引用持有函数, 不会让函数常驻内存; 命中时经由条目上的计数器累加, 只有未命中时查找统计表
+ */
+public final class Memo {
+  /**
+   * 统计
+   *
+   * @param hits   命中次数
+   * @param misses 未命中次数
+   */
+  public record Stats(long hits, long misses) {
+    public double hitRate() {
+      long total = hits + misses;
+      return total == 0 ? 0 : (double) hits / total;
+    }
+  }
+
+  private static final Memo SHARED = new Memo(4096);
+  private static final double[] NO_PARAMS = {};
+
+  private record Counter(String name, LongAdder hits, LongAdder misses) {
+  }
+
+  private record Entry(Fn fn, double[] params, double value, Counter counter) {
+    double hit() {
+      this.counter.hits.increment();
+      return this.value;
+    }
+  }
+
+  private final AtomicReferenceArray<Entry> table;
+  private final int mask;
+  /**
+   * 只在未命中与查询统计时访问
+   */
+  private final Map<Fn, Counter> counters = new WeakHashMap<>();
+
+  /**
+   * @param capacity 最大条目数, 向上取整为 2 的幂
+   */
+  public Memo(int capacity) {
+    if (capacity <= 0) {
+      throw new IllegalArgumentException(STR."Memo: must be capacity > 0, [capacity:\{capacity}]");
+    }
+    int size = Integer.highestOneBit(Math.min(capacity, 1 << 30) - 1) << 1;
+    this.table = new AtomicReferenceArray<>(Math.max(size, 1));
+    this.mask = this.table.length() - 1;
+  }
+
+  /**
+   * 进程内共享的缓存, 容量 4096; {@link Env#memo()} 默认不缓存, 需要时返回它或自己的实例
+   */
+  public static Memo shared() {
+    return SHARED;
+  }
+
+  public int capacity() {
+    return this.table.length();
+  }
+
+  public double call0(Fn fn) {
+    int slot = slot(seed(fn));
+    var e = this.table.get(slot);
+    if (e != null && e.fn == fn && e.params.length == 0) return e.hit();
+    return store(slot, fn, NO_PARAMS, fn.call0());
+  }
+
+  public double call1(Fn fn,
+                      double a) {
+    int slot = slot(mix(seed(fn), a));
+    var e = this.table.get(slot);
+    if (e != null && e.fn == fn && e.params.length == 1 && same(e.params[0], a)) return e.hit();
+    return store(slot, fn, new double[]{a}, fn.call1(a));
+  }
+
+  public double call2(Fn fn,
+                      double a,
+                      double b) {
+    int slot = slot(mix(mix(seed(fn), a), b));
+    var e = this.table.get(slot);
+    if (e != null && e.fn == fn && e.params.length == 2
+            && same(e.params[0], a) && same(e.params[1], b)) return e.hit();
+    return store(slot, fn, new double[]{a, b}, fn.call2(a, b));
+  }
+
+  public double call3(Fn fn,
+                      double a,
+                      double b,
+                      double c) {
+    int slot = slot(mix(mix(mix(seed(fn), a), b), c));
+    var e = this.table.get(slot);
+    if (e != null && e.fn == fn && e.params.length == 3
+            && same(e.params[0], a) && same(e.params[1], b) && same(e.params[2], c)) return e.hit();
+    return store(slot, fn, new double[]{a, b, c}, fn.call3(a, b, c));
+  }
+
+  public double call4(Fn fn,
+                      double a,
+                      double b,
+                      double c,
+                      double d) {
+    int slot = slot(mix(mix(mix(mix(seed(fn), a), b), c), d));
+    var e = this.table.get(slot);
+    if (e != null && e.fn == fn && e.params.length == 4
+            && same(e.params[0], a) && same(e.params[1], b) && same(e.params[2], c) && same(e.params[3], d))
+      return e.hit();
+    return store(slot, fn, new double[]{a, b, c, d}, fn.call4(a, b, c, d));
+  }
+
+  /**
+   * 查找缓存, 未命中时调用 fn 并放入缓存; 0 - 4 个参数时与 call0 - call4 共用条目
+   *
+   * @param params 参数, 未命中时由缓存持有, 调用方不得再修改
+   */
+  public double call(Fn fn,
+                     double[] params) {
+    return switch (params.length) {
+      case 0 -> call0(fn);
+      case 1 -> call1(fn, params[0]);
+      case 2 -> call2(fn, params[0], params[1]);
+      case 3 -> call3(fn, params[0], params[1], params[2]);
+      case 4 -> call4(fn, params[0], params[1], params[2], params[3]);
+      default -> {
+        long h = seed(fn);
+        for (double p : params) {
+          h = mix(h, p);
+        }
+        int slot = slot(h);
+        var e = this.table.get(slot);
+        if (e != null && e.fn == fn && same(e.params, params)) yield e.hit();
+        yield store(slot, fn, params, fn.call(params.clone()));
+      }
+    };
+  }
+
+  private double store(int slot,
+                       Fn fn,
+                       double[] params,
+                       double value) {
+    var counter = counter(fn);
+    counter.misses.increment();
+    this.table.set(slot, new Entry(fn, params, value, counter));
+    return value;
+  }
+
+  private Counter counter(Fn fn) {
+    synchronized (this.counters) {
+      return this.counters.computeIfAbsent(fn, k -> new Counter(k.name(), new LongAdder(), new LongAdder()));
+    }
+  }
+
+  private static long seed(Fn fn) {
+    return fn.name().hashCode();
+  }
+
+  /**
+   * double 的低位常为 0, 逐个乘法混合后取高位
+   */
+  private static long mix(long h,
+                          double p) {
+    h = (h ^ Double.doubleToLongBits(p)) * 0x9E3779B97F4A7C15L;
+    return h ^ h >>> 32;
+  }
+
+  private int slot(long h) {
+    return (int) (h ^ h >>> 29) & this.mask;
+  }
+
+  /**
+   * 按位比较, NaN 视为相同, 区分 +0 / -0
+   */
+  private static boolean same(double a,
+                              double b) {
+    return Double.doubleToLongBits(a) == Double.doubleToLongBits(b);
+  }
+
+  private static boolean same(double[] a,
+                              double[] b) {
+    if (a.length != b.length) return false;
+    for (int i = 0; i < a.length; i++) {
+      if (!same(a[i], b[i])) return false;
+    }
+    return true;
+  }
+
+  /**
+   * 函数名 => 统计, 按名字排序; 同名的不同函数合并统计
+   */
+  public Map<String, Stats> stats() {
+    var result = new TreeMap<String, Stats>();
+    synchronized (this.counters) {
+      for (Counter c : this.counters.values()) {
+        result.merge(c.name, new Stats(c.hits.sum(), c.misses.sum()),
+                (a, b) -> new Stats(a.hits + b.hits, a.misses + b.misses));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * 单个函数的统计
+   */
+  public Stats stats(Fn fn) {
+    Counter c;
+    synchronized (this.counters) {
+      c = this.counters.get(fn);
+    }
+    return c == null ? new Stats(0, 0) : new Stats(c.hits.sum(), c.misses.sum());
+  }
+
+  public void clear() {
+    for (int i = 0; i < this.table.length(); i++) {
+      this.table.set(i, null);
+    }
+    synchronized (this.counters) {
+      this.counters.clear();
+    }
+  }
+
+  @Override
+  public String toString() {
+    return STR."Memo[capacity=\{capacity()}, stats=\{stats()}]";
+  }
+}
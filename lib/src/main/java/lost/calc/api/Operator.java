@@ -1,5 +1,8 @@
 package lost.calc.api;
 
+import lost.calc.error.EvalerError;
+
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.TreeSet;
@@ -35,6 +38,12 @@ public enum Operator {
 
   private final static Map<String, Operator> map;
   public final static char[] CHARS;
+  private final static Operator[] ALL = Operator.values();
+  /**
+   * 按首字符索引的运算符表, 只覆盖 ASCII
+   */
+  private final static Operator[][] TABLE = new Operator[128][];
+  private final static boolean[] IS_CHAR = new boolean[128];
 
   static {
     var all = Operator.values();
@@ -54,9 +63,21 @@ public enum Operator {
     int i = 0;
     for (Character c : set) {
       CHARS[i] = c;
+      IS_CHAR[c] = true;
       i++;
     }
 
+    for (var v : all) {
+      char first = v.value.charAt(0);
+      var row = TABLE[first];
+      if (row == null) {
+        row = new Operator[0];
+      }
+      row = Arrays.copyOf(row, row.length + 1);
+      row[row.length - 1] = v;
+      TABLE[first] = row;
+    }
+
   }
 
   public static Operator find(String value) {
@@ -64,6 +85,82 @@ public enum Operator {
     return map.get(value);
   }
 
+  /**
+   * 不分配对象的查找
+   *
+   * @param text  文本
+   * @param start 起始下标 (含)
+   * @param end   结束下标 (不含)
+   * @return 运算符, 未找到返回 null
+   */
+  public static Operator find(CharSequence text,
+                              int start,
+                              int end) {
+    if (start >= end) return null;
+    char first = text.charAt(start);
+    if (first >= TABLE.length || TABLE[first] == null) return null;
+    int len = end - start;
+    for (Operator op : TABLE[first]) {
+      var value = op.value;
+      if (value.length() != len) continue;
+      int i = 1;
+      while (i < len && value.charAt(i) == text.charAt(start + i)) i++;
+      if (i == len) return op;
+    }
+    return null;
+  }
+
+  public static boolean isChar(char c) {
+    return c < IS_CHAR.length && IS_CHAR[c];
+  }
+
+  public static Operator of(int ordinal) {
+    return ALL[ordinal];
+  }
+
+
+  /**
+   * 中缀运算, 与 {@link Tree.InfixTree} 语义一致
+   * <p>
+   * 两侧都已求值, 不含 {@code &&} {@code ||} 的短路
+   *
+   * @param lhs 左值
+   * @param rhs 右值
+   * @return 结果, 比较与逻辑运算返回 1 / 0
+   */
+  public double infix(double lhs,
+                      double rhs) {
+    return switch (this) {
+      case Pow -> Math.pow(lhs, rhs);
+      case Multi -> lhs * rhs;
+      case Div -> lhs / rhs;
+      case Plus -> lhs + rhs;
+      case Minus -> lhs - rhs;
+      case Mod -> lhs % rhs;
+      case And -> (lhs != 0 ? 1 : 0) & (rhs != 0 ? 1 : 0);
+      case Or -> (lhs != 0 ? 1 : 0) | (rhs != 0 ? 1 : 0);
+      case Lt -> lhs < rhs ? 1 : 0;
+      case Le -> lhs <= rhs ? 1 : 0;
+      case Gt -> lhs > rhs ? 1 : 0;
+      case Ge -> lhs >= rhs ? 1 : 0;
+      case Eq -> lhs == rhs ? 1 : 0;
+      case Ne -> lhs != rhs ? 1 : 0;
+      default -> throw new EvalerError(STR."\{this} is not a infix-operator 😡");
+    };
+  }
+
+  /**
+   * 前缀运算, 与 {@link Tree.PrefixTree} 语义一致
+   *
+   * @param v 操作数
+   * @return 结果
+   */
+  public double prefix(double v) {
+    return switch (this) {
+      case Not -> v == 0 ? 1 : 0;
+      default -> throw new EvalerError(STR."\{this} is not a prefix-operator 😡");
+    };
+  }
 
   Operator(String value,
            int order) {
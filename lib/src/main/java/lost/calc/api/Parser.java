@@ -4,4 +4,11 @@ public interface Parser {
 
   Tree parse(Iterable<Token> tokens);
 
+  /**
+   * 从 {@link TokenBuffer} 解析, 默认逐个生成 {@link Token} 后调用 {@link #parse(Iterable)}
+   */
+  default Tree parse(TokenBuffer tokens) {
+    return parse(tokens.tokens());
+  }
+
 }
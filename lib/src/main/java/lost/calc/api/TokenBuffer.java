@@ -0,0 +1,177 @@
+package lost.calc.api;
+
+import lost.calc.api.Token.*;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+
+/**
+ * 以基本类型数组保存的 token 序列, 可重复使用
+ * <p>
+ * 第 i 个 token 由 kind / start / end 描述, 数字的值保存在 number, 运算符保存 ordinal,
+ * 变量名按需从源文本截取. start / end 与 {@link Slice} 一致, 均为闭区间
+ */
+public final class TokenBuffer {
+  public static final byte NUMBER = 0;
+  public static final byte IDENT = 1;
+  public static final byte OPERATOR = 2;
+  public static final byte OPEN = 3;
+  public static final byte CLOSE = 4;
+  public static final byte COMMA = 5;
+
+  private CharSequence text = "";
+  private int size;
+  private byte[] kinds;
+  private int[] starts;
+  private int[] ends;
+  private double[] numbers;
+  private byte[] operators;
+  private String[] idents;
+
+  public TokenBuffer() {
+    this(32);
+  }
+
+  public TokenBuffer(int capacity) {
+    capacity = Math.max(capacity, 1);
+    this.kinds = new byte[capacity];
+    this.starts = new int[capacity];
+    this.ends = new int[capacity];
+    this.numbers = new double[capacity];
+    this.operators = new byte[capacity];
+    this.idents = new String[capacity];
+  }
+
+  /**
+   * 清空并绑定新的源文本
+   */
+  public TokenBuffer reset(CharSequence text) {
+    Arrays.fill(this.idents, 0, this.size, null);
+    this.text = text;
+    this.size = 0;
+    return this;
+  }
+
+  public CharSequence text() {
+    return this.text;
+  }
+
+  public int size() {
+    return this.size;
+  }
+
+  public byte kind(int i) {
+    return this.kinds[i];
+  }
+
+  public int start(int i) {
+    return this.starts[i];
+  }
+
+  public int end(int i) {
+    return this.ends[i];
+  }
+
+  public double number(int i) {
+    return this.numbers[i];
+  }
+
+  public Operator operator(int i) {
+    return Operator.of(this.operators[i]);
+  }
+
+  public String ident(int i) {
+    var ident = this.idents[i];
+    if (ident == null) {
+      ident = this.text.subSequence(this.starts[i], this.ends[i] + 1).toString();
+      this.idents[i] = ident;
+    }
+    return ident;
+  }
+
+  public Slice slice(int i) {
+    return new Slice(this.starts[i], this.ends[i]);
+  }
+
+  public void add(byte kind,
+                  int start,
+                  int end) {
+    ensureCapacity();
+    this.kinds[this.size] = kind;
+    this.starts[this.size] = start;
+    this.ends[this.size] = end;
+    this.size++;
+  }
+
+  public void addNumber(double value,
+                        int start,
+                        int end) {
+    ensureCapacity();
+    this.numbers[this.size] = value;
+    add(NUMBER, start, end);
+  }
+
+  public void addOperator(Operator operator,
+                          int start,
+                          int end) {
+    ensureCapacity();
+    this.operators[this.size] = (byte) operator.ordinal();
+    add(OPERATOR, start, end);
+  }
+
+  public void add(Token token) {
+    switch (token) {
+      case NumberToken t -> addNumber(t.value(), t.slice().start(), t.slice().end());
+      case OperatorToken t -> addOperator(t.value(), t.slice().start(), t.slice().end());
+      case IdentToken t -> {
+        ensureCapacity();
+        this.idents[this.size] = t.value();
+        add(IDENT, t.slice().start(), t.slice().end());
+      }
+      case OpenToken t -> add(OPEN, t.slice().start(), t.slice().end());
+      case CloseToken t -> add(CLOSE, t.slice().start(), t.slice().end());
+      case CommaToken t -> add(COMMA, t.slice().start(), t.slice().end());
+    }
+  }
+
+  /**
+   * 生成第 i 个 {@link Token}, 用于错误信息与兼容 {@link Parser#parse(Iterable)}
+   */
+  public Token token(int i) {
+    var slice = slice(i);
+    return switch (this.kinds[i]) {
+      case NUMBER -> new NumberToken(this.numbers[i], slice);
+      case IDENT -> new IdentToken(ident(i), slice);
+      case OPERATOR -> new OperatorToken(operator(i), slice);
+      case OPEN -> new OpenToken(slice);
+      case CLOSE -> new CloseToken(slice);
+      case COMMA -> new CommaToken(slice);
+      default -> throw new AssertionError(STR."unknown token kind \{this.kinds[i]} but a BUG 😡");
+    };
+  }
+
+  public Iterable<Token> tokens() {
+    return new AbstractList<Token>() {
+      @Override
+      public Token get(int index) {
+        return token(index);
+      }
+
+      @Override
+      public int size() {
+        return TokenBuffer.this.size;
+      }
+    };
+  }
+
+  private void ensureCapacity() {
+    if (this.size < this.kinds.length) return;
+    int capacity = this.kinds.length * 2;
+    this.kinds = Arrays.copyOf(this.kinds, capacity);
+    this.starts = Arrays.copyOf(this.starts, capacity);
+    this.ends = Arrays.copyOf(this.ends, capacity);
+    this.numbers = Arrays.copyOf(this.numbers, capacity);
+    this.operators = Arrays.copyOf(this.operators, capacity);
+    this.idents = Arrays.copyOf(this.idents, capacity);
+  }
+}
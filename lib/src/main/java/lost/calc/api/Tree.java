@@ -3,6 +3,7 @@ package lost.calc.api;
 import lost.calc.error.EvalerError;
 
 import java.util.ArrayDeque;
+import java.util.function.Function;
 
 public sealed interface Tree permits Tree.TreeBase {
   Token.Slice slice();
@@ -20,18 +21,30 @@ public sealed interface Tree permits Tree.TreeBase {
   }
 
   default String dump(int indent) {
+    return dump(indent, tree -> "");
+  }
+
+  /**
+   * 每个节点在 `{` 前附加 note 返回的内容, 为空时不附加
+   */
+  default String dump(int indent,
+                      Function<Tree, String> note) {
     var result = new StringBuilder();
-    dump(this, result, 0, indent);
+    dump(this, result, 0, indent, note);
     return result.toString();
   }
 
   private static void dump(Tree tree,
                            StringBuilder sb,
                            int level,
-                           int indent) {
-    sb.append(STR."\{" ".repeat(indent * level)}\{tree} {\n");
+                           int indent,
+                           Function<Tree, String> note) {
+    var text = note.apply(tree);
+    sb.append(STR."\{" ".repeat(indent * level)}\{tree}");
+    if (text != null && !text.isEmpty()) sb.append(' ').append(text);
+    sb.append(" {\n");
     for (Tree kid : tree.kids()) {
-      dump(kid, sb, level + 1, indent);
+      dump(kid, sb, level + 1, indent, note);
     }
     sb.append(STR."\{" ".repeat(indent * level)}}\n");
   }
@@ -112,20 +125,31 @@ public sealed interface Tree permits Tree.TreeBase {
     public double eval(Env env) {
       if (env.hasVar(this.value))
         return env.getVar(this.value);
-      throw new EvalerError(STR."\{this} not found from env 😡");
+      throw new EvalerError(() -> STR."\{this} not found from env 😡");
     }
   }
 
   /**
    * 函数调用
+   * <p>
+   * {@code if(cond, a, b)} 为内置的条件表达式, 只求值被选中的分支, 不查找 env 中的同名函数.
+   * 纯函数 ({@link Fn#pure()}) 的调用经由 {@link Env#memo()} 缓存
    */
   final class CallTree extends TreeBase {
+    public static final String IF = "if";
+
     public final String value;
+    private final boolean isIf;
 
     public CallTree(String value,
                     Token.Slice slice) {
       super(slice);
       this.value = value;
+      this.isIf = IF.equals(value);
+    }
+
+    public boolean isIf() {
+      return this.isIf;
     }
 
     @Override
@@ -135,18 +159,55 @@ public sealed interface Tree permits Tree.TreeBase {
 
     @Override
     public double eval(Env env) {
+      if (this.isIf) {
+        if (this.kids().size() != 3)
+          throw new EvalerError(() -> STR."\{this} params count not match 😡");
+        var kids = this.kids().iterator();
+        var cond = kids.next().eval(env);
+        var then = kids.next();
+        return cond != 0 ? then.eval(env) : kids.next().eval(env);
+      }
       var fn = env.findFn(this.value);
       if (fn == null)
-        throw new EvalerError(STR."\{this} not found from env 😡");
+        throw new EvalerError(() -> STR."\{this} not found from env 😡");
       var pCount = fn.paramCount();
       if (this.kids().size() != pCount)
-        throw new EvalerError(STR."\{this} params count not match 😡");
-      var params = new double[pCount];
-      int i = 0;
-      for (Tree kid : this.kids()) {
-        params[i++] = kid.eval(env);
+        throw new EvalerError(() -> STR."\{this} params count not match 😡");
+      var kids = this.kids().iterator();
+      if (fn.pure()) {
+        var memo = env.memo();
+        if (memo != null) {
+          return switch (pCount) {
+            case 0 -> memo.call0(fn);
+            case 1 -> memo.call1(fn, kids.next().eval(env));
+            case 2 -> memo.call2(fn, kids.next().eval(env), kids.next().eval(env));
+            case 3 -> memo.call3(fn, kids.next().eval(env), kids.next().eval(env), kids.next().eval(env));
+            case 4 -> memo.call4(fn, kids.next().eval(env), kids.next().eval(env), kids.next().eval(env), kids.next().eval(env));
+            default -> {
+              var params = new double[pCount];
+              for (int i = 0; i < pCount; i++) {
+                params[i] = kids.next().eval(env);
+              }
+              yield memo.call(fn, params);
+            }
+          };
+        }
       }
-      return fn.call(params);
+      return switch (pCount) {
+        case 0 -> fn.call0();
+        case 1 -> fn.call1(kids.next().eval(env));
+        case 2 -> fn.call2(kids.next().eval(env), kids.next().eval(env));
+        case 3 -> fn.call3(kids.next().eval(env), kids.next().eval(env), kids.next().eval(env));
+        case 4 -> fn.call4(kids.next().eval(env), kids.next().eval(env), kids.next().eval(env), kids.next().eval(env));
+        default -> {
+          var params = new double[pCount];
+          int i = 0;
+          while (kids.hasNext()) {
+            params[i++] = kids.next().eval(env);
+          }
+          yield fn.call(params);
+        }
+      };
     }
   }
 
@@ -175,10 +236,10 @@ public sealed interface Tree permits Tree.TreeBase {
     @Override
     public double eval(Env env) {
       if (this.kids().size() != 1)
-        throw new EvalerError(STR."\{this} params count not match 😡");
+        throw new EvalerError(() -> STR."\{this} params count not match 😡");
       return switch (this.value) {
         case Not -> this.kids().getFirst().eval(env) == 0 ? 1 : 0;
-        default -> throw new EvalerError(STR."\{this} is not a prefix-operator 😡");
+        default -> throw new EvalerError(() -> STR."\{this} is not a prefix-operator 😡");
       };
     }
 
@@ -210,16 +271,21 @@ public sealed interface Tree permits Tree.TreeBase {
       return result;
     }
 
-    private static Double toBool(double v) {
-      return (double) (v == 0 ? 0 : 1);
+    private static double toBool(double v) {
+      return v == 0 ? 0 : 1;
     }
 
     @Override
     public double eval(Env env) {
       if (this.kids().size() != 2)
-        throw new EvalerError(STR."\{this} params count not match 😡");
+        throw new EvalerError(() -> STR."\{this} params count not match 😡");
       var iterator = this.kids().iterator();
       var lhs = iterator.next().eval(env);
+      // `&&` `||` 短路, 右侧只在需要时求值
+      if (this.value == Operator.And)
+        return lhs == 0 ? 0 : toBool(iterator.next().eval(env));
+      if (this.value == Operator.Or)
+        return lhs != 0 ? 1 : toBool(iterator.next().eval(env));
       var rhs = iterator.next().eval(env);
       return switch (this.value) {
         case Pow -> Math.pow(lhs, rhs);
@@ -228,15 +294,13 @@ public sealed interface Tree permits Tree.TreeBase {
         case Plus -> lhs + rhs;
         case Minus -> lhs - rhs;
         case Mod -> lhs % rhs;
-        case And -> toBool(lhs).intValue() & toBool(rhs).intValue();
-        case Or -> toBool(lhs).intValue() | toBool(rhs).intValue();
         case Lt -> lhs < rhs ? 1 : 0;
         case Le -> lhs <= rhs ? 1 : 0;
         case Gt -> lhs > rhs ? 1 : 0;
         case Ge -> lhs >= rhs ? 1 : 0;
         case Eq -> lhs == rhs ? 1 : 0;
         case Ne -> lhs != rhs ? 1 : 0;
-        default -> throw new EvalerError(STR."\{this} is not a infix-operator 😡");
+        default -> throw new EvalerError(() -> STR."\{this} is not a infix-operator 😡");
       };
     }
 
@@ -270,7 +334,7 @@ public sealed interface Tree permits Tree.TreeBase {
 
     @Override
     public double eval(Env env) {
-      throw new EvalerError(STR."\{this} is not a post-operator 😡");
+      throw new EvalerError(() -> STR."\{this} is not a post-operator 😡");
     }
 
     @Override
@@ -296,7 +360,7 @@ public sealed interface Tree permits Tree.TreeBase {
     @Override
     public double eval(Env env) {
       if (this.kids().size() != 1)
-        throw new EvalerError(STR."\{this} params count not match 😡");
+        throw new EvalerError(() -> STR."\{this} params count not match 😡");
       return this.kids().getFirst().eval(env);
     }
   }
@@ -0,0 +1,325 @@
+package lost.calc.arena;
+
+import lost.calc.api.Env;
+import lost.calc.api.Operator;
+import lost.calc.api.Token.Slice;
+import lost.calc.api.Tree;
+import lost.calc.api.Tree.*;
+import lost.calc.error.EvalerError;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 紧凑, 不可变的表达式存储: 多个 {@link Tree} 的节点按先序存放在一组基本类型数组中
+ * <p>
+ * 第 i 个节点由 kind / operand / size / slice 描述:
+ * <ul>
+ *   <li>operand: 数字为常量池下标, 变量与函数为标识符下标, 运算符为 ordinal</li>
+ *   <li>size: 子树节点数 (含自身), 第一个子节点为 i + 1, 下一个兄弟为 kid + size[kid]</li>
+ *   <li>slice: start 与 end 压缩在一个 long 中</li>
+ * </ul>
+ * 常量与标识符在整个 arena 内去重, {@link ParTree} 被省略. 与 {@link lost.calc.link.Linker} 一样,
+ * 子节点个数不对与后缀运算符在加入时抛出 {@link EvalerError}; 变量与函数在求值时从 env 查找.
+ * 可直接求值, 可被多个线程共享
+ */
+public final class Arena {
+  static final byte NUMBER = 0;
+  static final byte VAR = 1;
+  static final byte CALL = 2;
+  static final byte IF = 3;
+  static final byte PREFIX = 4;
+  static final byte INFIX = 5;
+
+  private static final Operator[] OPERATORS = Operator.values();
+
+  private final byte[] kinds;
+  private final int[] operands;
+  private final int[] sizes;
+  private final long[] slices;
+  private final double[] numbers;
+  private final String[] idents;
+  private final int[] roots;
+
+  private Arena(Builder b) {
+    this.kinds = Arrays.copyOf(b.kinds, b.count);
+    this.operands = Arrays.copyOf(b.operands, b.count);
+    this.sizes = Arrays.copyOf(b.sizes, b.count);
+    this.slices = Arrays.copyOf(b.slices, b.count);
+    this.numbers = Arrays.copyOf(b.numbers, b.numberCount);
+    this.idents = new String[b.idents.size()];
+    for (var e : b.idents.entrySet()) {
+      this.idents[e.getValue()] = e.getKey();
+    }
+    this.roots = Arrays.copyOf(b.roots, b.rootCount);
+  }
+
+  public static Builder builder() {
+    return new Builder();
+  }
+
+  /**
+   * 公式个数
+   */
+  public int size() {
+    return this.roots.length;
+  }
+
+  public int nodeCount() {
+    return this.kinds.length;
+  }
+
+  public int numberCount() {
+    return this.numbers.length;
+  }
+
+  public int identCount() {
+    return this.idents.length;
+  }
+
+  public String ident(int i) {
+    return this.idents[i];
+  }
+
+  public Slice slice(int node) {
+    long s = this.slices[node];
+    return new Slice((int) (s >>> 32), (int) s);
+  }
+
+  /**
+   * 第 formula 个公式的根节点
+   */
+  public int root(int formula) {
+    return this.roots[formula];
+  }
+
+  /**
+   * 数组本身占用的字节数, 不含数组对象头与标识符字符串
+   */
+  public long bytes() {
+    return (long) this.kinds.length * (Byte.BYTES + Integer.BYTES * 2 + Long.BYTES)
+           + (long) this.numbers.length * Double.BYTES
+           + (long) this.idents.length * Integer.BYTES
+           + (long) this.roots.length * Integer.BYTES;
+  }
+
+  public double eval(int formula,
+                     Env env) {
+    return evalNode(this.roots[formula], env);
+  }
+
+  private double evalNode(int node,
+                          Env env) {
+    int operand = this.operands[node];
+    return switch (this.kinds[node]) {
+      case NUMBER -> this.numbers[operand];
+      case VAR -> {
+        var name = this.idents[operand];
+        if (env.hasVar(name)) yield env.getVar(name);
+        throw new EvalerError(() -> STR."Var(\{name}) \{slice(node)} not found from env 😡");
+      }
+      case CALL -> call(node, env);
+      case IF -> {
+        int cond = node + 1;
+        int then = cond + this.sizes[cond];
+        int otherwise = then + this.sizes[then];
+        yield evalNode(cond, env) != 0 ? evalNode(then, env) : evalNode(otherwise, env);
+      }
+      case PREFIX -> OPERATORS[operand].prefix(evalNode(node + 1, env));
+      case INFIX -> {
+        var op = OPERATORS[operand];
+        int lhs = node + 1;
+        int rhs = lhs + this.sizes[lhs];
+        double l = evalNode(lhs, env);
+        // `&&` `||` 短路
+        if (op == Operator.And) yield l == 0 ? 0 : evalNode(rhs, env) == 0 ? 0 : 1;
+        if (op == Operator.Or) yield l != 0 ? 1 : evalNode(rhs, env) == 0 ? 0 : 1;
+        yield op.infix(l, evalNode(rhs, env));
+      }
+      default -> throw new AssertionError(STR."unknown arena node kind \{this.kinds[node]} but a BUG 😡");
+    };
+  }
+
+  private double call(int node,
+                      Env env) {
+    var name = this.idents[this.operands[node]];
+    var fn = env.findFn(name);
+    if (fn == null)
+      throw new EvalerError(() -> STR."Call(\{name}) \{slice(node)} not found from env 😡");
+    int end = node + this.sizes[node];
+    int arity = 0;
+    for (int kid = node + 1; kid < end; kid += this.sizes[kid]) {
+      arity++;
+    }
+    if (arity != fn.paramCount())
+      throw new EvalerError(() -> STR."Call(\{name}) \{slice(node)} params count not match 😡");
+    // 与 CallTree 一致: 0 - 4 个参数不分配数组, 纯函数经由 memo 缓存
+    var memo = fn.pure() ? env.memo() : null;
+    int a = node + 1;
+    if (arity == 0) return memo != null ? memo.call0(fn) : fn.call0();
+    double x = evalNode(a, env);
+    if (arity == 1) return memo != null ? memo.call1(fn, x) : fn.call1(x);
+    int b = a + this.sizes[a];
+    double y = evalNode(b, env);
+    if (arity == 2) return memo != null ? memo.call2(fn, x, y) : fn.call2(x, y);
+    int c = b + this.sizes[b];
+    double z = evalNode(c, env);
+    if (arity == 3) return memo != null ? memo.call3(fn, x, y, z) : fn.call3(x, y, z);
+    int d = c + this.sizes[c];
+    double w = evalNode(d, env);
+    if (arity == 4) return memo != null ? memo.call4(fn, x, y, z, w) : fn.call4(x, y, z, w);
+    var params = new double[arity];
+    params[0] = x;
+    params[1] = y;
+    params[2] = z;
+    params[3] = w;
+    int i = 4;
+    for (int kid = d + this.sizes[d]; kid < end; kid += this.sizes[kid]) {
+      params[i++] = evalNode(kid, env);
+    }
+    return memo != null ? memo.call(fn, params) : fn.call(params);
+  }
+
+  /**
+   * 还原为 {@link Tree}, 根节点为 {@link ParTree}, 与解析器的输出形式一致
+   */
+  public Tree tree(int formula) {
+    int root = this.roots[formula];
+    var result = new ParTree(slice(root));
+    result.kids().addLast(toTree(root));
+    result.markCompleted();
+    return result;
+  }
+
+  private Tree toTree(int node) {
+    int operand = this.operands[node];
+    var slice = slice(node);
+    TreeBase tree = switch (this.kinds[node]) {
+      case NUMBER -> new NumberTree(this.numbers[operand], slice);
+      case VAR -> new VarTree(this.idents[operand], slice);
+      case CALL, IF -> new CallTree(this.idents[operand], slice);
+      case PREFIX -> new PrefixTree(OPERATORS[operand], slice);
+      case INFIX -> new InfixTree(OPERATORS[operand], slice);
+      default -> throw new AssertionError(STR."unknown arena node kind \{this.kinds[node]} but a BUG 😡");
+    };
+    int end = node + this.sizes[node];
+    for (int kid = node + 1; kid < end; kid += this.sizes[kid]) {
+      tree.kids().addLast(toTree(kid));
+    }
+    tree.markCompleted();
+    return tree;
+  }
+
+  /**
+   * 逐个加入 tree, 最后 {@link #build()}
+   */
+  public static final class Builder {
+    private byte[] kinds = new byte[64];
+    private int[] operands = new int[64];
+    private int[] sizes = new int[64];
+    private long[] slices = new long[64];
+    private int count;
+    private double[] numbers = new double[16];
+    private int numberCount;
+    private final Map<Long, Integer> numberIndex = new HashMap<>();
+    private final Map<String, Integer> idents = new HashMap<>();
+    private int[] roots = new int[16];
+    private int rootCount;
+
+    private Builder() {
+    }
+
+    /**
+     * @return 公式下标
+     */
+    public int add(Tree tree) {
+      int root = this.count;
+      try {
+        addNode(tree);
+      } catch (RuntimeException e) {
+        this.count = root;
+        throw e;
+      }
+      if (this.rootCount == this.roots.length) this.roots = Arrays.copyOf(this.roots, this.rootCount * 2);
+      this.roots[this.rootCount] = root;
+      return this.rootCount++;
+    }
+
+    public int size() {
+      return this.rootCount;
+    }
+
+    public Arena build() {
+      return new Arena(this);
+    }
+
+    private void addNode(Tree tree) {
+      while (tree instanceof ParTree p) {
+        if (p.kids().size() != 1)
+          throw new EvalerError(() -> STR."\{p} params count not match 😡");
+        tree = p.kids().getFirst();
+      }
+      int node = node(tree);
+      for (Tree kid : tree.kids()) {
+        addNode(kid);
+      }
+      this.sizes[node] = this.count - node;
+    }
+
+    private int node(Tree tree) {
+      if (this.count == this.kinds.length) {
+        int n = this.count * 2;
+        this.kinds = Arrays.copyOf(this.kinds, n);
+        this.operands = Arrays.copyOf(this.operands, n);
+        this.sizes = Arrays.copyOf(this.sizes, n);
+        this.slices = Arrays.copyOf(this.slices, n);
+      }
+      int node = this.count++;
+      var slice = tree.slice();
+      this.slices[node] = (long) slice.start() << 32 | slice.end() & 0xFFFFFFFFL;
+      switch (tree) {
+        case NumberTree n -> set(node, NUMBER, number(n.value));
+        case VarTree v -> set(node, VAR, ident(v.value));
+        case CallTree c -> {
+          if (c.isIf() && c.kids().size() != 3)
+            throw new EvalerError(() -> STR."\{c} params count not match 😡");
+          set(node, c.isIf() ? IF : CALL, ident(c.value));
+        }
+        case PrefixTree p -> {
+          if (p.kids().size() != 1)
+            throw new EvalerError(() -> STR."\{p} params count not match 😡");
+          set(node, PREFIX, p.value.ordinal());
+        }
+        case InfixTree i -> {
+          if (i.kids().size() != 2)
+            throw new EvalerError(() -> STR."\{i} params count not match 😡");
+          set(node, INFIX, i.value.ordinal());
+        }
+        case PostfixTree p -> throw new EvalerError(() -> STR."\{p} is not a post-operator 😡");
+        case ParTree p -> throw new AssertionError(STR."\{p} should be skipped but a BUG 😡");
+      }
+      return node;
+    }
+
+    private void set(int node,
+                     byte kind,
+                     int operand) {
+      this.kinds[node] = kind;
+      this.operands[node] = operand;
+    }
+
+    private int number(double value) {
+      return this.numberIndex.computeIfAbsent(Double.doubleToRawLongBits(value), k -> {
+        if (this.numberCount == this.numbers.length)
+          this.numbers = Arrays.copyOf(this.numbers, this.numberCount * 2);
+        this.numbers[this.numberCount] = value;
+        return this.numberCount++;
+      });
+    }
+
+    private int ident(String name) {
+      return this.idents.computeIfAbsent(name, k -> this.idents.size());
+    }
+  }
+}
@@ -0,0 +1,118 @@
+package lost.calc.arena;
+
+import lost.calc.api.Tree;
+import lost.calc.api.Tree.*;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 估算同一组公式以 {@link Tree} 与 {@link Arena} 保存时的堆占用
+ * <p>
+ * 按 64 位 JVM, 压缩指针, 8 字节对齐计算对象大小; tree 的每个节点计入节点对象, {@link lost.calc.api.Token.Slice},
+ * {@code ArrayDeque} 及其底层数组, 变量名 / 函数名字符串按对象去重计入
+ *
+ * @param formulas   公式个数
+ * @param treeNodes  tree 节点数
+ * @param treeBytes  tree 占用字节数
+ * @param arenaNodes arena 节点数, 不含被省略的 {@link ParTree}
+ * @param arenaBytes arena 占用字节数
+ */
+public record Footprint(int formulas, long treeNodes, long treeBytes, long arenaNodes, long arenaBytes) {
+  private static final int HEADER = 12;
+  private static final int ARRAY_HEADER = 16;
+  private static final int REF = 4;
+  /**
+   * {@code new ArrayDeque()} 底层数组的初始长度
+   */
+  private static final int DEQUE_CAPACITY = 17;
+
+  /**
+   * 构建 arena 并估算两者的占用
+   */
+  public static Footprint measure(List<? extends Tree> trees) {
+    var builder = Arena.builder();
+    trees.forEach(builder::add);
+    return measure(trees, builder.build());
+  }
+
+  /**
+   * @param arena 由 trees 构建的 arena
+   */
+  public static Footprint measure(List<? extends Tree> trees,
+                                  Arena arena) {
+    var strings = Collections.newSetFromMap(new IdentityHashMap<String, Boolean>());
+    long[] acc = new long[2];
+    for (Tree tree : trees) {
+      walk(tree, strings, acc);
+    }
+    long arenaBytes = arena.bytes() + 7L * ARRAY_HEADER;
+    for (int i = 0; i < arena.identCount(); i++) {
+      arenaBytes += string(arena.ident(i));
+    }
+    return new Footprint(trees.size(), acc[0], acc[1], arena.nodeCount(), arenaBytes);
+  }
+
+  private static void walk(Tree tree,
+                           Set<String> strings,
+                           long[] acc) {
+    acc[0]++;
+    // kids, completed, slice
+    int fields = REF + 1 + REF;
+    fields += switch (tree) {
+      case NumberTree n -> Double.BYTES;
+      case VarTree v -> REF;
+      case CallTree c -> REF + 1;
+      case ParTree p -> 0;
+      case PrefixTree p -> REF;
+      case InfixTree i -> REF;
+      case PostfixTree p -> REF;
+    };
+    long bytes = align(HEADER + fields);
+    // Slice(int, int)
+    bytes += align(HEADER + 2 * Integer.BYTES);
+    // ArrayDeque(elements, head, tail) 与底层数组
+    bytes += align(HEADER + REF + 2 * Integer.BYTES);
+    int kids = tree.kids().size();
+    bytes += align(ARRAY_HEADER + (long) REF * (kids < DEQUE_CAPACITY ? DEQUE_CAPACITY : kids + (kids >> 1)));
+    if (tree instanceof VarTree v && strings.add(v.value)) bytes += string(v.value);
+    if (tree instanceof CallTree c && strings.add(c.value)) bytes += string(c.value);
+    acc[1] += bytes;
+    for (Tree kid : tree.kids()) {
+      walk(kid, strings, acc);
+    }
+  }
+
+  /**
+   * Latin-1 字符串: String 对象与 byte[]
+   */
+  private static long string(String s) {
+    return align(HEADER + REF + Integer.BYTES + 4) + align(ARRAY_HEADER + s.length());
+  }
+
+  private static long align(long bytes) {
+    return (bytes + 7) & ~7L;
+  }
+
+  public double treeBytesPerNode() {
+    return this.treeNodes == 0 ? 0 : (double) this.treeBytes / this.treeNodes;
+  }
+
+  /**
+   * arena 占用除以 tree 节点数, 便于与 {@link #treeBytesPerNode()} 对比
+   */
+  public double arenaBytesPerNode() {
+    return this.treeNodes == 0 ? 0 : (double) this.arenaBytes / this.treeNodes;
+  }
+
+  public String report() {
+    var sb = new StringBuilder();
+    sb.append(STR."formulas: \{this.formulas}\n");
+    sb.append(STR."tree:  \{this.treeNodes} nodes, \{this.treeBytes} bytes, \{String.format("%.1f", treeBytesPerNode())} bytes/node\n");
+    sb.append(STR."arena: \{this.arenaNodes} nodes, \{this.arenaBytes} bytes, \{String.format("%.1f", arenaBytesPerNode())} bytes/node\n");
+    sb.append(STR."ratio: \{String.format("%.1f", (double) this.treeBytes / Math.max(1, this.arenaBytes))}x\n");
+    return sb.toString();
+  }
+}
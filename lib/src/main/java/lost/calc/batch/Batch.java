@@ -0,0 +1,251 @@
+package lost.calc.batch;
+
+import lost.calc.api.Env;
+import lost.calc.api.Tree;
+import lost.calc.api.Tree.*;
+import lost.calc.error.EvalerError;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * 按列批量求值
+ * <p>
+ * 行按 {@link #CHUNK} 分块, 每块对 tree 做一次遍历, 每个运算符对整块执行一个紧凑循环,
+ * 中间结果使用块大小的复用缓冲区
+ * <p>
+ * 列式求值不短路: {@code &&} / {@code ||} 两侧与 {@code if} 的两个分支都会对整块求值, 再按条件选取,
+ * 结果与逐行求值一致, 但分支中的函数会对所有行调用
+ */
+public final class Batch {
+  static final int CHUNK = 1024;
+
+  private final Tree tree;
+  private final Kernels kernels;
+
+  private Batch(Tree tree,
+                Kernels kernels) {
+    this.tree = tree;
+    this.kernels = kernels;
+  }
+
+  /**
+   * 可用时使用 jdk.incubator.vector 内核
+   */
+  public static Batch of(Tree tree) {
+    return new Batch(tree, Kernels.best());
+  }
+
+  /**
+   * @param vector 是否使用 jdk.incubator.vector 内核, 需要运行时开启该模块
+   */
+  public static Batch of(Tree tree,
+                         boolean vector) {
+    return new Batch(tree, vector ? Kernels.best() : Kernels.SCALAR);
+  }
+
+  /**
+   * 求值, 变量优先取自 columns, 否则作为标量取自 env
+   *
+   * @param columns 列数据, 长度必须一致
+   * @param env     标量变量与函数
+   * @return 结果列
+   */
+  public double[] eval(Map<String, double[]> columns,
+                       Env env) {
+    int rows = -1;
+    for (var e : columns.entrySet()) {
+      if (rows >= 0 && e.getValue().length != rows)
+        throw new EvalerError(STR."column `\{e.getKey()}` length \{e.getValue().length} != \{rows} 😡");
+      rows = e.getValue().length;
+    }
+    if (rows < 0)
+      throw new EvalerError("columns must not be empty 😡");
+    return eval(columns, env, rows);
+  }
+
+  /**
+   * @param rows 行数, 用于没有列的表达式
+   */
+  public double[] eval(Map<String, double[]> columns,
+                       Env env,
+                       int rows) {
+    var result = new double[rows];
+    eval(columns, env, 0, rows, result);
+    return result;
+  }
+
+  /**
+   * 只求值 [from, to) 行, 结果写入 result[0, to - from)
+   */
+  void eval(Map<String, double[]> columns,
+            Env env,
+            int from,
+            int to,
+            double[] result) {
+    var run = new Run(columns, env);
+    for (int start = from; start < to; start += CHUNK) {
+      run.start = start;
+      run.len = Math.min(CHUNK, to - start);
+      var col = run.eval(this.tree);
+      System.arraycopy(col.data, col.off, result, start - from, run.len);
+      run.release(col);
+    }
+  }
+
+  /**
+   * 一段列数据
+   *
+   * @param data  数组
+   * @param off   起始下标
+   * @param owned 是否为可复用缓冲区, 否则是输入列
+   */
+  private record Col(double[] data, int off, boolean owned) {
+  }
+
+  private final class Run {
+    final Map<String, double[]> columns;
+    final Env env;
+    final ArrayDeque<double[]> free = new ArrayDeque<>();
+    int start;
+    int len;
+
+    Run(Map<String, double[]> columns,
+        Env env) {
+      this.columns = columns;
+      this.env = env;
+    }
+
+    Col take() {
+      var buf = free.poll();
+      return new Col(buf != null ? buf : new double[CHUNK], 0, true);
+    }
+
+    void release(Col col) {
+      if (col.owned) free.push(col.data);
+    }
+
+    Col fill(double v) {
+      var col = take();
+      Arrays.fill(col.data, 0, len, v);
+      return col;
+    }
+
+    Col eval(Tree tree) {
+      return switch (tree) {
+        case NumberTree n -> fill(n.value);
+        case VarTree v -> {
+          var column = columns.get(v.value);
+          if (column != null) yield new Col(column, start, false);
+          if (env.hasVar(v.value)) yield fill(env.getVar(v.value));
+          throw new EvalerError(STR."\{v} not found from columns or env 😡");
+        }
+        case ParTree p -> {
+          if (p.kids().size() != 1)
+            throw new EvalerError(STR."\{p} params count not match 😡");
+          yield eval(p.kids().getFirst());
+        }
+        case PrefixTree p -> {
+          if (p.kids().size() != 1)
+            throw new EvalerError(STR."\{p} params count not match 😡");
+          var in = eval(p.kids().getFirst());
+          var out = in.owned ? in : take();
+          kernels.prefix(p.value, in.data, in.off, out.data, out.off, len);
+          yield out;
+        }
+        case InfixTree i -> {
+          if (i.kids().size() != 2)
+            throw new EvalerError(STR."\{i} params count not match 😡");
+          var lhs = eval(i.kids().getFirst());
+          var rhs = eval(i.kids().getLast());
+          var out = lhs.owned ? lhs : rhs.owned ? rhs : take();
+          kernels.infix(i.value, lhs.data, lhs.off, rhs.data, rhs.off, out.data, out.off, len);
+          if (out != lhs) release(lhs);
+          if (out != rhs) release(rhs);
+          yield out;
+        }
+        case CallTree c -> call(c);
+        case PostfixTree p -> throw new EvalerError(STR."\{p} is not a post-operator 😡");
+      };
+    }
+
+    Col call(CallTree c) {
+      if (c.isIf()) return choose(c);
+      var fn = env.findFn(c.value);
+      if (fn == null)
+        throw new EvalerError(STR."\{c} not found from env 😡");
+      var pCount = fn.paramCount();
+      if (c.kids().size() != pCount)
+        throw new EvalerError(STR."\{c} params count not match 😡");
+      var args = new Col[pCount];
+      int k = 0;
+      for (Tree kid : c.kids()) {
+        args[k++] = eval(kid);
+      }
+      var out = take();
+      var o = out.data;
+      switch (pCount) {
+        case 0 -> {
+          for (int r = 0; r < len; r++) o[r] = fn.call0();
+        }
+        case 1 -> {
+          var a = args[0];
+          for (int r = 0; r < len; r++) o[r] = fn.call1(a.data[a.off + r]);
+        }
+        case 2 -> {
+          var a = args[0];
+          var b = args[1];
+          for (int r = 0; r < len; r++) o[r] = fn.call2(a.data[a.off + r], b.data[b.off + r]);
+        }
+        case 3 -> {
+          var a = args[0];
+          var b = args[1];
+          var c3 = args[2];
+          for (int r = 0; r < len; r++)
+            o[r] = fn.call3(a.data[a.off + r], b.data[b.off + r], c3.data[c3.off + r]);
+        }
+        case 4 -> {
+          var a = args[0];
+          var b = args[1];
+          var c3 = args[2];
+          var d = args[3];
+          for (int r = 0; r < len; r++)
+            o[r] = fn.call4(a.data[a.off + r], b.data[b.off + r], c3.data[c3.off + r], d.data[d.off + r]);
+        }
+        default -> {
+          for (int r = 0; r < len; r++) {
+            var params = new double[pCount];
+            for (int j = 0; j < pCount; j++) {
+              params[j] = args[j].data[args[j].off + r];
+            }
+            o[r] = fn.call(params);
+          }
+        }
+      }
+      for (Col arg : args) release(arg);
+      return out;
+    }
+
+    /**
+     * if(cond, then, otherwise): 两个分支都求值, 按 cond 逐行选取
+     */
+    Col choose(CallTree c) {
+      if (c.kids().size() != 3)
+        throw new EvalerError(STR."\{c} params count not match 😡");
+      var kids = c.kids().iterator();
+      var cond = eval(kids.next());
+      var then = eval(kids.next());
+      var otherwise = eval(kids.next());
+      var out = cond.owned ? cond : then.owned ? then : otherwise.owned ? otherwise : take();
+      var o = out.data;
+      for (int r = 0; r < len; r++) {
+        o[out.off + r] = cond.data[cond.off + r] != 0 ? then.data[then.off + r] : otherwise.data[otherwise.off + r];
+      }
+      if (out != cond) release(cond);
+      if (out != then) release(then);
+      if (out != otherwise) release(otherwise);
+      return out;
+    }
+  }
+}
@@ -0,0 +1,320 @@
+package lost.calc.batch;
+
+import lost.calc.api.Env;
+import lost.calc.api.Operator;
+import lost.calc.api.Tree;
+import lost.calc.api.Tree.*;
+import lost.calc.error.EvalerError;
+
+import java.util.BitSet;
+import java.util.Map;
+
+/**
+ * 按 {@link ZoneMap} 跳过整块的过滤
+ * <p>
+ * 对每块用区间运算求出表达式的取值范围, 判断该块是否一定 / 一定不 / 可能满足 (非 0),
+ * 只有可能满足的块经由 {@link Batch} 逐行求值. 区间是保守的: 判为 ALWAYS / NEVER 的块逐行求值的结果必然相同,
+ * 无法判断的运算 (非纯函数, 除数含 0, 非单调的幂等) 一律视为任意值
+ * <p>
+ * 跳过的块不求值, 其中的函数不会被调用
+ */
+public final class Filter {
+  public enum Match {
+    ALWAYS,
+    NEVER,
+    MAYBE
+  }
+
+  private final Tree tree;
+  private final Batch batch;
+
+  private Filter(Tree tree,
+                 Batch batch) {
+    this.tree = tree;
+    this.batch = batch;
+  }
+
+  public static Filter of(Tree tree) {
+    return new Filter(tree, Batch.of(tree));
+  }
+
+  /**
+   * @param vector 逐行求值时是否使用 jdk.incubator.vector 内核
+   */
+  public static Filter of(Tree tree,
+                          boolean vector) {
+    return new Filter(tree, Batch.of(tree, vector));
+  }
+
+  /**
+   * 只根据统计判断第 block 块, 变量优先取自 zones, 否则作为标量取自 env
+   */
+  public Match match(ZoneMap zones,
+                     int block,
+                     Env env) {
+    return new Ranges(zones, null, block, env).range(this.tree).truth();
+  }
+
+  /**
+   * 选出表达式非 0 的行
+   *
+   * @param columns 列数据, 必须是构建 zones 时的数据
+   * @param zones   columns 的统计
+   * @param env     标量变量与函数
+   */
+  public Selection select(Map<String, double[]> columns,
+                          ZoneMap zones,
+                          Env env) {
+    for (var e : columns.entrySet()) {
+      if (e.getValue().length != zones.rows())
+        throw new EvalerError(STR."column `\{e.getKey()}` length \{e.getValue().length} != \{zones.rows()} 😡");
+    }
+    int rows = zones.rows();
+    int blockSize = zones.blockSize();
+    var bits = new BitSet(rows);
+    var buf = new double[blockSize];
+    int always = 0;
+    int never = 0;
+    int maybe = 0;
+    for (int block = 0; block < zones.blocks(); block++) {
+      int from = block * blockSize;
+      int to = Math.min(rows, from + blockSize);
+      switch (new Ranges(zones, columns, block, env).range(this.tree).truth()) {
+        case ALWAYS -> {
+          bits.set(from, to);
+          always++;
+        }
+        case NEVER -> never++;
+        case MAYBE -> {
+          this.batch.eval(columns, env, from, to, buf);
+          for (int r = from; r < to; r++) {
+            if (buf[r - from] != 0) bits.set(r);
+          }
+          maybe++;
+        }
+      }
+    }
+    return new Selection(bits, always, never, maybe);
+  }
+
+  /**
+   * 取值区间 [lo, hi], lo > hi 时为空
+   *
+   * @param nan 是否可能为 NaN
+   */
+  private record Range(double lo, double hi, boolean nan) {
+    static final Range ANY = new Range(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, true);
+    static final Range NAN = new Range(Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, true);
+    static final Range TRUE = new Range(1, 1, false);
+    static final Range FALSE = new Range(0, 0, false);
+    static final Range BOOL = new Range(0, 1, false);
+
+    static Range point(double v) {
+      return v != v ? NAN : new Range(v, v, false);
+    }
+
+    static Range of(Match m) {
+      return switch (m) {
+        case ALWAYS -> TRUE;
+        case NEVER -> FALSE;
+        case MAYBE -> BOOL;
+      };
+    }
+
+    boolean isPoint() {
+      return this.lo == this.hi && !this.nan;
+    }
+
+    boolean isFinite() {
+      return Double.isFinite(this.lo) && Double.isFinite(this.hi);
+    }
+
+    /**
+     * NaN 视为非 0
+     */
+    Match truth() {
+      boolean zero = this.lo <= 0 && 0 <= this.hi;
+      boolean nonZero = this.nan || this.lo != 0 || this.hi != 0;
+      if (!zero) return Match.ALWAYS;
+      if (!nonZero) return Match.NEVER;
+      return Match.MAYBE;
+    }
+
+    Range hull(Range o) {
+      return new Range(Math.min(this.lo, o.lo), Math.max(this.hi, o.hi), this.nan || o.nan);
+    }
+  }
+
+  private record Ranges(ZoneMap zones,
+                        Map<String, double[]> columns,
+                        int block,
+                        Env env) {
+
+    Range range(Tree tree) {
+      return switch (tree) {
+        case NumberTree n -> Range.point(n.value);
+        case VarTree v -> variable(v);
+        case ParTree p -> {
+          if (p.kids().size() != 1)
+            throw new EvalerError(STR."\{p} params count not match 😡");
+          yield range(p.kids().getFirst());
+        }
+        case PrefixTree p -> {
+          if (p.kids().size() != 1)
+            throw new EvalerError(STR."\{p} params count not match 😡");
+          if (p.value != Operator.Not)
+            throw new EvalerError(STR."\{p} is not a prefix-operator 😡");
+          yield Range.of(not(range(p.kids().getFirst()).truth()));
+        }
+        case InfixTree i -> {
+          if (i.kids().size() != 2)
+            throw new EvalerError(STR."\{i} params count not match 😡");
+          yield infix(i.value, range(i.kids().getFirst()), range(i.kids().getLast()));
+        }
+        case CallTree c -> call(c);
+        case PostfixTree p -> throw new EvalerError(STR."\{p} is not a post-operator 😡");
+      };
+    }
+
+    Range variable(VarTree v) {
+      if (this.zones.hasColumn(v.value)) {
+        double min = this.zones.min(v.value, this.block);
+        // 整块都是 NaN
+        if (min != min) return Range.NAN;
+        return new Range(min, this.zones.max(v.value, this.block), this.zones.hasNaN(v.value, this.block));
+      }
+      if (this.columns != null && this.columns.containsKey(v.value)) return Range.ANY;
+      if (this.env.hasVar(v.value)) return Range.point(this.env.getVar(v.value));
+      throw new EvalerError(STR."\{v} not found from columns or env 😡");
+    }
+
+    Range call(CallTree c) {
+      if (c.isIf()) {
+        if (c.kids().size() != 3)
+          throw new EvalerError(STR."\{c} params count not match 😡");
+        var kids = c.kids().iterator();
+        var cond = range(kids.next()).truth();
+        var then = kids.next();
+        var otherwise = kids.next();
+        return switch (cond) {
+          case ALWAYS -> range(then);
+          case NEVER -> range(otherwise);
+          case MAYBE -> range(then).hull(range(otherwise));
+        };
+      }
+      var fn = this.env.findFn(c.value);
+      if (fn == null)
+        throw new EvalerError(STR."\{c} not found from env 😡");
+      if (c.kids().size() != fn.paramCount())
+        throw new EvalerError(STR."\{c} params count not match 😡");
+      if (!fn.pure()) return Range.ANY;
+      // 纯函数在参数都是常量时直接调用, 否则不知道单调性
+      var params = new double[fn.paramCount()];
+      int k = 0;
+      for (Tree kid : c.kids()) {
+        var r = range(kid);
+        if (!r.isPoint()) return Range.ANY;
+        params[k++] = r.lo;
+      }
+      return Range.point(fn.call(params));
+    }
+
+    static Match not(Match m) {
+      return switch (m) {
+        case ALWAYS -> Match.NEVER;
+        case NEVER -> Match.ALWAYS;
+        case MAYBE -> Match.MAYBE;
+      };
+    }
+
+    static Range infix(Operator op,
+                       Range a,
+                       Range b) {
+      return switch (op) {
+        case And -> Range.of(and(a.truth(), b.truth()));
+        case Or -> Range.of(not(and(not(a.truth()), not(b.truth()))));
+        case Lt -> Range.of(less(a, b, false));
+        case Le -> Range.of(less(a, b, true));
+        case Gt -> Range.of(less(b, a, false));
+        case Ge -> Range.of(less(b, a, true));
+        case Eq -> Range.of(equal(a, b));
+        case Ne -> Range.of(not(equal(a, b)));
+        default -> arithmetic(op, a, b);
+      };
+    }
+
+    static Match and(Match a,
+                     Match b) {
+      if (a == Match.NEVER || b == Match.NEVER) return Match.NEVER;
+      if (a == Match.ALWAYS && b == Match.ALWAYS) return Match.ALWAYS;
+      return Match.MAYBE;
+    }
+
+    /**
+     * a < b 或 a <= b, 与 NaN 比较总是 false
+     */
+    static Match less(Range a,
+                      Range b,
+                      boolean orEqual) {
+      boolean nan = a.nan || b.nan;
+      if (orEqual) {
+        if (!nan && a.hi <= b.lo) return Match.ALWAYS;
+        if (a.lo > b.hi) return Match.NEVER;
+      } else {
+        if (!nan && a.hi < b.lo) return Match.ALWAYS;
+        if (a.lo >= b.hi) return Match.NEVER;
+      }
+      return Match.MAYBE;
+    }
+
+    static Match equal(Range a,
+                       Range b) {
+      if (a.isPoint() && b.isPoint() && a.lo == b.lo) return Match.ALWAYS;
+      if (a.hi < b.lo || b.hi < a.lo) return Match.NEVER;
+      return Match.MAYBE;
+    }
+
+    static Range arithmetic(Operator op,
+                            Range a,
+                            Range b) {
+      if (a.isPoint() && b.isPoint()) return Range.point(op.infix(a.lo, b.lo));
+      // 含无穷时 inf - inf, 0 * inf 等会产生 NaN, 不再细分
+      if (!a.isFinite() || !b.isFinite()) return Range.ANY;
+      boolean nan = a.nan || b.nan;
+      return switch (op) {
+        case Plus -> new Range(a.lo + b.lo, a.hi + b.hi, nan);
+        case Minus -> new Range(a.lo - b.hi, a.hi - b.lo, nan);
+        case Multi -> corners(op, a, b, nan);
+        // 除数不含 0 时在每个方向上单调
+        case Div -> (b.lo > 0 || b.hi < 0) ? corners(op, a, b, nan) : Range.ANY;
+        case Mod -> {
+          if (b.lo <= 0) yield Range.ANY;
+          if (a.lo >= 0) yield new Range(0, Math.min(a.hi, b.hi), nan);
+          if (a.hi <= 0) yield new Range(Math.max(a.lo, -b.hi), 0, nan);
+          yield new Range(-b.hi, b.hi, nan);
+        }
+        case Pow -> {
+          // 底数非负且指数为常量时单调; 负指数时 0 与 -0 的结果分别为 inf 与 -inf
+          if (a.lo < 0 || !b.isPoint()) yield Range.ANY;
+          double e = b.lo;
+          if (e < 0 && a.lo == 0) yield Range.ANY;
+          double lo = Math.pow(a.lo, e);
+          double hi = Math.pow(a.hi, e);
+          yield e >= 0 ? new Range(lo, hi, nan) : new Range(hi, lo, nan);
+        }
+        default -> throw new EvalerError(STR."\{op} is not a infix-operator 😡");
+      };
+    }
+
+    static Range corners(Operator op,
+                         Range a,
+                         Range b,
+                         boolean nan) {
+      double x = op.infix(a.lo, b.lo);
+      double y = op.infix(a.lo, b.hi);
+      double z = op.infix(a.hi, b.lo);
+      double w = op.infix(a.hi, b.hi);
+      return new Range(Math.min(Math.min(x, y), Math.min(z, w)), Math.max(Math.max(x, y), Math.max(z, w)), nan);
+    }
+  }
+}
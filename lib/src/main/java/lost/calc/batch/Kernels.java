@@ -0,0 +1,34 @@
+package lost.calc.batch;
+
+import lost.calc.api.Operator;
+
+/**
+ * 按列运算的内核, 每个运算符一个紧凑循环
+ * <p>
+ * out 可以与 lhs / rhs 是同一数组 (同一 offset), 每个下标先读后写
+ */
+interface Kernels {
+
+  void infix(Operator op,
+             double[] lhs, int lhsOff,
+             double[] rhs, int rhsOff,
+             double[] out, int outOff,
+             int len);
+
+  void prefix(Operator op,
+              double[] in, int inOff,
+              double[] out, int outOff,
+              int len);
+
+  Kernels SCALAR = new ScalarKernels();
+
+  /**
+   * 运行时存在 jdk.incubator.vector 模块时返回向量化内核, 否则返回 {@link #SCALAR}
+   */
+  static Kernels best() {
+    if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+      return VectorKernels.create();
+    }
+    return SCALAR;
+  }
+}
@@ -0,0 +1,73 @@
+package lost.calc.batch;
+
+import lost.calc.api.Operator;
+import lost.calc.error.EvalerError;
+
+final class ScalarKernels implements Kernels {
+
+  @Override
+  public void infix(Operator op,
+                    double[] a, int ao,
+                    double[] b, int bo,
+                    double[] out, int oo,
+                    int len) {
+    switch (op) {
+      case Pow -> {
+        for (int i = 0; i < len; i++) out[oo + i] = Math.pow(a[ao + i], b[bo + i]);
+      }
+      case Multi -> {
+        for (int i = 0; i < len; i++) out[oo + i] = a[ao + i] * b[bo + i];
+      }
+      case Div -> {
+        for (int i = 0; i < len; i++) out[oo + i] = a[ao + i] / b[bo + i];
+      }
+      case Plus -> {
+        for (int i = 0; i < len; i++) out[oo + i] = a[ao + i] + b[bo + i];
+      }
+      case Minus -> {
+        for (int i = 0; i < len; i++) out[oo + i] = a[ao + i] - b[bo + i];
+      }
+      case Mod -> {
+        for (int i = 0; i < len; i++) out[oo + i] = a[ao + i] % b[bo + i];
+      }
+      case And -> {
+        for (int i = 0; i < len; i++) out[oo + i] = a[ao + i] != 0 && b[bo + i] != 0 ? 1 : 0;
+      }
+      case Or -> {
+        for (int i = 0; i < len; i++) out[oo + i] = a[ao + i] != 0 || b[bo + i] != 0 ? 1 : 0;
+      }
+      case Lt -> {
+        for (int i = 0; i < len; i++) out[oo + i] = a[ao + i] < b[bo + i] ? 1 : 0;
+      }
+      case Le -> {
+        for (int i = 0; i < len; i++) out[oo + i] = a[ao + i] <= b[bo + i] ? 1 : 0;
+      }
+      case Gt -> {
+        for (int i = 0; i < len; i++) out[oo + i] = a[ao + i] > b[bo + i] ? 1 : 0;
+      }
+      case Ge -> {
+        for (int i = 0; i < len; i++) out[oo + i] = a[ao + i] >= b[bo + i] ? 1 : 0;
+      }
+      case Eq -> {
+        for (int i = 0; i < len; i++) out[oo + i] = a[ao + i] == b[bo + i] ? 1 : 0;
+      }
+      case Ne -> {
+        for (int i = 0; i < len; i++) out[oo + i] = a[ao + i] != b[bo + i] ? 1 : 0;
+      }
+      default -> throw new EvalerError(STR."\{op} is not a infix-operator 😡");
+    }
+  }
+
+  @Override
+  public void prefix(Operator op,
+                     double[] a, int ao,
+                     double[] out, int oo,
+                     int len) {
+    switch (op) {
+      case Not -> {
+        for (int i = 0; i < len; i++) out[oo + i] = a[ao + i] == 0 ? 1 : 0;
+      }
+      default -> throw new EvalerError(STR."\{op} is not a prefix-operator 😡");
+    }
+  }
+}
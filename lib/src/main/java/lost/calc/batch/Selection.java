@@ -0,0 +1,25 @@
+package lost.calc.batch;
+
+import java.util.BitSet;
+
+/**
+ * {@link Filter#select} 的结果
+ *
+ * @param rows   选中的行
+ * @param always 无需逐行求值, 整块选中的块数
+ * @param never  无需逐行求值, 整块跳过的块数
+ * @param maybe  逐行求值的块数
+ */
+public record Selection(BitSet rows, int always, int never, int maybe) {
+
+  /**
+   * 选中的行数
+   */
+  public int count() {
+    return this.rows.cardinality();
+  }
+
+  public int blocks() {
+    return this.always + this.never + this.maybe;
+  }
+}
@@ -0,0 +1,127 @@
+package lost.calc.batch;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+import lost.calc.api.Operator;
+
+/**
+ * jdk.incubator.vector 实现, 只向量化结果与标量逐位一致的运算符, Pow / Mod 交给 {@link ScalarKernels}
+ * <p>
+ * 只能经由 {@link Kernels#best()} 加载, 避免模块缺失时解析到 incubator 类
+ */
+final class VectorKernels implements Kernels {
+  private static final VectorSpecies<Double> S = DoubleVector.SPECIES_PREFERRED;
+  private static final DoubleVector ZERO = DoubleVector.zero(S);
+  private static final DoubleVector ONE = DoubleVector.broadcast(S, 1);
+
+  static Kernels create() {
+    return new VectorKernels();
+  }
+
+  private VectorKernels() {
+  }
+
+  @Override
+  public void infix(Operator op,
+                    double[] a, int ao,
+                    double[] b, int bo,
+                    double[] out, int oo,
+                    int len) {
+    int upper = S.loopBound(len);
+    int i = 0;
+    // 每个运算符单独一个循环, 使运算符在循环内为常量, 便于 C2 内联为 SIMD 指令
+    switch (op) {
+      case Multi -> {
+        for (; i < upper; i += S.length())
+          load(a, ao + i).mul(load(b, bo + i)).intoArray(out, oo + i);
+      }
+      case Div -> {
+        for (; i < upper; i += S.length())
+          load(a, ao + i).div(load(b, bo + i)).intoArray(out, oo + i);
+      }
+      case Plus -> {
+        for (; i < upper; i += S.length())
+          load(a, ao + i).add(load(b, bo + i)).intoArray(out, oo + i);
+      }
+      case Minus -> {
+        for (; i < upper; i += S.length())
+          load(a, ao + i).sub(load(b, bo + i)).intoArray(out, oo + i);
+      }
+      case And -> {
+        for (; i < upper; i += S.length())
+          bool(bool(load(a, ao + i)).and(bool(load(b, bo + i)))).intoArray(out, oo + i);
+      }
+      case Or -> {
+        for (; i < upper; i += S.length())
+          bool(bool(load(a, ao + i)).or(bool(load(b, bo + i)))).intoArray(out, oo + i);
+      }
+      case Lt -> {
+        for (; i < upper; i += S.length())
+          bool(load(a, ao + i).lt(load(b, bo + i))).intoArray(out, oo + i);
+      }
+      case Le -> {
+        for (; i < upper; i += S.length())
+          bool(load(a, ao + i).compare(VectorOperators.LE, load(b, bo + i))).intoArray(out, oo + i);
+      }
+      case Gt -> {
+        for (; i < upper; i += S.length())
+          bool(load(b, bo + i).lt(load(a, ao + i))).intoArray(out, oo + i);
+      }
+      case Ge -> {
+        for (; i < upper; i += S.length())
+          bool(load(a, ao + i).compare(VectorOperators.GE, load(b, bo + i))).intoArray(out, oo + i);
+      }
+      case Eq -> {
+        for (; i < upper; i += S.length())
+          bool(load(a, ao + i).eq(load(b, bo + i))).intoArray(out, oo + i);
+      }
+      case Ne -> {
+        for (; i < upper; i += S.length())
+          bool(load(a, ao + i).compare(VectorOperators.NE, load(b, bo + i))).intoArray(out, oo + i);
+      }
+      default -> {
+        // Pow / Mod
+      }
+    }
+    if (i < len) {
+      SCALAR.infix(op, a, ao + i, b, bo + i, out, oo + i, len - i);
+    }
+  }
+
+  private static DoubleVector load(double[] a,
+                                   int off) {
+    return DoubleVector.fromArray(S, a, off);
+  }
+
+  /**
+   * v != 0, NaN 为 true
+   */
+  private static VectorMask<Double> bool(DoubleVector v) {
+    return v.compare(VectorOperators.NE, 0);
+  }
+
+  private static DoubleVector bool(VectorMask<Double> mask) {
+    return ZERO.blend(ONE, mask);
+  }
+
+  @Override
+  public void prefix(Operator op,
+                     double[] a, int ao,
+                     double[] out, int oo,
+                     int len) {
+    if (op != Operator.Not) {
+      SCALAR.prefix(op, a, ao, out, oo, len);
+      return;
+    }
+    int upper = S.loopBound(len);
+    int i = 0;
+    for (; i < upper; i += S.length()) {
+      bool(load(a, ao + i).eq(ZERO)).intoArray(out, oo + i);
+    }
+    if (i < len) {
+      SCALAR.prefix(op, a, ao + i, out, oo + i, len - i);
+    }
+  }
+}
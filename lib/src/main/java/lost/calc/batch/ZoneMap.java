@@ -0,0 +1,124 @@
+package lost.calc.batch;
+
+import lost.calc.error.EvalerError;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 列数据按块统计的最小 / 最大值, 供 {@link Filter} 跳过整块
+ * <p>
+ * 统计不含 NaN; 块内存在 NaN 时记入 {@link #hasNaN}. 整块都是 NaN 时 min / max 为 NaN.
+ * 构建后不可变, 列数据修改后需要重新构建
+ */
+public final class ZoneMap {
+  private final int rows;
+  private final int blockSize;
+  private final Map<String, Zones> zones;
+
+  /**
+   * @param min 每块最小值
+   * @param max 每块最大值
+   * @param nan 每块是否存在 NaN
+   */
+  private record Zones(double[] min, double[] max, boolean[] nan) {
+  }
+
+  private ZoneMap(int rows,
+                  int blockSize,
+                  Map<String, Zones> zones) {
+    this.rows = rows;
+    this.blockSize = blockSize;
+    this.zones = zones;
+  }
+
+  /**
+   * 块大小为 {@link Batch#CHUNK}
+   */
+  public static ZoneMap of(Map<String, double[]> columns) {
+    return of(columns, Batch.CHUNK);
+  }
+
+  /**
+   * @param columns   列数据, 长度必须一致
+   * @param blockSize 每块行数
+   */
+  public static ZoneMap of(Map<String, double[]> columns,
+                           int blockSize) {
+    if (blockSize <= 0)
+      throw new IllegalArgumentException(STR."ZoneMap: must be blockSize > 0, [blockSize:\{blockSize}]");
+    int rows = -1;
+    for (var e : columns.entrySet()) {
+      if (rows >= 0 && e.getValue().length != rows)
+        throw new EvalerError(STR."column `\{e.getKey()}` length \{e.getValue().length} != \{rows} 😡");
+      rows = e.getValue().length;
+    }
+    if (rows < 0)
+      throw new EvalerError("columns must not be empty 😡");
+
+    int blocks = (rows + blockSize - 1) / blockSize;
+    var zones = new HashMap<String, Zones>();
+    for (var e : columns.entrySet()) {
+      var data = e.getValue();
+      var z = new Zones(new double[blocks], new double[blocks], new boolean[blocks]);
+      for (int b = 0; b < blocks; b++) {
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        boolean nan = false;
+        int end = Math.min(rows, (b + 1) * blockSize);
+        for (int r = b * blockSize; r < end; r++) {
+          double v = data[r];
+          if (v != v) nan = true;
+          else {
+            min = Math.min(min, v);
+            max = Math.max(max, v);
+          }
+        }
+        boolean empty = min > max;
+        z.min[b] = empty ? Double.NaN : min;
+        z.max[b] = empty ? Double.NaN : max;
+        z.nan[b] = nan;
+      }
+      zones.put(e.getKey(), z);
+    }
+    return new ZoneMap(rows, blockSize, zones);
+  }
+
+  public int rows() {
+    return this.rows;
+  }
+
+  public int blockSize() {
+    return this.blockSize;
+  }
+
+  public int blocks() {
+    return (this.rows + this.blockSize - 1) / this.blockSize;
+  }
+
+  public boolean hasColumn(String name) {
+    return this.zones.containsKey(name);
+  }
+
+  public double min(String column,
+                    int block) {
+    return zones(column).min[block];
+  }
+
+  public double max(String column,
+                    int block) {
+    return zones(column).max[block];
+  }
+
+  public boolean hasNaN(String column,
+                        int block) {
+    return zones(column).nan[block];
+  }
+
+  private Zones zones(String column) {
+    var z = this.zones.get(column);
+    if (z == null)
+      throw new EvalerError(STR."column `\{column}` not found from zone map 😡");
+    return z;
+  }
+}
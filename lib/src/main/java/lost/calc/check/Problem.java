@@ -0,0 +1,22 @@
+package lost.calc.check;
+
+import lost.calc.api.Token.Slice;
+
+/**
+ * 校验发现的一个错误
+ *
+ * @param kind    词法或语法错误
+ * @param slice   在源文本中的位置
+ * @param message 描述
+ */
+public record Problem(Kind kind, Slice slice, String message) {
+  public enum Kind {
+    LEXER,
+    PARSER
+  }
+
+  @Override
+  public String toString() {
+    return STR."\{this.slice}: \{this.message}";
+  }
+}
@@ -0,0 +1,16 @@
+package lost.calc.check;
+
+import java.util.List;
+
+/**
+ * 一个表达式的校验结果
+ *
+ * @param text     源文本
+ * @param problems 按位置先后排列的错误, 无错误时为空
+ */
+public record Validation(String text, List<Problem> problems) {
+
+  public boolean isOk() {
+    return this.problems.isEmpty();
+  }
+}
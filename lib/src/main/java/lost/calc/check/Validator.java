@@ -0,0 +1,274 @@
+package lost.calc.check;
+
+import lost.calc.api.Operator;
+import lost.calc.api.Token.Slice;
+import lost.calc.api.TokenBuffer;
+import lost.calc.check.Problem.Kind;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import static lost.calc.api.TokenBuffer.*;
+
+/**
+ * 不抛异常的词法 / 语法校验, 一次列出表达式中的所有错误
+ * <p>
+ * 接受与拒绝的表达式与 {@link lost.calc.impl.BLexer} + {@link lost.calc.impl.PParser} 一致, 但遇错不停止:
+ * <ul>
+ *   <li>非法字符与多余的 {@code .} 记录后跳过</li>
+ *   <li>非法运算符记录后当作二元运算符, 避免后续的连带错误</li>
+ *   <li>不该出现的 token 记录后跳过, 括号内的多余内容跳过到配对的 {@code )}</li>
+ *   <li>缺少的操作数 / 右括号记录后视为已补齐</li>
+ * </ul>
+ * 不构建 tree, 不检查变量与函数是否存在. 实例复用内部 buffer, 不是线程安全的
+ */
+public final class Validator {
+  private static final int INIT = 0;
+  private static final int INTEGER = 1;
+  private static final int DOUBLE = 2;
+  private static final int IDENT = 3;
+  private static final int OPERATOR = 4;
+
+  private final TokenBuffer tokens = new TokenBuffer();
+  private final List<Problem> problems = new ArrayList<>();
+  /**
+   * 非法运算符的 token 下标
+   */
+  private boolean[] bad = new boolean[32];
+  private int pos;
+
+  public Validation validate(String text) {
+    this.problems.clear();
+    lex(text);
+    parse();
+    // 词法错误先于语法错误记录, 按位置重新排列
+    this.problems.sort(Comparator.comparingInt(p -> p.slice().start()));
+    var result = new Validation(text, this.problems.isEmpty() ? List.of() : List.copyOf(this.problems));
+    this.problems.clear();
+    return result;
+  }
+
+  /**
+   * 逐个校验, 结果下标与输入一致
+   */
+  public List<Validation> validateAll(List<String> texts) {
+    var result = new ArrayList<Validation>(texts.size());
+    for (String text : texts) {
+      result.add(validate(text));
+    }
+    return result;
+  }
+
+  private void lex(CharSequence text) {
+    this.tokens.reset(text);
+    int len = text.length();
+    int state = INIT;
+    int start = -1;
+    for (int pos = 0; pos <= len; pos++) {
+      char c = (pos == len) ? ' ' : text.charAt(pos); // EOF
+
+      int next;
+      if (Character.isWhitespace(c)) next = INIT;
+      else if (Character.isDigit(c)) next = (state == DOUBLE || state == IDENT) ? state : INTEGER;
+      else if (c == '.') {
+        if (state == INTEGER) state = DOUBLE;
+        else problem(Kind.LEXER, Slice.both(pos), "`.` must only be as decimal point of number 😡");
+        continue;
+      } else if (Character.isLetter(c)) next = IDENT;
+      else if (Operator.isChar(c)) next = OPERATOR;
+      else if (c == '(' || c == ')' || c == ',') next = INIT;
+      else {
+        problem(Kind.LEXER, Slice.both(pos), STR."`\{c}` is not a valid token 😡");
+        next = INIT;
+      }
+
+      if (next != state) {
+        if (state != INIT) emit(text, state, start, pos);
+        state = next;
+        start = pos;
+      }
+
+      if (c == '(') this.tokens.add(TokenBuffer.OPEN, pos, pos);
+      else if (c == ')') this.tokens.add(TokenBuffer.CLOSE, pos, pos);
+      else if (c == ',') this.tokens.add(TokenBuffer.COMMA, pos, pos);
+    }
+  }
+
+  private void emit(CharSequence text,
+                    int state,
+                    int start,
+                    int end) {
+    switch (state) {
+      // digits[.digits] 总能解析, 校验不需要值
+      case INTEGER, DOUBLE -> this.tokens.addNumber(0, start, end - 1);
+      case IDENT -> this.tokens.add(TokenBuffer.IDENT, start, end - 1);
+      case OPERATOR -> {
+        var operator = Operator.find(text, start, end);
+        if (operator == null) {
+          problem(Kind.LEXER, new Slice(start, end - 1), STR."`\{text.subSequence(start, end)}` is not a valid operator 😡");
+          markBad(this.tokens.size());
+          operator = Operator.Plus;
+        }
+        this.tokens.addOperator(operator, start, end - 1);
+      }
+      default -> throw new AssertionError(STR."unknown lexer state \{state} but a BUG 😡");
+    }
+  }
+
+  private void markBad(int i) {
+    if (i >= this.bad.length) this.bad = Arrays.copyOf(this.bad, Math.max(i + 1, this.bad.length * 2));
+    this.bad[i] = true;
+  }
+
+  private boolean isBad(int i) {
+    return i < this.bad.length && this.bad[i];
+  }
+
+  private void parse() {
+    this.pos = 0;
+    var end = Slice.both(Math.max(0, this.tokens.text().length() - 1));
+    if (this.tokens.size() > 0) parseExpr(0, end);
+    while (this.pos < this.tokens.size()) {
+      // 表达式之后多余的 token, 跳过后继续校验余下部分
+      unexpected(this.pos++);
+      if (this.pos < this.tokens.size()) parseExpr(0, end);
+    }
+    Arrays.fill(this.bad, 0, Math.min(this.bad.length, this.tokens.size()), false);
+  }
+
+  private boolean peek(byte kind) {
+    return this.pos < this.tokens.size() && this.tokens.kind(this.pos) == kind;
+  }
+
+  /**
+   * 与 PParser.parseExpr 相同的优先级爬升
+   *
+   * @param owner 等待该表达式的 token, 用于报告缺少操作数
+   */
+  private void parseExpr(int minOrder,
+                         Slice owner) {
+    parseOperand(owner);
+    while (peek(TokenBuffer.OPERATOR)) {
+      var op = this.tokens.operator(this.pos);
+      if (op.order <= minOrder) break;
+      var slice = this.tokens.slice(this.pos++);
+      if (op != Operator.Not) parseExpr(op.order, slice);
+    }
+  }
+
+  private void parseOperand(Slice owner) {
+    if (this.pos >= this.tokens.size()) {
+      missing(owner);
+      return;
+    }
+    int i = this.pos;
+    switch (this.tokens.kind(i)) {
+      case NUMBER -> this.pos++;
+      case TokenBuffer.IDENT -> {
+        this.pos++;
+        if (peek(OPEN)) {
+          this.pos++;
+          parseCall(this.tokens.slice(i));
+        }
+      }
+      case OPEN -> {
+        this.pos++;
+        parseExpr(0, this.tokens.slice(i));
+        if (this.pos >= this.tokens.size()) {
+          problem(Kind.PARSER, this.tokens.slice(i), "`(` is not closed 😡");
+        } else if (this.tokens.kind(this.pos) != CLOSE) {
+          unexpected(this.pos);
+          skipToClose();
+        } else {
+          this.pos++;
+        }
+      }
+      case TokenBuffer.OPERATOR -> {
+        this.pos++;
+        if (this.tokens.operator(i) == Operator.Not) {
+          parseExpr(Operator.Not.order, this.tokens.slice(i));
+          return;
+        }
+        if (!isBad(i)) unexpected(i);
+        parseOperand(owner);
+      }
+      // `)` `,` 留给上层处理
+      default -> unexpected(i);
+    }
+  }
+
+  /**
+   * 跳过直到与当前括号配对的 `)`, 包括它
+   */
+  private void skipToClose() {
+    int depth = 0;
+    while (this.pos < this.tokens.size()) {
+      byte kind = this.tokens.kind(this.pos++);
+      if (kind == OPEN) depth++;
+      else if (kind == CLOSE && depth-- == 0) return;
+    }
+  }
+
+  /**
+   * 跳过当前参数余下的部分, 停在同层的 `,` 或 `)` 之前
+   */
+  private void skipToSeparator() {
+    int depth = 0;
+    for (; this.pos < this.tokens.size(); this.pos++) {
+      byte kind = this.tokens.kind(this.pos);
+      if (kind == OPEN) depth++;
+      else if (kind == CLOSE && depth-- == 0) return;
+      else if (kind == COMMA && depth == 0) return;
+    }
+  }
+
+  private void parseCall(Slice name) {
+    while (true) {
+      if (peek(CLOSE)) {
+        this.pos++;
+        return;
+      }
+      parseExpr(0, name);
+      if (this.pos >= this.tokens.size()) {
+        problem(Kind.PARSER, name, STR."`\{text(name)}(` is not closed 😡");
+        return;
+      }
+      switch (this.tokens.kind(this.pos)) {
+        case COMMA -> this.pos++;
+        case CLOSE -> {
+        }
+        default -> {
+          unexpected(this.pos);
+          skipToSeparator();
+          if (peek(COMMA)) this.pos++;
+        }
+      }
+    }
+  }
+
+  private void unexpected(int i) {
+    var slice = this.tokens.slice(i);
+    problem(Kind.PARSER, slice, STR."`\{text(slice)}` should not be here 😡");
+  }
+
+  private void missing(Slice owner) {
+    problem(Kind.PARSER, owner, STR."`\{text(owner)}` expects an operand 😡");
+  }
+
+  private CharSequence text(Slice slice) {
+    var text = this.tokens.text();
+    return text.subSequence(Math.min(slice.start(), text.length()), Math.min(slice.end() + 1, text.length()));
+  }
+
+  /**
+   * 同一位置只记录一次
+   */
+  private void problem(Kind kind,
+                       Slice slice,
+                       String message) {
+    if (!this.problems.isEmpty() && this.problems.get(this.problems.size() - 1).slice().equals(slice)) return;
+    this.problems.add(new Problem(kind, slice, message));
+  }
+}
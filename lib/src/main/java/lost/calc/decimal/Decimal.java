@@ -0,0 +1,308 @@
+package lost.calc.decimal;
+
+import lost.calc.error.EvalerError;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * 精确的十进制数, 值为 unscaled * 10^-scale
+ * <p>
+ * unscaled 放得进 long 且 0 <= scale <= {@link #MAX_SCALE} 时以 long 运算, 用 {@link Math#multiplyHigh} 与符号位检查溢出;
+ * 溢出或超出范围时改用 {@link BigDecimal}, 结果重新放得进 long 时再回到快速路径. 不可变
+ */
+public final class Decimal implements Comparable<Decimal> {
+  public static final int MAX_SCALE = 18;
+
+  public static final Decimal ZERO = new Decimal(0, 0);
+  public static final Decimal ONE = new Decimal(1, 0);
+
+  private static final long[] POW10 = new long[MAX_SCALE + 1];
+  /**
+   * 溢出标记; 恰好等于 {@link Long#MIN_VALUE} 的中间值也会走慢速路径, 结果不变
+   */
+  private static final long OVERFLOW = Long.MIN_VALUE;
+
+  static {
+    POW10[0] = 1;
+    for (int i = 1; i < POW10.length; i++) {
+      POW10[i] = POW10[i - 1] * 10;
+    }
+  }
+
+  private final long unscaled;
+  private final int scale;
+  /**
+   * 慢速路径的值, 快速路径时为 null
+   */
+  private final BigDecimal big;
+
+  private Decimal(long unscaled,
+                  int scale) {
+    this.unscaled = unscaled;
+    this.scale = scale;
+    this.big = null;
+  }
+
+  private Decimal(BigDecimal big) {
+    this.unscaled = 0;
+    this.scale = 0;
+    this.big = big;
+  }
+
+  public static Decimal of(long value) {
+    return value == 0 ? ZERO : value == 1 ? ONE : new Decimal(value, 0);
+  }
+
+  /**
+   * @return unscaled * 10^-scale
+   */
+  public static Decimal of(long unscaled,
+                           int scale) {
+    if (scale >= 0 && scale <= MAX_SCALE) return new Decimal(unscaled, scale);
+    return of(BigDecimal.valueOf(unscaled, scale));
+  }
+
+  public static Decimal of(BigDecimal value) {
+    var v = value.scale() < 0 ? value.setScale(0) : value;
+    if (v.scale() <= MAX_SCALE && v.unscaledValue().bitLength() < Long.SIZE)
+      return new Decimal(v.unscaledValue().longValue(), v.scale());
+    return new Decimal(v);
+  }
+
+  /**
+   * double 的最短十进制表示, 与 {@link Double#toString(double)} 相同
+   */
+  public static Decimal valueOf(double value) {
+    if (!Double.isFinite(value))
+      throw new EvalerError(STR."\{value} is not a decimal 😡");
+    return of(BigDecimal.valueOf(value));
+  }
+
+  /**
+   * 解析 {@code digits[.digits]}, 可带前导 {@code -}; 不超过 18 位有效数字时不分配中间对象
+   */
+  public static Decimal parse(CharSequence text) {
+    int len = text.length();
+    int i = 0;
+    boolean negative = len > 0 && text.charAt(0) == '-';
+    if (negative) i++;
+    long unscaled = 0;
+    int digits = 0;
+    int scale = -1;
+    for (; i < len; i++) {
+      char c = text.charAt(i);
+      if (c == '.' && scale < 0) {
+        scale = 0;
+      } else if (c >= '0' && c <= '9') {
+        // 最多 18 位数字不会溢出 long
+        if (++digits > MAX_SCALE) return parseBig(text);
+        unscaled = unscaled * 10 + (c - '0');
+        if (scale >= 0) scale++;
+      } else {
+        throw new EvalerError(STR."`\{text}` is not a decimal 😡");
+      }
+    }
+    if (digits == 0)
+      throw new EvalerError(STR."`\{text}` is not a decimal 😡");
+    return new Decimal(negative ? -unscaled : unscaled, Math.max(scale, 0));
+  }
+
+  private static Decimal parseBig(CharSequence text) {
+    try {
+      return of(new BigDecimal(text.toString()));
+    } catch (NumberFormatException e) {
+      throw new EvalerError(STR."`\{text}` is not a decimal 😡");
+    }
+  }
+
+  /**
+   * 是否在快速路径上
+   */
+  public boolean isCompact() {
+    return this.big == null;
+  }
+
+  public int scale() {
+    return this.big == null ? this.scale : this.big.scale();
+  }
+
+  public BigDecimal toBigDecimal() {
+    return this.big == null ? BigDecimal.valueOf(this.unscaled, this.scale) : this.big;
+  }
+
+  public double doubleValue() {
+    // 两者都能精确表示为 double 时一次除法即为正确舍入的结果
+    if (this.big == null && Math.abs(this.unscaled) < 1L << 53 && this.scale <= 22)
+      return this.scale == 0 ? this.unscaled : this.unscaled / Math.pow(10, this.scale);
+    return toBigDecimal().doubleValue();
+  }
+
+  public int signum() {
+    return this.big == null ? Long.signum(this.unscaled) : this.big.signum();
+  }
+
+  public boolean isZero() {
+    return signum() == 0;
+  }
+
+  public Decimal negate() {
+    if (this.big == null && this.unscaled != Long.MIN_VALUE) return new Decimal(-this.unscaled, this.scale);
+    return of(toBigDecimal().negate());
+  }
+
+  public Decimal add(Decimal o) {
+    if (this.big == null && o.big == null) {
+      int s = Math.max(this.scale, o.scale);
+      long a = rescale(this.unscaled, s - this.scale);
+      long b = rescale(o.unscaled, s - o.scale);
+      if (a != OVERFLOW && b != OVERFLOW) {
+        long r = a + b;
+        if (((a ^ r) & (b ^ r)) >= 0) return new Decimal(r, s);
+      }
+    }
+    return of(toBigDecimal().add(o.toBigDecimal()));
+  }
+
+  public Decimal subtract(Decimal o) {
+    if (this.big == null && o.big == null) {
+      int s = Math.max(this.scale, o.scale);
+      long a = rescale(this.unscaled, s - this.scale);
+      long b = rescale(o.unscaled, s - o.scale);
+      if (a != OVERFLOW && b != OVERFLOW) {
+        long r = a - b;
+        if (((a ^ b) & (a ^ r)) >= 0) return new Decimal(r, s);
+      }
+    }
+    return of(toBigDecimal().subtract(o.toBigDecimal()));
+  }
+
+  public Decimal multiply(Decimal o) {
+    if (this.big == null && o.big == null) {
+      long a = this.unscaled;
+      long b = o.unscaled;
+      long r = a * b;
+      int s = this.scale + o.scale;
+      if (Math.multiplyHigh(a, b) == r >> 63) {
+        if (s <= MAX_SCALE) return new Decimal(r, s);
+        return strip(r, s);
+      }
+    }
+    return of(toBigDecimal().multiply(o.toBigDecimal()));
+  }
+
+  /**
+   * 商保留 scale 位小数, 按 {@link RoundingMode#HALF_EVEN} 舍入后去掉末尾的 0
+   */
+  public Decimal divide(Decimal o,
+                        int scale) {
+    if (o.isZero())
+      throw new EvalerError(STR."\{this} / \{o}: division by zero 😡");
+    if (this.big == null && o.big == null && scale <= MAX_SCALE) {
+      // q = unscaled * 10^e / o.unscaled
+      int e = scale - this.scale + o.scale;
+      long n = e >= 0 && e <= MAX_SCALE ? times(this.unscaled, POW10[e]) : OVERFLOW;
+      long d = o.unscaled;
+      if (n != OVERFLOW && d != Long.MIN_VALUE) {
+        long q = n / d;
+        long r = Math.abs(n % d);
+        long half = Math.abs(d) - r;
+        // 余数过半, 或恰好一半且商为奇数时远离 0
+        if (r > half || r == half && (q & 1) != 0) q += (n < 0) == (d < 0) ? 1 : -1;
+        return strip(q, scale);
+      }
+    }
+    return of(toBigDecimal().divide(o.toBigDecimal(), scale, RoundingMode.HALF_EVEN).stripTrailingZeros());
+  }
+
+  /**
+   * 与 {@link BigDecimal#remainder} 相同, 符号随被除数
+   */
+  public Decimal remainder(Decimal o) {
+    if (o.isZero())
+      throw new EvalerError(STR."\{this} % \{o}: division by zero 😡");
+    if (this.big == null && o.big == null) {
+      int s = Math.max(this.scale, o.scale);
+      long a = rescale(this.unscaled, s - this.scale);
+      long b = rescale(o.unscaled, s - o.scale);
+      if (a != OVERFLOW && b != OVERFLOW) return new Decimal(a % b, s);
+    }
+    return of(toBigDecimal().remainder(o.toBigDecimal()));
+  }
+
+  /**
+   * 指数为整数时精确计算, 负指数按 {@link #divide} 的规则; 非整数指数经 double 计算, 结果不精确
+   */
+  public Decimal pow(Decimal o,
+                     int scale) {
+    var e = o.toBigDecimal().stripTrailingZeros();
+    if (e.scale() > 0 || e.abs().compareTo(BigDecimal.valueOf(9999)) > 0)
+      return valueOf(Math.pow(doubleValue(), o.doubleValue()));
+    int n = e.intValue();
+    var result = ONE;
+    var base = this;
+    for (int k = Math.abs(n); k > 0; k >>= 1) {
+      if ((k & 1) != 0) result = result.multiply(base);
+      if (k > 1) base = base.multiply(base);
+    }
+    return n < 0 ? ONE.divide(result, scale) : result;
+  }
+
+  @Override
+  public int compareTo(Decimal o) {
+    if (this.big == null && o.big == null) {
+      if (this.scale == o.scale) return Long.compare(this.unscaled, o.unscaled);
+      int s = Math.max(this.scale, o.scale);
+      long a = rescale(this.unscaled, s - this.scale);
+      long b = rescale(o.unscaled, s - o.scale);
+      if (a != OVERFLOW && b != OVERFLOW) return Long.compare(a, b);
+    }
+    return toBigDecimal().compareTo(o.toBigDecimal());
+  }
+
+  /**
+   * 数值相等, 不区分 scale, 如 {@code 1.0} 等于 {@code 1}
+   */
+  @Override
+  public boolean equals(Object o) {
+    return o instanceof Decimal d && compareTo(d) == 0;
+  }
+
+  @Override
+  public int hashCode() {
+    return isZero() ? 0 : toBigDecimal().stripTrailingZeros().hashCode();
+  }
+
+  @Override
+  public String toString() {
+    return toBigDecimal().toPlainString();
+  }
+
+  /**
+   * @return v * 10^n, 溢出时为 {@link #OVERFLOW}
+   */
+  private static long rescale(long v,
+                              int n) {
+    if (n == 0) return v;
+    return n <= MAX_SCALE ? times(v, POW10[n]) : OVERFLOW;
+  }
+
+  private static long times(long a,
+                            long b) {
+    long r = a * b;
+    return Math.multiplyHigh(a, b) == r >> 63 ? r : OVERFLOW;
+  }
+
+  /**
+   * 去掉末尾的 0, scale 仍超过 {@link #MAX_SCALE} 时转为 BigDecimal
+   */
+  private static Decimal strip(long v,
+                               int scale) {
+    while (scale > 0 && v % 10 == 0) {
+      v /= 10;
+      scale--;
+    }
+    if (scale <= MAX_SCALE) return new Decimal(v, scale);
+    return new Decimal(BigDecimal.valueOf(v, scale));
+  }
+}
@@ -0,0 +1,66 @@
+package lost.calc.decimal;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 十进制模式的变量与函数
+ */
+public class DecimalEnv {
+  private final Map<String, Decimal> vars = new HashMap<>();
+  private final Map<String, DecimalFn> fns = new HashMap<>();
+
+  public DecimalEnv putVar(String name,
+                           Decimal value) {
+    this.vars.put(name, value);
+    return this;
+  }
+
+  /**
+   * @param value 十进制文本, 如 {@code "19.99"}
+   */
+  public DecimalEnv putVar(String name,
+                           String value) {
+    return putVar(name, Decimal.parse(value));
+  }
+
+  public DecimalEnv putVar(String name,
+                           long value) {
+    return putVar(name, Decimal.of(value));
+  }
+
+  public boolean hasVar(String name) {
+    return this.vars.containsKey(name);
+  }
+
+  /**
+   * @return 变量值, 不存在时为 null
+   */
+  public Decimal getVar(String name) {
+    return this.vars.get(name);
+  }
+
+  public DecimalEnv installFn(DecimalFn fn) {
+    this.fns.put(fn.name(), fn);
+    return this;
+  }
+
+  public DecimalEnv installFn(String name,
+                              DecimalFn.Fn1 body) {
+    return installFn(DecimalFn.of(name, body));
+  }
+
+  public DecimalEnv installFn(String name,
+                              DecimalFn.Fn2 body) {
+    return installFn(DecimalFn.of(name, body));
+  }
+
+  public DecimalEnv uninstallFn(DecimalFn fn) {
+    this.fns.remove(fn.name(), fn);
+    return this;
+  }
+
+  public DecimalFn findFn(String name) {
+    return this.fns.get(name);
+  }
+}
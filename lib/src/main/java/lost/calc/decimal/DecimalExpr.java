@@ -0,0 +1,206 @@
+package lost.calc.decimal;
+
+import lost.calc.Expr;
+import lost.calc.api.Operator;
+import lost.calc.api.Token.Slice;
+import lost.calc.api.Tree;
+import lost.calc.api.Tree.*;
+import lost.calc.error.EvalerError;
+
+/**
+ * 以 {@link Decimal} 精确求值的表达式
+ * <p>
+ * 数字字面量从源文本按 slice 重新读取, 不经过 double; 源文本不可用 (如 {@link lost.calc.opt.Folder} 折叠出的数字)
+ * 时取 double 值的最短十进制表示. 除法与负整数次幂保留 divisionScale 位小数, 按 HALF_EVEN 舍入.
+ * 结构错误在编译时抛出 {@link EvalerError}, 变量与函数在求值时从 {@link DecimalEnv} 查找. 编译后不可变, 可被多个线程共享
+ */
+public final class DecimalExpr {
+  public static final int DEFAULT_DIVISION_SCALE = 16;
+
+  private final String text;
+  private final Node root;
+  private final int divisionScale;
+
+  private DecimalExpr(String text,
+                      Node root,
+                      int divisionScale) {
+    this.text = text;
+    this.root = root;
+    this.divisionScale = divisionScale;
+  }
+
+  public static DecimalExpr compile(Expr expr) {
+    return compile(expr.text(), expr.tree(), DEFAULT_DIVISION_SCALE);
+  }
+
+  /**
+   * @param text          tree 的源文本, 用于精确读取数字
+   * @param divisionScale 除法结果的小数位数, 0 - {@link Decimal#MAX_SCALE} 时走快速路径
+   */
+  public static DecimalExpr compile(String text,
+                                    Tree tree,
+                                    int divisionScale) {
+    if (divisionScale < 0)
+      throw new IllegalArgumentException(STR."DecimalExpr: must be divisionScale >= 0, [divisionScale:\{divisionScale}]");
+    return new DecimalExpr(text, new Compiler(text).compile(tree), divisionScale);
+  }
+
+  public String text() {
+    return this.text;
+  }
+
+  public int divisionScale() {
+    return this.divisionScale;
+  }
+
+  public Decimal eval(DecimalEnv env) {
+    return eval(this.root, env);
+  }
+
+  private sealed interface Node {
+  }
+
+  private record Num(Decimal value) implements Node {
+  }
+
+  private record Var(String name, Slice slice) implements Node {
+  }
+
+  private record Call(String name, Slice slice, Node[] args) implements Node {
+  }
+
+  private record If(Node cond, Node then, Node otherwise) implements Node {
+  }
+
+  private record Not(Node kid) implements Node {
+  }
+
+  private record Infix(Operator op, Node lhs, Node rhs) implements Node {
+  }
+
+  private Decimal eval(Node node,
+                       DecimalEnv env) {
+    if (node instanceof Num n) return n.value;
+    if (node instanceof Infix i) return infix(i, env);
+    if (node instanceof Var v) {
+      var value = env.getVar(v.name);
+      if (value == null)
+        throw new EvalerError(() -> STR."Var(\{v.name}) \{v.slice} not found from env 😡");
+      return value;
+    }
+    if (node instanceof Call c) return call(c, env);
+    if (node instanceof If f) return !eval(f.cond, env).isZero() ? eval(f.then, env) : eval(f.otherwise, env);
+    if (node instanceof Not n) return eval(n.kid, env).isZero() ? Decimal.ONE : Decimal.ZERO;
+    throw new AssertionError(STR."unknown decimal node \{node} but a BUG 😡");
+  }
+
+  private Decimal infix(Infix i,
+                        DecimalEnv env) {
+    var lhs = eval(i.lhs, env);
+    return switch (i.op) {
+      // `&&` `||` 短路
+      case And -> lhs.isZero() ? Decimal.ZERO : bool(!eval(i.rhs, env).isZero());
+      case Or -> !lhs.isZero() ? Decimal.ONE : bool(!eval(i.rhs, env).isZero());
+      case Pow -> lhs.pow(eval(i.rhs, env), this.divisionScale);
+      case Multi -> lhs.multiply(eval(i.rhs, env));
+      case Div -> lhs.divide(eval(i.rhs, env), this.divisionScale);
+      case Plus -> lhs.add(eval(i.rhs, env));
+      case Minus -> lhs.subtract(eval(i.rhs, env));
+      case Mod -> lhs.remainder(eval(i.rhs, env));
+      case Lt -> bool(lhs.compareTo(eval(i.rhs, env)) < 0);
+      case Le -> bool(lhs.compareTo(eval(i.rhs, env)) <= 0);
+      case Gt -> bool(lhs.compareTo(eval(i.rhs, env)) > 0);
+      case Ge -> bool(lhs.compareTo(eval(i.rhs, env)) >= 0);
+      case Eq -> bool(lhs.compareTo(eval(i.rhs, env)) == 0);
+      case Ne -> bool(lhs.compareTo(eval(i.rhs, env)) != 0);
+      default -> throw new EvalerError(STR."\{i.op} is not a infix-operator 😡");
+    };
+  }
+
+  private static Decimal bool(boolean b) {
+    return b ? Decimal.ONE : Decimal.ZERO;
+  }
+
+  private Decimal call(Call c,
+                       DecimalEnv env) {
+    var fn = env.findFn(c.name);
+    if (fn == null)
+      throw new EvalerError(() -> STR."Call(\{c.name}) \{c.slice} not found from env 😡");
+    if (fn.paramCount() != c.args.length)
+      throw new EvalerError(() -> STR."Call(\{c.name}) \{c.slice} params count not match 😡");
+    var params = new Decimal[c.args.length];
+    for (int i = 0; i < params.length; i++) {
+      params[i] = eval(c.args[i], env);
+    }
+    return fn.call(params);
+  }
+
+  private record Compiler(String text) {
+
+    Node compile(Tree tree) {
+      return switch (tree) {
+        case NumberTree n -> new Num(literal(n));
+        case VarTree v -> new Var(v.value, v.slice());
+        case CallTree c -> {
+          if (c.isIf()) {
+            if (c.kids().size() != 3)
+              throw new EvalerError(STR."\{c} params count not match 😡");
+            var kids = c.kids().iterator();
+            yield new If(compile(kids.next()), compile(kids.next()), compile(kids.next()));
+          }
+          var args = new Node[c.kids().size()];
+          int i = 0;
+          for (Tree kid : c.kids()) {
+            args[i++] = compile(kid);
+          }
+          yield new Call(c.value, c.slice(), args);
+        }
+        case PrefixTree p -> {
+          if (p.kids().size() != 1)
+            throw new EvalerError(STR."\{p} params count not match 😡");
+          if (p.value != Operator.Not)
+            throw new EvalerError(STR."\{p} is not a prefix-operator 😡");
+          yield new Not(compile(p.kids().getFirst()));
+        }
+        case InfixTree i -> {
+          if (i.kids().size() != 2)
+            throw new EvalerError(STR."\{i} params count not match 😡");
+          if (i.value == Operator.Not)
+            throw new EvalerError(STR."\{i} is not a infix-operator 😡");
+          yield new Infix(i.value, compile(i.kids().getFirst()), compile(i.kids().getLast()));
+        }
+        case ParTree p -> {
+          if (p.kids().size() != 1)
+            throw new EvalerError(STR."\{p} params count not match 😡");
+          yield compile(p.kids().getFirst());
+        }
+        case PostfixTree p -> throw new EvalerError(STR."\{p} is not a post-operator 😡");
+      };
+    }
+
+    /**
+     * 按 slice 从源文本读取; 读到的不是同一个数字时退回 double 值
+     */
+    Decimal literal(NumberTree n) {
+      var slice = n.slice();
+      if (this.text != null && slice.end() < this.text.length()) {
+        var source = this.text.subSequence(slice.start(), slice.end() + 1);
+        if (isNumber(source)) {
+          var value = Decimal.parse(source);
+          if (value.doubleValue() == n.value) return value;
+        }
+      }
+      return Decimal.valueOf(n.value);
+    }
+
+    private static boolean isNumber(CharSequence s) {
+      int dots = 0;
+      for (int i = 0; i < s.length(); i++) {
+        char c = s.charAt(i);
+        if (c == '.') dots++;
+        else if (c < '0' || c > '9') return false;
+      }
+      return s.length() > 0 && dots <= 1 && s.charAt(0) != '.';
+    }
+  }
+}
@@ -0,0 +1,57 @@
+package lost.calc.decimal;
+
+/**
+ * 十进制模式下的函数, 见 {@link lost.calc.api.Fn}
+ */
+public interface DecimalFn {
+
+  String name();
+
+  int paramCount();
+
+  Decimal call(Decimal... params);
+
+  static DecimalFn of(String name,
+                      Fn1 body) {
+    return new Of1(name, body);
+  }
+
+  static DecimalFn of(String name,
+                      Fn2 body) {
+    return new Of2(name, body);
+  }
+
+  @FunctionalInterface
+  interface Fn1 {
+    Decimal apply(Decimal a);
+  }
+
+  @FunctionalInterface
+  interface Fn2 {
+    Decimal apply(Decimal a, Decimal b);
+  }
+
+  record Of1(String name, Fn1 body) implements DecimalFn {
+    @Override
+    public int paramCount() {
+      return 1;
+    }
+
+    @Override
+    public Decimal call(Decimal... params) {
+      return body.apply(params[0]);
+    }
+  }
+
+  record Of2(String name, Fn2 body) implements DecimalFn {
+    @Override
+    public int paramCount() {
+      return 2;
+    }
+
+    @Override
+    public Decimal call(Decimal... params) {
+      return body.apply(params[0], params[1]);
+    }
+  }
+}
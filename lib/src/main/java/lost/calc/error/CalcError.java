@@ -0,0 +1,43 @@
+package lost.calc.error;
+
+import java.util.function.Supplier;
+
+/**
+ * 词法, 语法与求值错误的基类
+ * <p>
+ * 不记录调用栈, 消息在第一次 {@link #getMessage()} 时才生成, 大量失败的场景下构造开销很小
+ */
+public abstract class CalcError extends RuntimeException {
+  private Supplier<String> supplier;
+  private String message;
+
+  protected CalcError(String message) {
+    super(null, null, false, false);
+    this.message = message;
+  }
+
+  /**
+   * @param cause 保留原始错误, 如 {@link StackOverflowError}
+   */
+  protected CalcError(String message,
+                      Throwable cause) {
+    super(null, cause, false, false);
+    this.message = message;
+  }
+
+  protected CalcError(Supplier<String> message) {
+    super(null, null, false, false);
+    this.supplier = message;
+  }
+
+  @Override
+  public String getMessage() {
+    // 并发时可能重复生成, 结果相同
+    var supplier = this.supplier;
+    if (supplier != null) {
+      this.message = supplier.get();
+      this.supplier = null;
+    }
+    return this.message;
+  }
+}
@@ -1,7 +1,21 @@
 package lost.calc.error;
 
-public class EvalerError extends RuntimeException {
+import java.util.function.Supplier;
+
+public class EvalerError extends CalcError {
   public EvalerError(String message) {
     super(message);
   }
+
+  public EvalerError(String message,
+                     Throwable cause) {
+    super(message, cause);
+  }
+
+  /**
+   * @param message 延迟生成的消息
+   */
+  public EvalerError(Supplier<String> message) {
+    super(message);
+  }
 }
@@ -1,8 +1,17 @@
 package lost.calc.error;
 
-public class LexerError extends RuntimeException {
+import java.util.function.Supplier;
+
+public class LexerError extends CalcError {
   public LexerError(String message) {
     super(message);
   }
 
+  /**
+   * @param message 延迟生成的消息
+   */
+  public LexerError(Supplier<String> message) {
+    super(message);
+  }
+
 }
@@ -3,17 +3,17 @@ package lost.calc.error;
 import lost.calc.api.Token;
 import lost.calc.api.Tree;
 
-public class ParserError extends RuntimeException {
+public class ParserError extends CalcError {
   public ParserError(String message) {
     super(message);
   }
 
   public ParserError(Token token) {
-    this(STR."\{token} should not be here 😡");
+    super(() -> STR."\{token} should not be here 😡");
   }
 
   public ParserError(Tree tree) {
-    this(STR."\{tree} is not completed 😡");
+    super(() -> STR."\{tree} is not completed 😡");
   }
 
 }
@@ -0,0 +1,135 @@
+package lost.calc.impl;
+
+import lost.calc.api.Lexer;
+import lost.calc.api.Operator;
+import lost.calc.api.Token;
+import lost.calc.api.Token.Slice;
+import lost.calc.api.TokenBuffer;
+import lost.calc.error.LexerError;
+
+/**
+ * 写入 {@link TokenBuffer} 的词法分析器, 与 {@link DLexer} 产生相同的 token 与错误
+ * <p>
+ * 状态保存在局部变量中, 数字就地解析, 运算符通过首字符表查找, 每个 token 不分配对象
+ */
+public class BLexer implements Lexer {
+  private static final int INIT = 0;
+  private static final int INTEGER = 1;
+  private static final int DOUBLE = 2;
+  private static final int IDENT = 3;
+  private static final int OPERATOR = 4;
+
+  /**
+   * 可精确表示的 10 的幂, 见 {@link #parseNumber}
+   */
+  private static final double[] POW10 = {
+          1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+          1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+  };
+  private static final long MAX_EXACT = 1L << 53;
+
+  @Override
+  public Iterable<Token> lex(String text) {
+    return lex(text, new TokenBuffer()).tokens();
+  }
+
+  /**
+   * 词法分析, 结果写入 buffer
+   *
+   * @param text   源文本
+   * @param buffer 复用的 buffer, 会被清空
+   * @return buffer
+   */
+  public TokenBuffer lex(CharSequence text,
+                         TokenBuffer buffer) {
+    buffer.reset(text);
+    int len = text.length();
+    int state = INIT;
+    int start = -1;
+    for (int pos = 0; pos <= len; pos++) {
+      char c = (pos == len) ? ' ' : text.charAt(pos); // EOF
+
+      int next;
+      if (Character.isWhitespace(c)) next = INIT;
+      else if (Character.isDigit(c)) next = (state == DOUBLE || state == IDENT) ? state : INTEGER;
+      else if (c == '.') {
+        if (state != INTEGER) {
+          int at = pos;
+          throw new LexerError(() -> STR."[\{at}]: `.` must only be as decimal point of number 😡");
+        }
+        state = DOUBLE;
+        continue;
+      } else if (Character.isLetter(c)) next = IDENT;
+      else if (Operator.isChar(c)) next = OPERATOR;
+      else if (c == '(' || c == ')' || c == ',') next = INIT;
+      else {
+        int at = pos;
+        throw new LexerError(() -> STR."[\{at}]: `\{c}` is not a valid token 😡");
+      }
+
+      if (next != state) {
+        if (state != INIT) emit(text, buffer, state, start, pos);
+        state = next;
+        start = pos;
+      }
+
+      if (c == '(') buffer.add(TokenBuffer.OPEN, pos, pos);
+      else if (c == ')') buffer.add(TokenBuffer.CLOSE, pos, pos);
+      else if (c == ',') buffer.add(TokenBuffer.COMMA, pos, pos);
+    }
+    return buffer;
+  }
+
+  private static void emit(CharSequence text,
+                           TokenBuffer buffer,
+                           int state,
+                           int start,
+                           int end) {
+    switch (state) {
+      case INTEGER, DOUBLE -> buffer.addNumber(parseNumber(text, start, end), start, end - 1);
+      case IDENT -> buffer.add(TokenBuffer.IDENT, start, end - 1);
+      case OPERATOR -> {
+        var operator = Operator.find(text, start, end);
+        if (operator == null)
+          throw new LexerError(() -> STR."\{new Slice(start, end - 1)}: `\{text.subSequence(start, end)}` is not a valid operator 😡");
+        buffer.addOperator(operator, start, end - 1);
+      }
+      default -> throw new AssertionError(STR."unknown lexer state \{state} but a BUG 😡");
+    }
+  }
+
+  /**
+   * 解析 {@code digits[.digits]}
+   * <p>
+   * 有效数字不超过 2^53 且小数位不超过 22 时, 尾数与 10 的幂都能精确表示, 一次除法即为正确舍入的结果,
+   * 与 {@link Double#parseDouble} 相同; 其余情况退回 {@link Double#parseDouble}
+   */
+  static double parseNumber(CharSequence text,
+                            int start,
+                            int end) {
+    long mantissa = 0;
+    int scale = -1;
+    boolean exact = true;
+    for (int i = start; i < end && exact; i++) {
+      char c = text.charAt(i);
+      if (c == '.') {
+        scale = 0;
+      } else if (c >= '0' && c <= '9') {
+        mantissa = mantissa * 10 + (c - '0');
+        if (scale >= 0) scale++;
+        exact = mantissa < MAX_EXACT && scale < POW10.length;
+      } else {
+        exact = false;
+      }
+    }
+    if (exact) {
+      return scale <= 0 ? mantissa : mantissa / POW10[scale];
+    }
+    var tokenString = text.subSequence(start, end).toString();
+    try {
+      return Double.parseDouble(tokenString);
+    } catch (Exception e) {
+      throw new LexerError(() -> STR."\{new Slice(start, end - 1)}: `\{tokenString}` is not a valid number 😡");
+    }
+  }
+}
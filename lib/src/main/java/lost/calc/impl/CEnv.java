@@ -0,0 +1,206 @@
+package lost.calc.impl;
+
+import lost.calc.api.Env;
+import lost.calc.api.Fn;
+import lost.calc.api.Memo;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * 可在线程间共享的 Env
+ * <p>
+ * 所有数据保存在一个不可变的 {@link State} 中, 写入时复制并以 CAS 发布新 State:
+ * <ul>
+ *   <li>读取只做一次 volatile 读加数组访问, 无锁且 wait-free</li>
+ *   <li>写入之间以 CAS 重试, 从不阻塞读取</li>
+ *   <li>{@link #snapshot()} 固定某个 State, 在其上的求值只会看到同一版本的变量</li>
+ * </ul>
+ * 每次写入复制整个变量数组, 高频更新多个变量时用 {@link #update(Consumer)} 合并为一次发布
+ */
+public class CEnv implements Env {
+
+  /**
+   * @param slots   变量名 => 槽位
+   * @param values  变量值
+   * @param fns     函数
+   * @param version 版本号, 每次发布加一
+   */
+  private record State(Map<String, Integer> slots,
+                       double[] values,
+                       Map<String, Fn> fns,
+                       long version) {
+
+    static final State EMPTY = new State(Map.of(), new double[0], Map.of(), 0);
+
+    boolean hasVar(String name) {
+      return slots.containsKey(name);
+    }
+
+    double getVar(String name) {
+      return values[slots.get(name)];
+    }
+  }
+
+  /**
+   * 一次发布中的批量修改
+   */
+  public static final class Batch {
+    private Map<String, Integer> slots;
+    private double[] values;
+    private Map<String, Fn> fns;
+    private boolean slotsCopied;
+    private boolean fnsCopied;
+
+    private Batch(State state) {
+      this.slots = state.slots;
+      this.values = state.values.clone();
+      this.fns = state.fns;
+    }
+
+    public Batch putVar(String name,
+                        double value) {
+      var slot = slots.get(name);
+      if (slot == null) {
+        if (!slotsCopied) {
+          slots = new HashMap<>(slots);
+          slotsCopied = true;
+        }
+        slot = slots.size();
+        slots.put(name, slot);
+        values = Arrays.copyOf(values, slot + 1);
+      }
+      values[slot] = value;
+      return this;
+    }
+
+    public Batch installFn(Fn fn) {
+      copyFns().put(fn.name(), fn);
+      return this;
+    }
+
+    public Batch uninstallFn(Fn fn) {
+      copyFns().remove(fn.name());
+      return this;
+    }
+
+    private Map<String, Fn> copyFns() {
+      if (!fnsCopied) {
+        fns = new HashMap<>(fns);
+        fnsCopied = true;
+      }
+      return fns;
+    }
+
+    private State build(long version) {
+      return new State(slots, values, fns, version);
+    }
+  }
+
+  private final AtomicReference<State> state = new AtomicReference<>(State.EMPTY);
+  private volatile Memo memo;
+
+  /**
+   * 原子地应用一批修改, 冲突时整批重做, 因此 updater 不应有副作用
+   */
+  public CEnv update(Consumer<Batch> updater) {
+    while (true) {
+      var current = this.state.get();
+      var batch = new Batch(current);
+      updater.accept(batch);
+      if (this.state.compareAndSet(current, batch.build(current.version + 1))) return this;
+    }
+  }
+
+  public long version() {
+    return this.state.get().version;
+  }
+
+  /**
+   * 当前版本的只读视图, 之后的写入对它不可见
+   */
+  public Env snapshot() {
+    return new Snapshot(this.state.get(), this.memo);
+  }
+
+  @Override
+  public CEnv putVar(String name,
+                     double value) {
+    return update(b -> b.putVar(name, value));
+  }
+
+  @Override
+  public boolean hasVar(String name) {
+    return this.state.get().hasVar(name);
+  }
+
+  @Override
+  public double getVar(String name) {
+    return this.state.get().getVar(name);
+  }
+
+  @Override
+  public CEnv installFn(Fn fn) {
+    return update(b -> b.installFn(fn));
+  }
+
+  @Override
+  public CEnv uninstallFn(Fn fn) {
+    return update(b -> b.uninstallFn(fn));
+  }
+
+  @Override
+  public Fn findFn(String name) {
+    return this.state.get().fns.get(name);
+  }
+
+  /**
+   * 设置纯函数调用使用的缓存, null 时不缓存, 见 {@link Env#memo()}
+   */
+  public CEnv memo(Memo memo) {
+    this.memo = memo;
+    return this;
+  }
+
+  @Override
+  public Memo memo() {
+    return this.memo;
+  }
+
+  private record Snapshot(State state, Memo memo) implements Env {
+
+    @Override
+    public Env putVar(String name,
+                      double value) {
+      throw new UnsupportedOperationException("snapshot is read-only 😡");
+    }
+
+    @Override
+    public boolean hasVar(String name) {
+      return this.state.hasVar(name);
+    }
+
+    @Override
+    public double getVar(String name) {
+      return this.state.getVar(name);
+    }
+
+    @Override
+    public Env installFn(Fn fn) {
+      throw new UnsupportedOperationException("snapshot is read-only 😡");
+    }
+
+    @Override
+    public Env uninstallFn(Fn fn) {
+      throw new UnsupportedOperationException("snapshot is read-only 😡");
+    }
+
+    @Override
+    public Fn findFn(String name) {
+      return this.state.fns.get(name);
+    }
+  }
+}
@@ -2,6 +2,7 @@ package lost.calc.impl;
 
 import lost.calc.api.Env;
 import lost.calc.api.Fn;
+import lost.calc.api.Memo;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -9,6 +10,7 @@ import java.util.Map;
 public class DEnv implements Env {
   private final Map<String, Double> vars = new HashMap<>();
   private final Map<String, Fn> fns = new HashMap<>();
+  private Memo memo;
 
   @Override
   public Env putVar(String name,
@@ -43,4 +45,17 @@ public class DEnv implements Env {
   public Fn findFn(String name) {
     return fns.get(name);
   }
+
+  /**
+   * 设置纯函数调用使用的缓存, null 时不缓存, 见 {@link Env#memo()}
+   */
+  public DEnv memo(Memo memo) {
+    this.memo = memo;
+    return this;
+  }
+
+  @Override
+  public Memo memo() {
+    return this.memo;
+  }
 }
@@ -74,7 +74,8 @@ public class DLexer implements Lexer {
           if (this.stateData.state == stInteger) {
             result = tryUpdateStateAndGenerateToken(stDouble, pos++);
           } else {
-            throw new LexerError(STR."[\{pos}]: `.` must only be as decimal point of number 😡");
+            int at = pos;
+            throw new LexerError(() -> STR."[\{at}]: `.` must only be as decimal point of number 😡");
           }
         }
 
@@ -105,7 +106,10 @@ public class DLexer implements Lexer {
         }
 
         // 非法字符
-        else throw new LexerError(STR."[\{pos}]: `\{c}` is not a valid token 😡");
+        else {
+          int at = pos;
+          throw new LexerError(() -> STR."[\{at}]: `\{c}` is not a valid token 😡");
+        }
       }
 
       return result;
@@ -160,14 +164,14 @@ public class DLexer implements Lexer {
           try {
             yield new NumberToken(Double.parseDouble(tokenString), tokenSlice);
           } catch (Exception e) {
-            throw new LexerError(STR."\{tokenSlice}: `\{tokenString}` is not a valid number 😡");
+            throw new LexerError(() -> STR."\{tokenSlice}: `\{tokenString}` is not a valid number 😡");
           }
         }
         case stIdent -> new IdentToken(tokenString, tokenSlice);
         case stOperator -> {
           var operator = Operator.find(tokenString);
           if (operator == null)
-            throw new LexerError(STR."\{tokenSlice}: `\{tokenString}` is not a valid operator 😡");
+            throw new LexerError(() -> STR."\{tokenSlice}: `\{tokenString}` is not a valid operator 😡");
           yield new OperatorToken(operator, tokenSlice);
         }
       };
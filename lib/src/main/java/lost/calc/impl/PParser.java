@@ -0,0 +1,138 @@
+package lost.calc.impl;
+
+import lost.calc.api.Operator;
+import lost.calc.api.Parser;
+import lost.calc.api.Token;
+import lost.calc.api.Token.Slice;
+import lost.calc.api.TokenBuffer;
+import lost.calc.api.Tree;
+import lost.calc.api.Tree.*;
+import lost.calc.error.ParserError;
+
+import static lost.calc.api.TokenBuffer.*;
+
+/**
+ * 按 {@link Operator#order} 做优先级爬升的解析器, 与 {@link DParser} 产生相同的 tree
+ * <p>
+ * 直接读取 {@link TokenBuffer}, 单遍线性扫描, 不使用显式栈, lambda 或异常做流程控制.
+ * 与 DParser 一致的规则:
+ * <ul>
+ *   <li>同级运算符左结合, 包括 {@code **}</li>
+ *   <li>{@code !} 的操作数吸收所有 order 大于 {@code !} 的运算符, 如 {@code !a+b => !(a+b)}</li>
+ *   <li>表达式之后的 {@code !} 作用于其左侧, 如 {@code a! => !a}</li>
+ *   <li>函数参数允许末尾逗号, 如 {@code f(a,)}</li>
+ * </ul>
+ * DParser 会接受函数参数中未闭合的括号 (如 {@code f((a,b)}), 这里作为错误处理
+ */
+public class PParser implements Parser {
+
+  @Override
+  public Tree parse(Iterable<Token> tokens) {
+    var buffer = new TokenBuffer();
+    for (Token token : tokens) {
+      buffer.add(token);
+    }
+    return parse(buffer);
+  }
+
+  @Override
+  public Tree parse(TokenBuffer tokens) {
+    var result = new ParTree(Slice.both(9999));
+    var state = new State(tokens);
+    if (tokens.size() > 0) {
+      result.kids().addLast(state.parseExpr(0, result));
+      if (state.pos < tokens.size()) throw state.error(state.pos);
+    }
+    result.markCompleted();
+    return result;
+  }
+
+  private static final class State {
+    final TokenBuffer tokens;
+    int pos;
+
+    State(TokenBuffer tokens) {
+      this.tokens = tokens;
+    }
+
+    ParserError error(int i) {
+      return new ParserError(tokens.token(i));
+    }
+
+    boolean peek(byte kind) {
+      return pos < tokens.size() && tokens.kind(pos) == kind;
+    }
+
+    /**
+     * @param minOrder 只吸收 order 大于它的运算符
+     * @param parent   等待该表达式的节点, 用于提前结束时报错
+     */
+    Tree parseExpr(int minOrder,
+                   Tree parent) {
+      var lhs = parseOperand(parent);
+      while (peek(OPERATOR)) {
+        var op = tokens.operator(pos);
+        if (op.order <= minOrder) break;
+        var slice = tokens.slice(pos++);
+        if (op == Operator.Not) {
+          var current = new PrefixTree(op, slice);
+          current.kids().addLast(lhs);
+          lhs = current;
+        } else {
+          var current = new InfixTree(op, slice);
+          current.kids().addLast(lhs);
+          current.kids().addLast(parseExpr(op.order, current));
+          lhs = current;
+        }
+      }
+      return lhs;
+    }
+
+    Tree parseOperand(Tree parent) {
+      if (pos >= tokens.size()) throw new ParserError(parent);
+      int i = pos++;
+      return switch (tokens.kind(i)) {
+        case NUMBER -> new NumberTree(tokens.number(i), tokens.slice(i));
+        case IDENT -> {
+          if (!peek(OPEN)) yield new VarTree(tokens.ident(i), tokens.slice(i));
+          pos++;
+          yield parseCall(new CallTree(tokens.ident(i), tokens.slice(i)));
+        }
+        case OPEN -> {
+          var current = new ParTree(tokens.slice(i));
+          current.kids().addLast(parseExpr(0, current));
+          if (pos >= tokens.size()) throw new ParserError(current);
+          if (tokens.kind(pos) != CLOSE) throw error(pos);
+          pos++;
+          current.markCompleted();
+          yield current;
+        }
+        case OPERATOR -> {
+          if (tokens.operator(i) != Operator.Not) throw error(i);
+          var current = new PrefixTree(Operator.Not, tokens.slice(i));
+          current.kids().addLast(parseExpr(Operator.Not.order, current));
+          yield current;
+        }
+        default -> throw error(i);
+      };
+    }
+
+    Tree parseCall(CallTree current) {
+      while (true) {
+        if (peek(CLOSE)) {
+          pos++;
+          current.markCompleted();
+          return current;
+        }
+        current.kids().addLast(parseExpr(0, current));
+        if (pos >= tokens.size()) throw new ParserError(current);
+        switch (tokens.kind(pos)) {
+          case COMMA -> pos++;
+          case CLOSE -> {
+          }
+          default -> throw error(pos);
+        }
+      }
+    }
+  }
+}
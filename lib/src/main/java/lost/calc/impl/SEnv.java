@@ -0,0 +1,110 @@
+package lost.calc.impl;
+
+import lost.calc.api.Env;
+import lost.calc.api.Fn;
+import lost.calc.api.Memo;
+import lost.calc.error.EvalerError;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 按槽位存储变量的 Env
+ * <p>
+ * 变量第一次 {@link #putVar(String, double)} 时分配槽位, 值保存在 {@code double[]} 中,
+ * 链接后的表达式 (见 {@link lost.calc.link.Linker}) 直接按槽位读取, 无哈希查找与装箱
+ */
+public class SEnv implements Env {
+  private final Map<String, Integer> slots = new HashMap<>();
+  private final Map<String, Fn> fns = new HashMap<>();
+  private Memo memo;
+  private double[] values = new double[16];
+
+  /**
+   * @param name 变量名
+   * @return 槽位, 变量不存在时返回 -1
+   */
+  public int slotOf(String name) {
+    var slot = this.slots.get(name);
+    return slot == null ? -1 : slot;
+  }
+
+  public int slotCount() {
+    return this.slots.size();
+  }
+
+  /**
+   * 槽位数组, 新增变量扩容后会被替换, 不要长期持有
+   */
+  public double[] values() {
+    return this.values;
+  }
+
+  public double getVar(int slot) {
+    return this.values[slot];
+  }
+
+  public SEnv putVar(int slot,
+                     double value) {
+    if (slot < 0 || slot >= this.slots.size())
+      throw new EvalerError(STR."slot(\{slot}) not found from env 😡");
+    this.values[slot] = value;
+    return this;
+  }
+
+  @Override
+  public SEnv putVar(String name,
+                     double value) {
+    var slot = this.slots.get(name);
+    if (slot == null) {
+      slot = this.slots.size();
+      if (slot == this.values.length) {
+        this.values = Arrays.copyOf(this.values, slot * 2);
+      }
+      this.slots.put(name, slot);
+    }
+    this.values[slot] = value;
+    return this;
+  }
+
+  @Override
+  public boolean hasVar(String name) {
+    return this.slots.containsKey(name);
+  }
+
+  @Override
+  public double getVar(String name) {
+    return this.values[this.slots.get(name)];
+  }
+
+  @Override
+  public SEnv installFn(Fn fn) {
+    fns.put(fn.name(), fn);
+    return this;
+  }
+
+  @Override
+  public SEnv uninstallFn(Fn fn) {
+    fns.remove(fn.name());
+    return this;
+  }
+
+  @Override
+  public Fn findFn(String name) {
+    return fns.get(name);
+  }
+
+  /**
+   * 设置纯函数调用使用的缓存, null 时不缓存, 见 {@link Env#memo()}
+   */
+  public SEnv memo(Memo memo) {
+    this.memo = memo;
+    return this;
+  }
+
+  @Override
+  public Memo memo() {
+    return this.memo;
+  }
+}
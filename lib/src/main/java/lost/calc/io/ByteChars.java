@@ -0,0 +1,76 @@
+package lost.calc.io;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 把 {@link ByteBuffer} 的一段按 ISO-8859-1 看作 {@link CharSequence}, 不复制字节
+ * <p>
+ * 只在字节全为 ASCII 时与 UTF-8 解码一致, 可直接交给 {@link lost.calc.impl.BLexer#lex(CharSequence, lost.calc.api.TokenBuffer)};
+ * 含非 ASCII 字节的 UTF-8 文本应经由 {@link #of(ByteBuffer, int, int)}
+ */
+public final class ByteChars implements CharSequence {
+  private final ByteBuffer buffer;
+  private final int offset;
+  private final int length;
+
+  /**
+   * @param buffer 字节, 按绝对下标读取, 不改变其 position
+   * @param offset 起始下标
+   * @param length 长度
+   */
+  public ByteChars(ByteBuffer buffer,
+                   int offset,
+                   int length) {
+    if (offset < 0 || length < 0 || offset + length > buffer.limit()) {
+      throw new IndexOutOfBoundsException(STR."ByteChars: [offset:\{offset}, length:\{length}, limit:\{buffer.limit()}]");
+    }
+    this.buffer = buffer;
+    this.offset = offset;
+    this.length = length;
+  }
+
+  /**
+   * 全为 ASCII 时返回不复制的 {@link ByteChars}, 否则按 UTF-8 解码为字符串
+   */
+  public static CharSequence of(ByteBuffer buffer,
+                                int offset,
+                                int length) {
+    var chars = new ByteChars(buffer, offset, length);
+    for (int i = offset, end = offset + length; i < end; i++) {
+      if (buffer.get(i) < 0) return chars.decode(StandardCharsets.UTF_8);
+    }
+    return chars;
+  }
+
+  @Override
+  public int length() {
+    return this.length;
+  }
+
+  @Override
+  public char charAt(int index) {
+    return (char) (this.buffer.get(this.offset + index) & 0xFF);
+  }
+
+  @Override
+  public CharSequence subSequence(int start,
+                                  int end) {
+    if (start < 0 || start > end || end > this.length) {
+      throw new IndexOutOfBoundsException(STR."ByteChars: [start:\{start}, end:\{end}, length:\{this.length}]");
+    }
+    return new ByteChars(this.buffer, this.offset + start, end - start);
+  }
+
+  @Override
+  public String toString() {
+    return decode(StandardCharsets.ISO_8859_1);
+  }
+
+  private String decode(Charset charset) {
+    var bytes = new byte[this.length];
+    this.buffer.get(this.offset, bytes);
+    return new String(bytes, charset);
+  }
+}
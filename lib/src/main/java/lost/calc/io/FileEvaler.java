@@ -0,0 +1,277 @@
+package lost.calc.io;
+
+import lost.calc.api.Env;
+import lost.calc.api.TokenBuffer;
+import lost.calc.impl.BLexer;
+import lost.calc.impl.PParser;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 求值每行一个表达式的文件, 结果按行写入输出文件
+ * <p>
+ * 输入按区域 {@link FileChannel#map} 映射, 表达式通过 {@link ByteChars} 直接从映射的字节词法分析, 不构造行字符串;
+ * 含非 ASCII 字节的行按 UTF-8 解码后再分析.
+ * 三段流水线:
+ * <ul>
+ *   <li>读线程: 映射区域, 切分行, 每 {@link #BATCH} 行提交一批</li>
+ *   <li>工作线程: 每批独立的 {@link BLexer} / {@link TokenBuffer} / {@link PParser}, 词法, 语法分析并求值</li>
+ *   <li>调用线程: 按提交顺序取回结果, 经缓冲写入输出 channel</li>
+ * </ul>
+ * 进行中的批次数有上限, 堆内存占用与文件大小无关
+ * <p>
+ * 输出每行为结果值, 出错的行为 {@code ERROR: <message>}, 空行原样输出空行; env 在求值期间只读
+ */
+public final class FileEvaler {
+  /**
+   * 每批行数
+   */
+  static final int BATCH = 4096;
+  /**
+   * 每次映射的最大字节数, 单行不能超过该长度
+   */
+  static final int REGION = 1 << 28;
+  private static final int OUT_BUFFER = 1 << 16;
+  private static final byte[] NEWLINE = {'\n'};
+
+  private final Env env;
+  private final int workers;
+  private final int region;
+
+  /**
+   * @param env     变量与函数
+   * @param workers 求值线程数
+   */
+  public FileEvaler(Env env,
+                    int workers) {
+    this(env, workers, REGION);
+  }
+
+  /**
+   * @param region 每次映射的最大字节数, 单行不能超过该长度
+   */
+  public FileEvaler(Env env,
+                    int workers,
+                    int region) {
+    if (workers <= 0 || region <= 0) {
+      throw new IllegalArgumentException(STR."FileEvaler: must be workers > 0 and region > 0, [workers:\{workers}, region:\{region}]");
+    }
+    this.env = env;
+    this.workers = workers;
+    this.region = region;
+  }
+
+  /**
+   * 运行统计
+   *
+   * @param lines  行数
+   * @param errors 出错的行数
+   * @param bytes  输入字节数
+   */
+  public record Stats(long lines, long errors, long bytes) {
+  }
+
+  /**
+   * 一批行, 下标相对于 buffer
+   */
+  private record Batch(ByteBuffer buffer, int[] starts, int[] ends, int size) {
+  }
+
+  /**
+   * 一批结果, messages 只在出错的位置非 null
+   */
+  private record Result(double[] values, String[] messages, int size) {
+  }
+
+  public Stats run(Path input,
+                   Path output) throws IOException {
+    var pool = Executors.newFixedThreadPool(this.workers);
+    // 读线程提交的批次, 按顺序等待结果; 容量限制了进行中的批次数
+    BlockingQueue<Future<Result>> pending = new ArrayBlockingQueue<>(this.workers * 2);
+    Thread reader = null;
+    try (var in = FileChannel.open(input, StandardOpenOption.READ);
+         var out = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                 StandardOpenOption.TRUNCATE_EXISTING)) {
+      reader = new Thread(() -> read(in, pool, pending), "calc-file-reader");
+      reader.setDaemon(true);
+      reader.start();
+      var stats = write(out, pending);
+      return new Stats(stats[0], stats[1], in.size());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("interrupted", e);
+    } finally {
+      if (reader != null) reader.interrupt();
+      pool.shutdownNow();
+    }
+  }
+
+  /**
+   * 读线程, 结束时提交一个 null 结果作为结束标记, 出错时提交一个失败的结果
+   */
+  private void read(FileChannel in,
+                    ExecutorService pool,
+                    BlockingQueue<Future<Result>> pending) {
+    try {
+      long size = in.size();
+      long pos = 0;
+      while (pos < size) {
+        int len = (int) Math.min(this.region, size - pos);
+        MappedByteBuffer buffer = in.map(FileChannel.MapMode.READ_ONLY, pos, len);
+        int consumed = split(buffer, len, pos + len == size, pool, pending);
+        if (consumed == 0)
+          throw new IOException(STR."line at byte \{pos} is longer than \{this.region} bytes");
+        pos += consumed;
+      }
+      pending.put(pool.submit(() -> null));
+    } catch (InterruptedException e) {
+      // 写入方已结束
+    } catch (IOException | RuntimeException e) {
+      var error = e instanceof IOException io ? new UncheckedIOException(io) : (RuntimeException) e;
+      try {
+        pending.put(failed(pool, error));
+      } catch (InterruptedException ignored) {
+        // 写入方已结束
+      }
+    }
+  }
+
+  private static Future<Result> failed(ExecutorService pool,
+                                       RuntimeException e) {
+    return pool.submit(() -> {
+      throw e;
+    });
+  }
+
+  /**
+   * 切分区域中的完整行并提交
+   *
+   * @param last 是否为文件末尾, 此时最后一行可以没有换行符
+   * @return 已提交的字节数
+   */
+  private int split(ByteBuffer buffer,
+                    int len,
+                    boolean last,
+                    ExecutorService pool,
+                    BlockingQueue<Future<Result>> pending) throws InterruptedException {
+    var starts = new int[BATCH];
+    var ends = new int[BATCH];
+    int n = 0;
+    int start = 0;
+    for (int i = 0; i < len; i++) {
+      if (buffer.get(i) != '\n') continue;
+      starts[n] = start;
+      ends[n] = i > start && buffer.get(i - 1) == '\r' ? i - 1 : i;
+      start = i + 1;
+      if (++n == BATCH) {
+        pending.put(submit(pool, new Batch(buffer, starts, ends, n)));
+        starts = new int[BATCH];
+        ends = new int[BATCH];
+        n = 0;
+      }
+    }
+    if (last && start < len) {
+      starts[n] = start;
+      ends[n] = buffer.get(len - 1) == '\r' ? len - 1 : len;
+      n++;
+      start = len;
+    }
+    if (n > 0) pending.put(submit(pool, new Batch(buffer, starts, ends, n)));
+    return start;
+  }
+
+  private Future<Result> submit(ExecutorService pool,
+                                Batch batch) {
+    return pool.submit(() -> eval(batch));
+  }
+
+  private Result eval(Batch batch) {
+    var lexer = new BLexer();
+    var tokens = new TokenBuffer();
+    var parser = new PParser();
+    var values = new double[batch.size];
+    var messages = new String[batch.size];
+    for (int i = 0; i < batch.size; i++) {
+      int start = batch.starts[i];
+      int len = batch.ends[i] - start;
+      if (len == 0) {
+        values[i] = Double.NaN;
+        messages[i] = "";
+        continue;
+      }
+      try {
+        values[i] = parser.parse(lexer.lex(ByteChars.of(batch.buffer, start, len), tokens)).eval(this.env);
+      } catch (RuntimeException e) {
+        values[i] = Double.NaN;
+        messages[i] = String.valueOf(e.getMessage()).replace('\n', ' ');
+      }
+    }
+    return new Result(values, messages, batch.size);
+  }
+
+  /**
+   * @return {行数, 出错行数}
+   */
+  private static long[] write(FileChannel out,
+                              BlockingQueue<Future<Result>> pending) throws IOException, InterruptedException {
+    var buffer = ByteBuffer.allocateDirect(OUT_BUFFER);
+    long lines = 0;
+    long errors = 0;
+    while (true) {
+      Result result;
+      try {
+        result = pending.take().get();
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof UncheckedIOException io) throw io.getCause();
+        throw new IOException(e.getCause());
+      }
+      if (result == null) break;
+      for (int i = 0; i < result.size; i++) {
+        var message = result.messages[i];
+        String line;
+        if (message == null) {
+          line = Double.toString(result.values[i]);
+        } else if (message.isEmpty()) {
+          line = "";
+        } else {
+          line = STR."ERROR: \{message}";
+          errors++;
+        }
+        put(out, buffer, line.getBytes(StandardCharsets.UTF_8));
+        put(out, buffer, NEWLINE);
+      }
+      lines += result.size;
+    }
+    buffer.flip();
+    while (buffer.hasRemaining()) out.write(buffer);
+    return new long[]{lines, errors};
+  }
+
+  private static void put(FileChannel out,
+                          ByteBuffer buffer,
+                          byte[] bytes) throws IOException {
+    if (buffer.remaining() < bytes.length) {
+      buffer.flip();
+      while (buffer.hasRemaining()) out.write(buffer);
+      buffer.clear();
+      if (bytes.length > buffer.capacity()) {
+        out.write(ByteBuffer.wrap(bytes));
+        return;
+      }
+    }
+    buffer.put(bytes);
+  }
+}
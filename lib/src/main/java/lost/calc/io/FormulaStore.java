@@ -0,0 +1,427 @@
+package lost.calc.io;
+
+import lost.calc.api.Env;
+import lost.calc.api.Operator;
+import lost.calc.api.Token.Slice;
+import lost.calc.api.Tree;
+import lost.calc.api.Tree.*;
+import lost.calc.error.EvalerError;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 已编译公式的二进制存储, 启动时无需重新词法 / 语法分析
+ * <p>
+ * 格式 (大端序, varint 为无符号 LEB128):
+ * <pre>
+ * magic      u4  "CALC"
+ * version    u2  {@link #VERSION}
+ * flags      u2  bit0: 含 Slice
+ * idents     u4 个数, 每个 u2 字节数 + UTF-8, 公式名, 变量名, 函数名共用
+ * formulas   u4 个数, 每个 u4 名字下标 + u8 节点在文件中的偏移
+ * nodes      前序编码的节点
+ * </pre>
+ * 节点: u1 种类, [varint start + varint (end - start)], 然后按种类:
+ * <ul>
+ *   <li>NUMBER: f8</li>
+ *   <li>VAR: varint 名字下标</li>
+ *   <li>CALL: varint 名字下标, varint 参数个数, 参数</li>
+ *   <li>PAR: varint 子节点个数, 子节点</li>
+ *   <li>PREFIX / INFIX / POSTFIX: u1 {@link Operator} 序号, varint 子节点个数, 子节点</li>
+ * </ul>
+ * 读取时整个文件只映射一次, 可重建 {@link Tree}, 也可不建树直接在映射的字节上求值;
+ * 单个文件不超过 2 GiB
+ */
+public final class FormulaStore {
+  static final int MAGIC = 0x43414C43;
+  static final int VERSION = 1;
+  private static final int FLAG_SLICES = 1;
+
+  private static final int NUMBER = 0;
+  private static final int VAR = 1;
+  private static final int CALL = 2;
+  private static final int PAR = 3;
+  private static final int PREFIX = 4;
+  private static final int INFIX = 5;
+  private static final int POSTFIX = 6;
+
+  private static final Slice NO_SLICE = Slice.both(0);
+
+  private final ByteBuffer buffer;
+  private final boolean slices;
+  private final String[] idents;
+  private final int[] names;
+  private final long[] offsets;
+  /**
+   * 公式名 => 下标, 首次 {@link #indexOf} 时构建
+   */
+  private Map<String, Integer> index;
+
+  private FormulaStore(ByteBuffer buffer) {
+    this.buffer = buffer.order(ByteOrder.BIG_ENDIAN);
+    if (buffer.getInt(0) != MAGIC)
+      throw new IllegalArgumentException("FormulaStore: bad magic");
+    int version = buffer.getShort(4) & 0xFFFF;
+    if (version != VERSION)
+      throw new IllegalArgumentException(STR."FormulaStore: unsupported version \{version}, expected \{VERSION}");
+    this.slices = (buffer.getShort(6) & FLAG_SLICES) != 0;
+
+    int pos = 8;
+    this.idents = new String[buffer.getInt(pos)];
+    pos += 4;
+    for (int i = 0; i < this.idents.length; i++) {
+      int len = buffer.getShort(pos) & 0xFFFF;
+      var bytes = new byte[len];
+      buffer.get(pos + 2, bytes);
+      this.idents[i] = new String(bytes, StandardCharsets.UTF_8);
+      pos += 2 + len;
+    }
+    int count = buffer.getInt(pos);
+    pos += 4;
+    this.names = new int[count];
+    this.offsets = new long[count];
+    for (int i = 0; i < count; i++) {
+      this.names[i] = buffer.getInt(pos);
+      this.offsets[i] = buffer.getLong(pos + 4);
+      pos += 12;
+    }
+  }
+
+  /**
+   * 映射并读取文件头, 节点在使用时才解码
+   */
+  public static FormulaStore open(Path path) throws IOException {
+    try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      return new FormulaStore(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    }
+  }
+
+  public static FormulaStore of(byte[] bytes) {
+    return new FormulaStore(ByteBuffer.wrap(bytes));
+  }
+
+  public int size() {
+    return this.names.length;
+  }
+
+  public String name(int i) {
+    return this.idents[this.names[i]];
+  }
+
+  /**
+   * @return 下标, 不存在时为 -1
+   */
+  public synchronized int indexOf(String name) {
+    if (this.index == null) {
+      this.index = new HashMap<>(this.names.length * 2);
+      for (int i = 0; i < this.names.length; i++) {
+        this.index.put(name(i), i);
+      }
+    }
+    return this.index.getOrDefault(name, -1);
+  }
+
+  /**
+   * 重建 tree, 未保存 Slice 时所有节点的 Slice 为 [0,0]
+   */
+  public Tree tree(int i) {
+    return new Decoder(position(i)).tree();
+  }
+
+  /**
+   * 不建树, 直接在编码上求值, 语义与 {@link Tree#eval(Env)} 一致 (含短路)
+   */
+  public double eval(int i,
+                     Env env) {
+    return new Decoder(position(i)).eval(env);
+  }
+
+  private int position(int i) {
+    return Math.toIntExact(this.offsets[i]);
+  }
+
+  /**
+   * 写入文件
+   *
+   * @param formulas 公式名 => 已完成的 tree
+   * @param slices   是否保存 Slice
+   */
+  public static void write(Map<String, Tree> formulas,
+                           boolean slices,
+                           Path path) throws IOException {
+    try (var out = Files.newOutputStream(path)) {
+      write(formulas, slices, out);
+    }
+  }
+
+  public static void write(Map<String, Tree> formulas,
+                           boolean slices,
+                           OutputStream out) throws IOException {
+    var idents = new LinkedHashMap<String, Integer>();
+    var nodes = new ByteArrayOutputStream();
+    var encoder = new Encoder(new DataOutputStream(nodes), idents, slices);
+    var names = new int[formulas.size()];
+    var offsets = new long[formulas.size()];
+    int i = 0;
+    for (var e : formulas.entrySet()) {
+      names[i] = encoder.ident(e.getKey());
+      offsets[i] = nodes.size();
+      encoder.node(e.getValue());
+      i++;
+    }
+
+    var header = new ByteArrayOutputStream();
+    var h = new DataOutputStream(header);
+    h.writeInt(MAGIC);
+    h.writeShort(VERSION);
+    h.writeShort(slices ? FLAG_SLICES : 0);
+    h.writeInt(idents.size());
+    for (String ident : idents.keySet()) {
+      var bytes = ident.getBytes(StandardCharsets.UTF_8);
+      if (bytes.length > 0xFFFF)
+        throw new IllegalArgumentException(STR."FormulaStore: ident too long, [length:\{bytes.length}]");
+      h.writeShort(bytes.length);
+      h.write(bytes);
+    }
+    h.writeInt(names.length);
+    long base = header.size() + 12L * names.length;
+    for (int k = 0; k < names.length; k++) {
+      h.writeInt(names[k]);
+      h.writeLong(base + offsets[k]);
+    }
+    header.writeTo(out);
+    nodes.writeTo(out);
+  }
+
+  private record Encoder(DataOutputStream out,
+                         Map<String, Integer> idents,
+                         boolean slices) {
+    int ident(String name) {
+      return this.idents.computeIfAbsent(name, k -> this.idents.size());
+    }
+
+    void node(Tree tree) throws IOException {
+      if (!tree.isCompleted())
+        throw new IllegalArgumentException(STR."FormulaStore: \{tree} is not completed");
+      switch (tree) {
+        case NumberTree n -> {
+          head(NUMBER, n);
+          this.out.writeDouble(n.value);
+          return;
+        }
+        case VarTree v -> {
+          head(VAR, v);
+          varint(ident(v.value));
+          return;
+        }
+        case CallTree c -> {
+          head(CALL, c);
+          varint(ident(c.value));
+        }
+        case ParTree p -> head(PAR, p);
+        case PrefixTree p -> {
+          head(PREFIX, p);
+          this.out.writeByte(p.value.ordinal());
+        }
+        case InfixTree p -> {
+          head(INFIX, p);
+          this.out.writeByte(p.value.ordinal());
+        }
+        case PostfixTree p -> {
+          head(POSTFIX, p);
+          this.out.writeByte(p.value.ordinal());
+        }
+      }
+      varint(tree.kids().size());
+      for (Tree kid : tree.kids()) {
+        node(kid);
+      }
+    }
+
+    private void head(int kind,
+                      Tree tree) throws IOException {
+      this.out.writeByte(kind);
+      if (this.slices) {
+        varint(tree.slice().start());
+        varint(tree.slice().end() - tree.slice().start());
+      }
+    }
+
+    private void varint(int v) throws IOException {
+      while ((v & ~0x7F) != 0) {
+        this.out.writeByte((v & 0x7F) | 0x80);
+        v >>>= 7;
+      }
+      this.out.writeByte(v);
+    }
+  }
+
+  /**
+   * 从某个偏移开始顺序读取一个节点
+   */
+  private final class Decoder {
+    private int pos;
+
+    Decoder(int pos) {
+      this.pos = pos;
+    }
+
+    private int u1() {
+      return buffer.get(this.pos++) & 0xFF;
+    }
+
+    private int varint() {
+      int result = 0;
+      for (int shift = 0; ; shift += 7) {
+        int b = u1();
+        result |= (b & 0x7F) << shift;
+        if ((b & 0x80) == 0) return result;
+      }
+    }
+
+    private double f8() {
+      var v = buffer.getDouble(this.pos);
+      this.pos += 8;
+      return v;
+    }
+
+    private Slice slice() {
+      if (!slices) return NO_SLICE;
+      int start = varint();
+      return new Slice(start, start + varint());
+    }
+
+    Tree tree() {
+      int kind = u1();
+      var slice = slice();
+      Tree tree = switch (kind) {
+        case NUMBER -> new NumberTree(f8(), slice);
+        case VAR -> new VarTree(idents[varint()], slice);
+        case CALL -> new CallTree(idents[varint()], slice);
+        case PAR -> new ParTree(slice);
+        case PREFIX -> new PrefixTree(Operator.of(u1()), slice);
+        case INFIX -> new InfixTree(Operator.of(u1()), slice);
+        case POSTFIX -> new PostfixTree(Operator.of(u1()), slice);
+        default -> throw new IllegalStateException(STR."FormulaStore: bad node kind \{kind} at \{this.pos - 1}");
+      };
+      if (kind == NUMBER || kind == VAR) return tree;
+      int n = varint();
+      for (int i = 0; i < n; i++) {
+        tree.kids().addLast(tree());
+      }
+      tree.markCompleted();
+      return tree;
+    }
+
+    /**
+     * 跳过一个节点 (短路时未选中的分支)
+     */
+    private void skip() {
+      int kind = u1();
+      slice();
+      switch (kind) {
+        case NUMBER -> this.pos += 8;
+        case VAR -> varint();
+        default -> {
+          if (kind == CALL) varint();
+          else if (kind != PAR) u1();
+          int n = varint();
+          for (int i = 0; i < n; i++) {
+            skip();
+          }
+        }
+      }
+    }
+
+    double eval(Env env) {
+      int at = this.pos;
+      int kind = u1();
+      slice();
+      switch (kind) {
+        case NUMBER -> {
+          return f8();
+        }
+        case VAR -> {
+          var name = idents[varint()];
+          if (env.hasVar(name)) return env.getVar(name);
+          throw new EvalerError(STR."var `\{name}` not found from env 😡");
+        }
+        case CALL -> {
+          return call(idents[varint()], varint(), env);
+        }
+        case PAR -> {
+          if (varint() != 1) throw new EvalerError(STR."ParTree at \{at} params count not match 😡");
+          return eval(env);
+        }
+        case PREFIX -> {
+          var op = Operator.of(u1());
+          if (varint() != 1) throw new EvalerError(STR."PrefixTree(\{op}) at \{at} params count not match 😡");
+          if (op != Operator.Not) throw new EvalerError(STR."PrefixTree(\{op}) at \{at} is not a prefix-operator 😡");
+          return op.prefix(eval(env));
+        }
+        case INFIX -> {
+          var op = Operator.of(u1());
+          if (varint() != 2) throw new EvalerError(STR."InfixTree(\{op}) at \{at} params count not match 😡");
+          var lhs = eval(env);
+          if (op == Operator.And || op == Operator.Or) {
+            if ((op == Operator.And) == (lhs == 0)) {
+              skip();
+              return op == Operator.And ? 0 : 1;
+            }
+            return eval(env) != 0 ? 1 : 0;
+          }
+          return op.infix(lhs, eval(env));
+        }
+        case POSTFIX -> throw new EvalerError(STR."PostfixTree(\{Operator.of(u1())}) at \{at} is not a post-operator 😡");
+        default -> throw new IllegalStateException(STR."FormulaStore: bad node kind \{kind} at \{at}");
+      }
+    }
+
+    private double call(String name,
+                        int n,
+                        Env env) {
+      if (CallTree.IF.equals(name)) {
+        if (n != 3) throw new EvalerError(STR."CallTree(\{name}) params count not match 😡");
+        if (eval(env) != 0) {
+          var v = eval(env);
+          skip();
+          return v;
+        }
+        skip();
+        return eval(env);
+      }
+      var fn = env.findFn(name);
+      if (fn == null)
+        throw new EvalerError(STR."CallTree(\{name}) not found from env 😡");
+      if (n != fn.paramCount())
+        throw new EvalerError(STR."CallTree(\{name}) params count not match 😡");
+      return switch (n) {
+        case 0 -> fn.call0();
+        case 1 -> fn.call1(eval(env));
+        case 2 -> fn.call2(eval(env), eval(env));
+        case 3 -> fn.call3(eval(env), eval(env), eval(env));
+        case 4 -> fn.call4(eval(env), eval(env), eval(env), eval(env));
+        default -> {
+          var params = new double[n];
+          for (int i = 0; i < n; i++) {
+            params[i] = eval(env);
+          }
+          yield fn.call(params);
+        }
+      };
+    }
+  }
+}
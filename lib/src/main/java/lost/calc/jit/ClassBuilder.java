@@ -0,0 +1,412 @@
+package lost.calc.jit;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * 最小的 class 文件生成器, 只覆盖 {@link Jit} 用到的指令
+ */
+final class ClassBuilder {
+  static final int VERSION = 61;
+
+  static final int ACC_PUBLIC = 0x0001;
+  static final int ACC_PRIVATE = 0x0002;
+  static final int ACC_FINAL = 0x0010;
+  static final int ACC_SUPER = 0x0020;
+
+  private final ConstantPool pool = new ConstantPool();
+  private final String name;
+  private final List<byte[]> fields = new ArrayList<>();
+  private final List<byte[]> methods = new ArrayList<>();
+  private final int[] interfaces;
+
+  ClassBuilder(String name,
+               String... interfaces) {
+    this.name = name;
+    this.interfaces = new int[interfaces.length];
+    for (int i = 0; i < interfaces.length; i++) {
+      this.interfaces[i] = pool.clazz(interfaces[i]);
+    }
+  }
+
+  ConstantPool pool() {
+    return this.pool;
+  }
+
+  void field(int access,
+             String name,
+             String descriptor) {
+    var out = new Out();
+    out.u2(access);
+    out.u2(pool.utf8(name));
+    out.u2(pool.utf8(descriptor));
+    out.u2(0);
+    fields.add(out.bytes());
+  }
+
+  void method(int access,
+              String name,
+              String descriptor,
+              Code code) {
+    var out = new Out();
+    out.u2(access);
+    out.u2(pool.utf8(name));
+    out.u2(pool.utf8(descriptor));
+    out.u2(1);
+    var body = code.bytes();
+    var frames = code.stackMapTable();
+    out.u2(pool.utf8("Code"));
+    out.u4(12 + body.length + (frames == null ? 0 : 6 + frames.length));
+    out.u2(code.maxStack());
+    out.u2(code.maxLocals());
+    out.u4(body.length);
+    out.raw(body);
+    out.u2(0);
+    if (frames == null) {
+      out.u2(0);
+    } else {
+      out.u2(1);
+      out.u2(pool.utf8("StackMapTable"));
+      out.u4(frames.length);
+      out.raw(frames);
+    }
+    methods.add(out.bytes());
+  }
+
+  byte[] build() {
+    int thisClass = pool.clazz(this.name);
+    int superClass = pool.clazz("java/lang/Object");
+    var out = new Out();
+    out.u4(0xCAFEBABE);
+    out.u2(0);
+    out.u2(VERSION);
+    pool.writeTo(out);
+    out.u2(ACC_FINAL | ACC_SUPER);
+    out.u2(thisClass);
+    out.u2(superClass);
+    out.u2(interfaces.length);
+    for (int i : interfaces) out.u2(i);
+    out.u2(fields.size());
+    fields.forEach(out::raw);
+    out.u2(methods.size());
+    methods.forEach(out::raw);
+    out.u2(0);
+    return out.bytes();
+  }
+
+  static final class ConstantPool {
+    private final Out out = new Out();
+    private final Map<Object, Integer> index = new HashMap<>();
+    private int count = 1;
+
+    private record Key(int tag, Object a, Object b, Object c) {
+    }
+
+    private int add(Key key,
+                    int slots,
+                    Consumer<Out> writer) {
+      var i = index.get(key);
+      if (i != null) return i;
+      i = count;
+      writer.accept(out);
+      count += slots;
+      index.put(key, i);
+      return i;
+    }
+
+    int utf8(String s) {
+      return add(new Key(1, s, null, null), 1, o -> {
+        o.u1(1);
+        o.utf(s);
+      });
+    }
+
+    int clazz(String internalName) {
+      int n = utf8(internalName);
+      return add(new Key(7, internalName, null, null), 1, o -> {
+        o.u1(7);
+        o.u2(n);
+      });
+    }
+
+    int integer(int v) {
+      return add(new Key(3, v, null, null), 1, o -> {
+        o.u1(3);
+        o.u4(v);
+      });
+    }
+
+    int dbl(double v) {
+      long bits = Double.doubleToRawLongBits(v);
+      return add(new Key(6, bits, null, null), 2, o -> {
+        o.u1(6);
+        o.u4((int) (bits >>> 32));
+        o.u4((int) bits);
+      });
+    }
+
+    private int nameAndType(String name,
+                            String descriptor) {
+      int n = utf8(name);
+      int d = utf8(descriptor);
+      return add(new Key(12, name, descriptor, null), 1, o -> {
+        o.u1(12);
+        o.u2(n);
+        o.u2(d);
+      });
+    }
+
+    private int ref(int tag,
+                    String owner,
+                    String name,
+                    String descriptor) {
+      int c = clazz(owner);
+      int nt = nameAndType(name, descriptor);
+      return add(new Key(tag, owner, name, descriptor), 1, o -> {
+        o.u1(tag);
+        o.u2(c);
+        o.u2(nt);
+      });
+    }
+
+    int field(String owner,
+              String name,
+              String descriptor) {
+      return ref(9, owner, name, descriptor);
+    }
+
+    int method(String owner,
+               String name,
+               String descriptor) {
+      return ref(10, owner, name, descriptor);
+    }
+
+    int interfaceMethod(String owner,
+                        String name,
+                        String descriptor) {
+      return ref(11, owner, name, descriptor);
+    }
+
+    void writeTo(Out o) {
+      o.u2(count);
+      o.raw(out.bytes());
+    }
+  }
+
+  /**
+   * StackMapTable 中的验证类型
+   */
+  static final int T_INT = 1;
+  static final int T_DOUBLE = 3;
+
+  static int object(int classIndex) {
+    return 7 << 16 | classIndex;
+  }
+
+  /**
+   * 跳转目标
+   */
+  static final class Label {
+    private int target = -1;
+    private final List<Integer> refs = new ArrayList<>();
+  }
+
+  /**
+   * 方法体, 记录操作数栈深度 (以 slot 计) 以计算 max_stack
+   * <p>
+   * 有跳转时, 每个跳转目标需要通过 {@link #bind} 给出该处的局部变量与操作数栈类型, 用于生成 StackMapTable
+   */
+  static final class Code {
+    private final Out out = new Out();
+    private final int maxLocals;
+    private final TreeMap<Integer, int[][]> frames = new TreeMap<>();
+    private int stack;
+    private int maxStack;
+
+    Code(int maxLocals) {
+      this.maxLocals = maxLocals;
+    }
+
+    /**
+     * 写入跳转指令, 偏移量在 {@link #bind} 时回填
+     */
+    Code jump(int opcode,
+              Label label,
+              int delta) {
+      label.refs.add(out.size());
+      out.u1(opcode);
+      out.u2(0);
+      return stack(delta);
+    }
+
+    /**
+     * 把 label 绑定到当前位置
+     *
+     * @param locals 局部变量类型
+     * @param types  操作数栈类型, 栈底在前
+     */
+    Code bind(Label label,
+              int[] locals,
+              int[] types) {
+      label.target = out.size();
+      for (int ref : label.refs) {
+        out.patch2(ref + 1, label.target - ref);
+      }
+      frames.put(label.target, new int[][]{locals, types});
+      int slots = 0;
+      for (int t : types) slots += t == T_DOUBLE ? 2 : 1;
+      stack = slots;
+      maxStack = Math.max(maxStack, stack);
+      return this;
+    }
+
+    byte[] stackMapTable() {
+      if (frames.isEmpty()) return null;
+      var o = new Out();
+      o.u2(frames.size());
+      int last = -1;
+      for (var e : frames.entrySet()) {
+        o.u1(255); // full_frame
+        o.u2(e.getKey() - last - 1);
+        last = e.getKey();
+        for (int[] types : e.getValue()) {
+          o.u2(types.length);
+          for (int t : types) {
+            o.u1(t >>> 16 == 0 ? t : 7);
+            if (t >>> 16 != 0) o.u2(t & 0xFFFF);
+          }
+        }
+      }
+      return o.bytes();
+    }
+
+    int maxStack() {
+      return maxStack;
+    }
+
+    int maxLocals() {
+      return maxLocals;
+    }
+
+    int size() {
+      return out.size();
+    }
+
+    byte[] bytes() {
+      return out.bytes();
+    }
+
+    /**
+     * 写入一条指令
+     *
+     * @param opcode 指令
+     * @param delta  栈深度变化
+     */
+    Code op(int opcode,
+            int delta) {
+      out.u1(opcode);
+      return stack(delta);
+    }
+
+    Code op1(int opcode,
+             int operand,
+             int delta) {
+      out.u1(opcode);
+      out.u1(operand);
+      return stack(delta);
+    }
+
+    Code op2(int opcode,
+             int operand,
+             int delta) {
+      out.u1(opcode);
+      out.u2(operand);
+      return stack(delta);
+    }
+
+    Code invokeInterface(int ref,
+                         int argSlots,
+                         int delta) {
+      out.u1(0xb9);
+      out.u2(ref);
+      out.u1(argSlots + 1);
+      out.u1(0);
+      return stack(delta);
+    }
+
+    /**
+     * 压入 int 常量, 超出 short 范围时经由常量池 ldc
+     */
+    Code iconst(int v,
+                ConstantPool pool) {
+      if (v >= -1 && v <= 5) return op(0x03 + v, 1);
+      if (v >= Byte.MIN_VALUE && v <= Byte.MAX_VALUE) return op1(0x10, v & 0xFF, 1);
+      if (v >= Short.MIN_VALUE && v <= Short.MAX_VALUE) return op2(0x11, v & 0xFFFF, 1);
+      int index = pool.integer(v);
+      return index <= 0xFF ? op1(0x12, index, 1) : op2(0x13, index, 1);
+    }
+
+    private Code stack(int delta) {
+      stack += delta;
+      maxStack = Math.max(maxStack, stack);
+      return this;
+    }
+  }
+
+  static final class Out {
+    private byte[] buf = new byte[64];
+    private int size;
+
+    void u1(int v) {
+      if (size == buf.length) buf = Arrays.copyOf(buf, size * 2);
+      buf[size++] = (byte) v;
+    }
+
+    void u2(int v) {
+      u1(v >>> 8);
+      u1(v);
+    }
+
+    void u4(int v) {
+      u2(v >>> 16);
+      u2(v);
+    }
+
+    void patch2(int pos,
+                int v) {
+      buf[pos] = (byte) (v >>> 8);
+      buf[pos + 1] = (byte) v;
+    }
+
+    void utf(String s) {
+      var bytes = new ByteArrayOutputStream();
+      try {
+        new DataOutputStream(bytes).writeUTF(s);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      raw(bytes.toByteArray());
+    }
+
+    void raw(byte[] b) {
+      for (byte x : b) u1(x);
+    }
+
+    int size() {
+      return size;
+    }
+
+    byte[] bytes() {
+      return Arrays.copyOf(buf, size);
+    }
+  }
+}
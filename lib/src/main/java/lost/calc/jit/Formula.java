@@ -0,0 +1,14 @@
+package lost.calc.jit;
+
+/**
+ * 编译为 JVM 字节码的表达式
+ */
+@FunctionalInterface
+public interface Formula {
+
+  /**
+   * @param vars 槽位数组, 布局与链接时的 {@link lost.calc.impl.SEnv} 一致
+   * @return 结果
+   */
+  double evaluate(double[] vars);
+}
@@ -0,0 +1,273 @@
+package lost.calc.jit;
+
+import lost.calc.api.Fn;
+import lost.calc.api.Operator;
+import lost.calc.api.Tree;
+import lost.calc.error.EvalerError;
+import lost.calc.impl.SEnv;
+import lost.calc.link.Linked;
+import lost.calc.link.Linker;
+import lost.calc.link.Program;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static lost.calc.jit.ClassBuilder.*;
+
+/**
+ * 把链接后的表达式编译为 hidden class, 整个表达式成为一个 {@link Formula#evaluate(double[])} 方法体,
+ * 便于 JIT 内联为直线运算
+ * <p>
+ * 比较运算用 dcmpl / dcmpg 的结果做整数运算得到 1 / 0, 不产生分支, 语义与 {@link Operator#infix} 一致 (含 NaN);
+ * {@code &&} / {@code ||} / {@code if} 需要短路, 编译为跳转, 并为每个跳转目标生成 StackMapTable 帧
+ */
+public final class Jit {
+  private static final String NAME = "lost/calc/jit/Formula$Impl";
+  private static final String FN = "lost/calc/api/Fn";
+  private static final String FNS_DESC = "[Llost/calc/api/Fn;";
+  /**
+   * 单个方法字节码上限, 跳转偏移为 16 位有符号数, 取 32767
+   */
+  private static final int MAX_CODE = 32767;
+
+  private Jit() {
+  }
+
+  public static Formula compile(Tree tree,
+                                SEnv env) {
+    return compile(Linker.link(tree, env));
+  }
+
+  public static Formula compile(Program program) {
+    return compile(program.root());
+  }
+
+  /**
+   * 编译链接后的表达式, 超出单方法字节码上限时退回 {@link Linked#eval(double[])}
+   */
+  public static Formula compile(Linked root) {
+    var fns = new ArrayList<Fn>();
+    var cb = new ClassBuilder(NAME, "lost/calc/jit/Formula");
+    cb.field(ACC_PRIVATE | ACC_FINAL, "fns", FNS_DESC);
+
+    var pool = cb.pool();
+    var init = new Code(2);
+    init.op(0x2a, 1)                                                          // aload_0
+        .op2(0xb7, pool.method("java/lang/Object", "<init>", "()V"), -1)   // invokespecial
+        .op(0x2a, 1)                                                          // aload_0
+        .op(0x2b, 1)                                                          // aload_1
+        .op2(0xb5, pool.field(NAME, "fns", FNS_DESC), -2)                  // putfield
+        .op(0xb1, 0);                                                         // return
+    cb.method(ACC_PUBLIC, "<init>", STR."(\{FNS_DESC})V", init);
+
+    var code = new Code(2);
+    var locals = new int[]{object(pool.clazz(NAME)), object(pool.clazz("[D"))};
+    new Emitter(code, pool, fns, locals).emit(root, new int[0]);
+    code.op(0xaf, -2);                                                        // dreturn
+    if (code.size() > MAX_CODE) {
+      return root::eval;
+    }
+    cb.method(ACC_PUBLIC | ACC_FINAL, "evaluate", "([D)D", code);
+
+    try {
+      var lookup = MethodHandles.lookup().defineHiddenClass(cb.build(), true);
+      var ctor = lookup.findConstructor(lookup.lookupClass(), MethodType.methodType(void.class, Fn[].class));
+      return (Formula) ctor.invoke(fns.toArray(Fn[]::new));
+    } catch (Throwable e) {
+      throw new EvalerError(STR."jit compile failed: \{e} 😡");
+    }
+  }
+
+  /**
+   * 递归生成字节码, {@code pending} 为当前节点之下操作数栈上已有值的验证类型, 用于跳转目标的帧
+   */
+  private record Emitter(Code code,
+                         ConstantPool pool,
+                         List<Fn> fns,
+                         int[] locals) {
+    void emit(Linked node,
+              int[] pending) {
+      switch (node) {
+        case Linked.Num n -> dconst(n.value(), code, pool);
+        case Linked.Var v -> {
+          code.op(0x2b, 1);                                                   // aload_1
+          code.iconst(v.slot(), pool);
+          code.op(0x31, 0);                                                   // daload
+        }
+        case Linked.Call c -> call(c, pending);
+        case Linked.If f -> {
+          var otherwise = new Label();
+          var end = new Label();
+          emit(f.cond(), pending);
+          code.op(0x0e, 2).op(0x97, -3);                                      // dconst_0, dcmpl
+          code.jump(0x99, otherwise, -1);                                     // ifeq
+          emit(f.then(), pending);
+          code.jump(0xa7, end, 0);                                            // goto
+          code.bind(otherwise, locals, pending);
+          emit(f.otherwise(), pending);
+          code.bind(end, locals, push(pending, T_DOUBLE));
+        }
+        case Linked.Prefix p -> {
+          emit(p.kid(), pending);
+          switch (p.op()) {
+            case Not -> {
+              code.op(0x0e, 2);                                               // dconst_0
+              eq(code, 0x98);
+              code.op(0x87, 1);                                               // i2d
+            }
+            default -> throw new EvalerError(STR."\{p.op()} is not a prefix-operator 😡");
+          }
+        }
+        case Linked.Infix i -> infix(i, pending);
+      }
+    }
+
+    private void call(Linked.Call c,
+                      int[] pending) {
+      int index = fns.size();
+      fns.add(c.fn());
+      int fn = object(pool.clazz(FN));
+      code.op(0x2a, 1);                                                       // aload_0
+      code.op2(0xb4, pool.field(NAME, "fns", FNS_DESC), 0);                // getfield
+      code.iconst(index, pool);
+      code.op(0x32, -1);                                                      // aaload
+      int n = c.args().length;
+      if (n <= 4) {
+        // Fn.callN(D...)D, 参数直接留在操作数栈上
+        var stack = push(pending, fn);
+        for (Linked arg : c.args()) {
+          emit(arg, stack);
+          stack = push(stack, T_DOUBLE);
+        }
+        var desc = STR."(\{"D".repeat(n)})D";
+        code.invokeInterface(pool.interfaceMethod(FN, STR."call\{n}", desc), 2 * n, 2 - 2 * n - 1);
+        return;
+      }
+      int array = object(pool.clazz("[D"));
+      var stack = push(pending, fn, array, array, T_INT);
+      code.iconst(n, pool);
+      code.op1(0xbc, 7, 0);                                                   // newarray double
+      for (int i = 0; i < n; i++) {
+        code.op(0x59, 1);                                                     // dup
+        code.iconst(i, pool);
+        emit(c.args()[i], stack);
+        code.op(0x52, -4);                                                    // dastore
+      }
+      code.invokeInterface(pool.interfaceMethod(FN, "call", "([D)D"), 1, 0);
+    }
+
+    private void infix(Linked.Infix i,
+                       int[] pending) {
+      emit(i.lhs(), pending);
+      if (i.op() == Operator.And || i.op() == Operator.Or) {
+        // lhs 已决定结果时跳过 rhs: && 得 0, || 得 1
+        var shortCut = new Label();
+        var end = new Label();
+        code.op(0x0e, 2).op(0x97, -3);                                        // dconst_0, dcmpl
+        code.jump(i.op() == Operator.And ? 0x99 : 0x9a, shortCut, -1);        // ifeq / ifne
+        emit(i.rhs(), pending);
+        bool(code);
+        code.op(0x87, 1);                                                     // i2d
+        code.jump(0xa7, end, 0);                                              // goto
+        code.bind(shortCut, locals, pending);
+        code.op(i.op() == Operator.And ? 0x0e : 0x0f, 2);                     // dconst_0 / dconst_1
+        code.bind(end, locals, push(pending, T_DOUBLE));
+        return;
+      }
+      emit(i.rhs(), push(pending, T_DOUBLE));
+      switch (i.op()) {
+        case Pow -> code.op2(0xb8, pool.method("java/lang/Math", "pow", "(DD)D"), -2);
+        case Multi -> code.op(0x6b, -2);                                      // dmul
+        case Div -> code.op(0x6f, -2);                                        // ddiv
+        case Plus -> code.op(0x63, -2);                                       // dadd
+        case Minus -> code.op(0x67, -2);                                      // dsub
+        case Mod -> code.op(0x73, -2);                                        // drem
+        // dcmpg: lhs < rhs => -1, NaN => 1; 取符号位
+        case Lt -> {
+          code.op(0x98, -3);
+          code.op1(0x10, 31, 1).op(0x7c, -1);                                 // bipush 31, iushr
+          code.op(0x87, 1);
+        }
+        // dcmpg: lhs <= rhs => -1 / 0, NaN => 1; (c - 1) 的符号位
+        case Le -> {
+          code.op(0x98, -3);
+          code.op(0x04, 1).op(0x64, -1);                                      // iconst_1, isub
+          code.op1(0x10, 31, 1).op(0x7c, -1);
+          code.op(0x87, 1);
+        }
+        // dcmpl: lhs > rhs => 1, NaN => -1; -c 的符号位
+        case Gt -> {
+          code.op(0x97, -3);
+          code.op(0x74, 0);                                                   // ineg
+          code.op1(0x10, 31, 1).op(0x7c, -1);
+          code.op(0x87, 1);
+        }
+        // dcmpl: lhs >= rhs => 0 / 1, NaN => -1; (-c - 1) 的符号位
+        case Ge -> {
+          code.op(0x97, -3);
+          code.op(0x74, 0);
+          code.op(0x04, 1).op(0x64, -1);
+          code.op1(0x10, 31, 1).op(0x7c, -1);
+          code.op(0x87, 1);
+        }
+        case Eq -> {
+          eq(code, 0x98);
+          code.op(0x87, 1);
+        }
+        case Ne -> {
+          ne(code, 0x98);
+          code.op(0x87, 1);
+        }
+        default -> throw new EvalerError(STR."\{i.op()} is not a infix-operator 😡");
+      }
+    }
+  }
+
+  private static int[] push(int[] stack,
+                            int... types) {
+    var r = Arrays.copyOf(stack, stack.length + types.length);
+    System.arraycopy(types, 0, r, stack.length, types.length);
+    return r;
+  }
+
+  /**
+   * double, double => int: 1 - c * c
+   */
+  private static void eq(Code code,
+                         int cmp) {
+    ne(code, cmp);
+    code.op(0x04, 1);                                                         // iconst_1
+    code.op(0x5f, 0);                                                         // swap
+    code.op(0x64, -1);                                                        // isub
+  }
+
+  /**
+   * double, double => int: c * c, dcmpg 使 NaN 得到 1
+   */
+  private static void ne(Code code,
+                         int cmp) {
+    code.op(cmp, -3);
+    code.op(0x59, 1);                                                         // dup
+    code.op(0x68, -1);                                                        // imul
+  }
+
+  /**
+   * double => int: v != 0 ? 1 : 0
+   */
+  private static void bool(Code code) {
+    code.op(0x0e, 2);                                                         // dconst_0
+    ne(code, 0x98);
+  }
+
+  private static void dconst(double v,
+                             Code code,
+                             ConstantPool pool) {
+    long bits = Double.doubleToRawLongBits(v);
+    if (bits == 0L) code.op(0x0e, 2);                                         // dconst_0
+    else if (bits == Double.doubleToRawLongBits(1.0)) code.op(0x0f, 2);       // dconst_1
+    else code.op2(0x14, pool.dbl(v), 2);                                      // ldc2_w
+  }
+}
@@ -0,0 +1,95 @@
+package lost.calc.link;
+
+import lost.calc.api.Fn;
+import lost.calc.api.Operator;
+
+/**
+ * 链接后的表达式节点
+ * <p>
+ * 变量已解析为槽位, 函数已解析为 {@link Fn} 引用并检查过参数个数, 求值时只读槽位数组
+ */
+public sealed interface Linked permits Linked.Num, Linked.Var, Linked.Call, Linked.If, Linked.Prefix, Linked.Infix {
+
+  double eval(double[] vars);
+
+  /**
+   * 数字
+   */
+  record Num(double value) implements Linked {
+    @Override
+    public double eval(double[] vars) {
+      return this.value;
+    }
+  }
+
+  /**
+   * 变量
+   *
+   * @param slot 槽位
+   * @param name 变量名, 仅用于展示
+   */
+  record Var(int slot, String name) implements Linked {
+    @Override
+    public double eval(double[] vars) {
+      return vars[this.slot];
+    }
+  }
+
+  /**
+   * 函数调用
+   */
+  record Call(Fn fn, Linked[] args) implements Linked {
+    @Override
+    public double eval(double[] vars) {
+      var a = this.args;
+      return switch (a.length) {
+        case 0 -> this.fn.call0();
+        case 1 -> this.fn.call1(a[0].eval(vars));
+        case 2 -> this.fn.call2(a[0].eval(vars), a[1].eval(vars));
+        case 3 -> this.fn.call3(a[0].eval(vars), a[1].eval(vars), a[2].eval(vars));
+        case 4 -> this.fn.call4(a[0].eval(vars), a[1].eval(vars), a[2].eval(vars), a[3].eval(vars));
+        default -> {
+          var params = new double[a.length];
+          for (int i = 0; i < params.length; i++) {
+            params[i] = a[i].eval(vars);
+          }
+          yield this.fn.call(params);
+        }
+      };
+    }
+  }
+
+  /**
+   * 内置条件表达式 {@code if(cond, then, otherwise)}, 只求值被选中的分支
+   */
+  record If(Linked cond, Linked then, Linked otherwise) implements Linked {
+    @Override
+    public double eval(double[] vars) {
+      return this.cond.eval(vars) != 0 ? this.then.eval(vars) : this.otherwise.eval(vars);
+    }
+  }
+
+  /**
+   * 前缀表达式
+   */
+  record Prefix(Operator op, Linked kid) implements Linked {
+    @Override
+    public double eval(double[] vars) {
+      return this.op.prefix(this.kid.eval(vars));
+    }
+  }
+
+  /**
+   * 中缀表达式
+   */
+  record Infix(Operator op, Linked lhs, Linked rhs) implements Linked {
+    @Override
+    public double eval(double[] vars) {
+      return switch (this.op) {
+        case And -> this.lhs.eval(vars) == 0 ? 0 : (this.rhs.eval(vars) != 0 ? 1 : 0);
+        case Or -> this.lhs.eval(vars) != 0 ? 1 : (this.rhs.eval(vars) != 0 ? 1 : 0);
+        default -> this.op.infix(this.lhs.eval(vars), this.rhs.eval(vars));
+      };
+    }
+  }
+}
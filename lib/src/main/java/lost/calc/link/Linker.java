@@ -0,0 +1,75 @@
+package lost.calc.link;
+
+import lost.calc.api.Operator;
+import lost.calc.api.Tree;
+import lost.calc.api.Tree.*;
+import lost.calc.error.EvalerError;
+import lost.calc.impl.SEnv;
+
+/**
+ * 链接: 把 {@link Tree} 中的变量解析为槽位, 函数调用解析为 {@link lost.calc.api.Fn} 引用
+ * <p>
+ * 变量不存在, 函数不存在, 参数个数不匹配等错误在链接时抛出 {@link EvalerError}, 求值时不再检查
+ */
+public final class Linker {
+
+  private Linker() {
+  }
+
+  public static Program link(Tree tree,
+                             SEnv env) {
+    return new Program(linkTree(tree, env), env);
+  }
+
+  public static Linked linkTree(Tree tree,
+                                SEnv env) {
+    return switch (tree) {
+      case NumberTree n -> new Linked.Num(n.value);
+      case VarTree v -> {
+        var slot = env.slotOf(v.value);
+        if (slot < 0)
+          throw new EvalerError(STR."\{v} not found from env 😡");
+        yield new Linked.Var(slot, v.value);
+      }
+      case CallTree c -> {
+        if (c.isIf()) {
+          if (c.kids().size() != 3)
+            throw new EvalerError(STR."\{c} params count not match 😡");
+          var kids = c.kids().iterator();
+          yield new Linked.If(linkTree(kids.next(), env), linkTree(kids.next(), env), linkTree(kids.next(), env));
+        }
+        var fn = env.findFn(c.value);
+        if (fn == null)
+          throw new EvalerError(STR."\{c} not found from env 😡");
+        if (c.kids().size() != fn.paramCount())
+          throw new EvalerError(STR."\{c} params count not match 😡");
+        var args = new Linked[c.kids().size()];
+        int i = 0;
+        for (Tree kid : c.kids()) {
+          args[i++] = linkTree(kid, env);
+        }
+        yield new Linked.Call(fn, args);
+      }
+      case PrefixTree p -> {
+        if (p.kids().size() != 1)
+          throw new EvalerError(STR."\{p} params count not match 😡");
+        if (p.value != Operator.Not)
+          throw new EvalerError(STR."\{p} is not a prefix-operator 😡");
+        yield new Linked.Prefix(p.value, linkTree(p.kids().getFirst(), env));
+      }
+      case InfixTree i -> {
+        if (i.kids().size() != 2)
+          throw new EvalerError(STR."\{i} params count not match 😡");
+        if (i.value == Operator.Not)
+          throw new EvalerError(STR."\{i} is not a infix-operator 😡");
+        yield new Linked.Infix(i.value, linkTree(i.kids().getFirst(), env), linkTree(i.kids().getLast(), env));
+      }
+      case ParTree p -> {
+        if (p.kids().size() != 1)
+          throw new EvalerError(STR."\{p} params count not match 😡");
+        yield linkTree(p.kids().getFirst(), env);
+      }
+      case PostfixTree p -> throw new EvalerError(STR."\{p} is not a post-operator 😡");
+    };
+  }
+}
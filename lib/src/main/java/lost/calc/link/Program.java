@@ -0,0 +1,23 @@
+package lost.calc.link;
+
+import lost.calc.impl.SEnv;
+
+/**
+ * 链接到某个 {@link SEnv} 的表达式
+ *
+ * @param root 根节点
+ * @param env  链接时使用的 env, 槽位布局以它为准
+ */
+public record Program(Linked root, SEnv env) {
+
+  public double eval() {
+    return this.root.eval(this.env.values());
+  }
+
+  /**
+   * 在另一个槽位数组上求值, 数组布局须与 {@link #env()} 一致
+   */
+  public double eval(double[] vars) {
+    return this.root.eval(vars);
+  }
+}
@@ -0,0 +1,66 @@
+package lost.calc.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 以 2 的幂为桶边界的无锁直方图, 可并发记录
+ */
+public final class Histogram {
+  private final AtomicLongArray buckets = new AtomicLongArray(64);
+  private final LongAdder count = new LongAdder();
+  private final LongAdder sum = new LongAdder();
+  private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+  /**
+   * @param value 非负值, 负数记为 0
+   */
+  public void record(long value) {
+    long v = Math.max(0, value);
+    // 桶 i 为 [2^(i-1), 2^i - 1], 桶 0 为 0
+    this.buckets.incrementAndGet(64 - Long.numberOfLeadingZeros(v));
+    this.count.increment();
+    this.sum.add(v);
+    this.max.accumulate(v);
+  }
+
+  public long count() {
+    return this.count.sum();
+  }
+
+  public long sum() {
+    return this.sum.sum();
+  }
+
+  public long max() {
+    return this.max.get();
+  }
+
+  public double mean() {
+    long n = count();
+    return n == 0 ? 0 : (double) sum() / n;
+  }
+
+  /**
+   * 近似分位数, 返回所在桶的上界 (不超过 {@link #max()})
+   *
+   * @param p 0 - 1
+   */
+  public long percentile(double p) {
+    long n = count();
+    if (n == 0) return 0;
+    long rank = (long) Math.ceil(p * n);
+    long seen = 0;
+    for (int i = 0; i < 64; i++) {
+      seen += this.buckets.get(i);
+      if (seen >= rank) return Math.min(max(), i == 0 ? 0 : (1L << i) - 1);
+    }
+    return max();
+  }
+
+  @Override
+  public String toString() {
+    return STR."count=\{count()} mean=\{(long) mean()} p50=\{percentile(0.5)} p99=\{percentile(0.99)} max=\{max()}";
+  }
+}
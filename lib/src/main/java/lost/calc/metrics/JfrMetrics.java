@@ -0,0 +1,144 @@
+package lost.calc.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+import java.time.Duration;
+
+/**
+ * 以 JDK Flight Recorder 事件报告度量
+ * <p>
+ * 事件在录制未开启时只做一次 isEnabled 判断; 超过阈值的表达式产生 {@code lost.calc.SlowExpression} 事件.
+ * 逐次的 Lex / Parse / Eval / FnCall 事件量大, 默认关闭, 需在录制配置中显式开启
+ */
+public final class JfrMetrics implements Metrics {
+  private final long slowNanos;
+
+  /**
+   * @param slowThreshold 慢表达式阈值
+   */
+  public JfrMetrics(Duration slowThreshold) {
+    this.slowNanos = slowThreshold.toNanos();
+  }
+
+  @Override
+  public void lexed(long nanos,
+                    int tokens) {
+    var event = new LexEvent();
+    if (!event.isEnabled()) return;
+    event.nanos = nanos;
+    event.tokens = tokens;
+    event.commit();
+  }
+
+  @Override
+  public void parsed(long nanos,
+                     int nodes) {
+    var event = new ParseEvent();
+    if (!event.isEnabled()) return;
+    event.nanos = nanos;
+    event.nodes = nodes;
+    event.commit();
+  }
+
+  @Override
+  public void evaluated(long nanos) {
+    var event = new EvalEvent();
+    if (!event.isEnabled()) return;
+    event.nanos = nanos;
+    event.commit();
+  }
+
+  @Override
+  public void expression(String text,
+                         long nanos) {
+    if (nanos < this.slowNanos) return;
+    var event = new SlowExpressionEvent();
+    if (!event.isEnabled()) return;
+    event.text = text;
+    event.nanos = nanos;
+    event.threshold = this.slowNanos;
+    event.commit();
+  }
+
+  @Override
+  public void called(String fn,
+                     long nanos) {
+    var event = new FnCallEvent();
+    if (!event.isEnabled()) return;
+    event.fn = fn;
+    event.nanos = nanos;
+    event.commit();
+  }
+
+  @Name("lost.calc.Lex")
+  @Enabled(false)
+  @Label("Lex")
+  @Category({"Calc"})
+  @StackTrace(false)
+  static final class LexEvent extends Event {
+    @Label("Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long nanos;
+    @Label("Tokens")
+    int tokens;
+  }
+
+  @Name("lost.calc.Parse")
+  @Enabled(false)
+  @Label("Parse")
+  @Category({"Calc"})
+  @StackTrace(false)
+  static final class ParseEvent extends Event {
+    @Label("Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long nanos;
+    @Label("Nodes")
+    int nodes;
+  }
+
+  @Name("lost.calc.Eval")
+  @Enabled(false)
+  @Label("Eval")
+  @Category({"Calc"})
+  @StackTrace(false)
+  static final class EvalEvent extends Event {
+    @Label("Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long nanos;
+  }
+
+  @Name("lost.calc.FnCall")
+  @Enabled(false)
+  @Label("Fn Call")
+  @Category({"Calc"})
+  @StackTrace(false)
+  static final class FnCallEvent extends Event {
+    @Label("Fn")
+    String fn;
+    @Label("Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long nanos;
+  }
+
+  @Name("lost.calc.SlowExpression")
+  @Label("Slow Expression")
+  @Description("Evaler.eval took longer than the configured threshold")
+  @Category({"Calc"})
+  static final class SlowExpressionEvent extends Event {
+    @Label("Expression")
+    String text;
+    @Label("Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long nanos;
+    @Label("Threshold")
+    @Timespan(Timespan.NANOSECONDS)
+    long threshold;
+  }
+}
@@ -0,0 +1,96 @@
+package lost.calc.metrics;
+
+import lost.calc.api.Fn;
+
+/**
+ * 求值过程的度量回调
+ * <p>
+ * 所有方法默认为空; {@link #NOOP} 关闭度量, {@link lost.calc.Evaler} 此时不计时, 也不统计 token / 节点数
+ */
+public interface Metrics {
+  Metrics NOOP = new Metrics() {
+  };
+
+  /**
+   * 词法分析
+   *
+   * @param nanos  耗时
+   * @param tokens token 数
+   */
+  default void lexed(long nanos,
+                     int tokens) {
+  }
+
+  /**
+   * 语法分析
+   *
+   * @param nanos 耗时
+   * @param nodes tree 节点数
+   */
+  default void parsed(long nanos,
+                      int nodes) {
+  }
+
+  /**
+   * 求值, 不含编译
+   */
+  default void evaluated(long nanos) {
+  }
+
+  /**
+   * 一次完整的 {@link lost.calc.Evaler#eval}, 含编译 (缓存命中时不含词法 / 语法分析)
+   */
+  default void expression(String text,
+                          long nanos) {
+  }
+
+  /**
+   * 一次函数调用, 见 {@link #timed(Fn)}
+   */
+  default void called(String fn,
+                      long nanos) {
+  }
+
+  /**
+   * 包装函数, 每次调用向本对象报告耗时; 对 {@link #NOOP} 返回原函数
+   */
+  default Fn timed(Fn fn) {
+    return this == NOOP ? fn : new TimedFn(fn, this);
+  }
+
+  /**
+   * 同时报告给多个 Metrics
+   */
+  static Metrics of(Metrics... all) {
+    return new Metrics() {
+      @Override
+      public void lexed(long nanos,
+                        int tokens) {
+        for (Metrics m : all) m.lexed(nanos, tokens);
+      }
+
+      @Override
+      public void parsed(long nanos,
+                         int nodes) {
+        for (Metrics m : all) m.parsed(nanos, nodes);
+      }
+
+      @Override
+      public void evaluated(long nanos) {
+        for (Metrics m : all) m.evaluated(nanos);
+      }
+
+      @Override
+      public void expression(String text,
+                             long nanos) {
+        for (Metrics m : all) m.expression(text, nanos);
+      }
+
+      @Override
+      public void called(String fn,
+                         long nanos) {
+        for (Metrics m : all) m.called(fn, nanos);
+      }
+    };
+  }
+}
@@ -0,0 +1,255 @@
+package lost.calc.metrics;
+
+import lost.calc.api.Env;
+import lost.calc.api.Fn;
+import lost.calc.api.Operator;
+import lost.calc.api.Tree;
+import lost.calc.api.Tree.*;
+import lost.calc.error.EvalerError;
+
+import java.time.Duration;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 按节点剖析 {@link Tree} 的求值: 每个节点的求值次数, 累计耗时 (含子节点), 以及其中函数调用的耗时
+ * <p>
+ * 约每 sampleEvery 次 {@link #eval(Env)} 取样一次, 其余直接调用 {@link Tree#eval(Env)}, 不计时;
+ * 到达时长后不再取样. 统计只含取样到的求值, 计时本身的开销也计入父节点. 可被多个线程共享
+ */
+public final class Profiler {
+  private final Tree root;
+  private final Map<Tree, Stats> stats = new IdentityHashMap<>();
+  private final int sampleEvery;
+  private final long deadline;
+  private final LongAdder evals = new LongAdder();
+  private final LongAdder sampled = new LongAdder();
+
+  /**
+   * 每次求值都取样, 不限时长
+   */
+  public Profiler(Tree root) {
+    this(root, 1, null);
+  }
+
+  /**
+   * @param sampleEvery 平均每多少次求值取样一次
+   * @param duration    取样时长, null 为不限
+   */
+  public Profiler(Tree root,
+                  int sampleEvery,
+                  Duration duration) {
+    if (sampleEvery < 1)
+      throw new IllegalArgumentException(STR."Profiler: sampleEvery must be positive, [sampleEvery:\{sampleEvery}]");
+    this.root = root;
+    this.sampleEvery = sampleEvery;
+    this.deadline = duration == null ? Long.MAX_VALUE : System.nanoTime() + duration.toNanos();
+    // 构造后只读, 并发访问无需同步
+    register(root);
+  }
+
+  private void register(Tree tree) {
+    this.stats.put(tree, new Stats());
+    for (Tree kid : tree.kids()) {
+      register(kid);
+    }
+  }
+
+  public Tree root() {
+    return this.root;
+  }
+
+  /**
+   * 是否仍在取样时长内
+   */
+  public boolean isActive() {
+    return System.nanoTime() - this.deadline < 0;
+  }
+
+  public double eval(Env env) {
+    this.evals.increment();
+    if (this.sampleEvery > 1 && ThreadLocalRandom.current().nextInt(this.sampleEvery) != 0)
+      return this.root.eval(env);
+    if (!isActive()) return this.root.eval(env);
+    this.sampled.increment();
+    return run(this.root, env);
+  }
+
+  /**
+   * 求值总次数
+   */
+  public long evals() {
+    return this.evals.sum();
+  }
+
+  /**
+   * 取样次数
+   */
+  public long sampled() {
+    return this.sampled.sum();
+  }
+
+  /**
+   * @return 节点的统计, 不属于 root 的节点返回 null
+   */
+  public Stats stats(Tree node) {
+    return this.stats.get(node);
+  }
+
+  public void reset() {
+    this.evals.reset();
+    this.sampled.reset();
+    this.stats.values().forEach(Stats::reset);
+  }
+
+  /**
+   * 见 {@link Tree#dump(int, java.util.function.Function)}, 每个节点附加次数, 总耗时占比, 自身耗时占比与函数耗时占比
+   */
+  public String dump(int indent) {
+    double total = Math.max(1, this.stats.get(this.root).nanos());
+    return this.root.dump(indent, tree -> {
+      var s = this.stats.get(tree);
+      long self = s.nanos();
+      for (Tree kid : tree.kids()) {
+        self -= this.stats.get(kid).nanos();
+      }
+      var note = STR."[count=\{s.count()} total=\{percent(s.nanos(), total)} self=\{percent(Math.max(0, self), total)}";
+      if (tree instanceof CallTree c && !c.isIf())
+        note += STR." fn=\{percent(s.fnNanos(), total)}";
+      return note + "]";
+    });
+  }
+
+  private static String percent(long nanos,
+                                double total) {
+    return String.format("%.1f%%", nanos * 100 / total);
+  }
+
+  private double run(Tree tree,
+                     Env env) {
+    var s = this.stats.get(tree);
+    long start = System.nanoTime();
+    try {
+      return switch (tree) {
+        case NumberTree n -> n.value;
+        case VarTree v -> v.eval(env);
+        case CallTree c -> call(c, s, env);
+        case ParTree p -> {
+          if (p.kids().size() != 1)
+            throw new EvalerError(() -> STR."\{p} params count not match 😡");
+          yield run(p.kids().getFirst(), env);
+        }
+        case PrefixTree p -> {
+          if (p.kids().size() != 1)
+            throw new EvalerError(() -> STR."\{p} params count not match 😡");
+          if (p.value != Operator.Not)
+            throw new EvalerError(() -> STR."\{p} is not a prefix-operator 😡");
+          yield p.value.prefix(run(p.kids().getFirst(), env));
+        }
+        case InfixTree i -> {
+          if (i.kids().size() != 2)
+            throw new EvalerError(() -> STR."\{i} params count not match 😡");
+          var lhs = run(i.kids().getFirst(), env);
+          // 与 InfixTree 一致, `&&` `||` 短路
+          if (i.value == Operator.And)
+            yield lhs == 0 ? 0 : run(i.kids().getLast(), env) == 0 ? 0 : 1;
+          if (i.value == Operator.Or)
+            yield lhs != 0 ? 1 : run(i.kids().getLast(), env) == 0 ? 0 : 1;
+          if (i.value == Operator.Not)
+            throw new EvalerError(() -> STR."\{i} is not a infix-operator 😡");
+          yield i.value.infix(lhs, run(i.kids().getLast(), env));
+        }
+        case PostfixTree p -> p.eval(env);
+      };
+    } finally {
+      s.count.increment();
+      s.nanos.add(System.nanoTime() - start);
+    }
+  }
+
+  private double call(CallTree c,
+                      Stats s,
+                      Env env) {
+    if (c.isIf()) {
+      if (c.kids().size() != 3)
+        throw new EvalerError(() -> STR."\{c} params count not match 😡");
+      var kids = c.kids().iterator();
+      var cond = run(kids.next(), env);
+      var then = kids.next();
+      return cond != 0 ? run(then, env) : run(kids.next(), env);
+    }
+    var fn = env.findFn(c.value);
+    if (fn == null)
+      throw new EvalerError(() -> STR."\{c} not found from env 😡");
+    var pCount = fn.paramCount();
+    if (c.kids().size() != pCount)
+      throw new EvalerError(() -> STR."\{c} params count not match 😡");
+    var params = new double[pCount];
+    int i = 0;
+    for (Tree kid : c.kids()) {
+      params[i++] = run(kid, env);
+    }
+    long start = System.nanoTime();
+    try {
+      return invoke(fn, params, env);
+    } finally {
+      s.fnNanos.add(System.nanoTime() - start);
+    }
+  }
+
+  private static double invoke(Fn fn,
+                               double[] params,
+                               Env env) {
+    // 与 CallTree.eval 一致, 纯函数经由 env.memo() 缓存, fn 耗时包含缓存查找
+    var memo = fn.pure() ? env.memo() : null;
+    if (memo != null) return memo.call(fn, params);
+    return switch (params.length) {
+      case 0 -> fn.call0();
+      case 1 -> fn.call1(params[0]);
+      case 2 -> fn.call2(params[0], params[1]);
+      case 3 -> fn.call3(params[0], params[1], params[2]);
+      case 4 -> fn.call4(params[0], params[1], params[2], params[3]);
+      default -> fn.call(params);
+    };
+  }
+
+  /**
+   * 单个节点的统计, 时间单位为纳秒
+   */
+  public static final class Stats {
+    private final LongAdder count = new LongAdder();
+    private final LongAdder nanos = new LongAdder();
+    private final LongAdder fnNanos = new LongAdder();
+
+    public long count() {
+      return this.count.sum();
+    }
+
+    /**
+     * 累计耗时, 含子节点
+     */
+    public long nanos() {
+      return this.nanos.sum();
+    }
+
+    /**
+     * 其中函数调用本身的耗时, 只对函数调用节点有意义
+     */
+    public long fnNanos() {
+      return this.fnNanos.sum();
+    }
+
+    void reset() {
+      this.count.reset();
+      this.nanos.reset();
+      this.fnNanos.reset();
+    }
+
+    @Override
+    public String toString() {
+      return STR."Stats[count=\{count()}, nanos=\{nanos()}, fnNanos=\{fnNanos()}]";
+    }
+  }
+}
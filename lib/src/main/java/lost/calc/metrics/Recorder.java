@@ -0,0 +1,94 @@
+package lost.calc.metrics;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 在内存中累计度量: 各阶段耗时直方图 (纳秒), token / 节点计数, 每个函数的调用耗时
+ * <p>
+ * 可被多个线程共享
+ */
+public final class Recorder implements Metrics {
+  private final Histogram lex = new Histogram();
+  private final Histogram parse = new Histogram();
+  private final Histogram eval = new Histogram();
+  private final Histogram expression = new Histogram();
+  private final LongAdder tokens = new LongAdder();
+  private final LongAdder nodes = new LongAdder();
+  private final Map<String, Histogram> fns = new ConcurrentHashMap<>();
+
+  @Override
+  public void lexed(long nanos,
+                    int tokens) {
+    this.lex.record(nanos);
+    this.tokens.add(tokens);
+  }
+
+  @Override
+  public void parsed(long nanos,
+                     int nodes) {
+    this.parse.record(nanos);
+    this.nodes.add(nodes);
+  }
+
+  @Override
+  public void evaluated(long nanos) {
+    this.eval.record(nanos);
+  }
+
+  @Override
+  public void expression(String text,
+                         long nanos) {
+    this.expression.record(nanos);
+  }
+
+  @Override
+  public void called(String fn,
+                     long nanos) {
+    this.fns.computeIfAbsent(fn, k -> new Histogram()).record(nanos);
+  }
+
+  public Histogram lex() {
+    return this.lex;
+  }
+
+  public Histogram parse() {
+    return this.parse;
+  }
+
+  public Histogram eval() {
+    return this.eval;
+  }
+
+  public Histogram expression() {
+    return this.expression;
+  }
+
+  public long tokens() {
+    return this.tokens.sum();
+  }
+
+  public long nodes() {
+    return this.nodes.sum();
+  }
+
+  /**
+   * 函数名 => 调用耗时, 按名字排序
+   */
+  public Map<String, Histogram> fns() {
+    return new TreeMap<>(this.fns);
+  }
+
+  @Override
+  public String toString() {
+    var sb = new StringBuilder();
+    sb.append(STR."lex        \{this.lex} tokens=\{tokens()}\n");
+    sb.append(STR."parse      \{this.parse} nodes=\{nodes()}\n");
+    sb.append(STR."eval       \{this.eval}\n");
+    sb.append(STR."expression \{this.expression}\n");
+    fns().forEach((name, h) -> sb.append(STR."fn \{name} \{h}\n"));
+    return sb.toString();
+  }
+}
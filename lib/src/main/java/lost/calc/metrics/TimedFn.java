@@ -0,0 +1,89 @@
+package lost.calc.metrics;
+
+import lost.calc.api.Fn;
+
+/**
+ * 计时的函数包装, 保留原函数按参数个数的调用路径
+ */
+record TimedFn(Fn fn, Metrics metrics) implements Fn {
+  @Override
+  public String name() {
+    return this.fn.name();
+  }
+
+  @Override
+  public int paramCount() {
+    return this.fn.paramCount();
+  }
+
+  @Override
+  public boolean pure() {
+    return this.fn.pure();
+  }
+
+  @Override
+  public double call(double... params) {
+    long start = System.nanoTime();
+    try {
+      return this.fn.call(params);
+    } finally {
+      this.metrics.called(this.fn.name(), System.nanoTime() - start);
+    }
+  }
+
+  @Override
+  public double call0() {
+    long start = System.nanoTime();
+    try {
+      return this.fn.call0();
+    } finally {
+      this.metrics.called(this.fn.name(), System.nanoTime() - start);
+    }
+  }
+
+  @Override
+  public double call1(double a) {
+    long start = System.nanoTime();
+    try {
+      return this.fn.call1(a);
+    } finally {
+      this.metrics.called(this.fn.name(), System.nanoTime() - start);
+    }
+  }
+
+  @Override
+  public double call2(double a,
+                      double b) {
+    long start = System.nanoTime();
+    try {
+      return this.fn.call2(a, b);
+    } finally {
+      this.metrics.called(this.fn.name(), System.nanoTime() - start);
+    }
+  }
+
+  @Override
+  public double call3(double a,
+                      double b,
+                      double c) {
+    long start = System.nanoTime();
+    try {
+      return this.fn.call3(a, b, c);
+    } finally {
+      this.metrics.called(this.fn.name(), System.nanoTime() - start);
+    }
+  }
+
+  @Override
+  public double call4(double a,
+                      double b,
+                      double c,
+                      double d) {
+    long start = System.nanoTime();
+    try {
+      return this.fn.call4(a, b, c, d);
+    } finally {
+      this.metrics.called(this.fn.name(), System.nanoTime() - start);
+    }
+  }
+}
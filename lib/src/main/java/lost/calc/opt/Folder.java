@@ -0,0 +1,200 @@
+package lost.calc.opt;
+
+import lost.calc.api.Env;
+import lost.calc.api.Fn;
+import lost.calc.api.Operator;
+import lost.calc.api.Tree;
+import lost.calc.api.Tree.*;
+
+/**
+ * 常量折叠与代数化简
+ * <p>
+ * 返回新的 tree, 不修改输入; 只做对所有 IEEE-754 输入 (含 NaN, ±0, ±∞) 结果不变,
+ * 且不会跳过任何变量读取或函数调用的改写:
+ * <ul>
+ *   <li>只含数字的 {@link InfixTree} / {@link PrefixTree} 折叠为 {@link NumberTree}</li>
+ *   <li>去掉内层 {@link ParTree}, 保留根节点</li>
+ *   <li>{@code x*1, 1*x, x/1, x-0, x+(-0), x**1 => x}</li>
+ *   <li>{@code x**2 => x*x}, 仅当 x 为变量或数字</li>
+ *   <li>{@code !(!x) => x}, 仅当 x 的值已是 1 / 0</li>
+ *   <li>左侧为数字的 {@code &&} / {@code ||} 与条件为数字的 {@code if} 按短路语义选取分支,
+ *   被跳过的一侧本来也不会求值</li>
+ * </ul>
+ * {@code x+0} 不会被改写: x 为 -0 时结果为 +0
+ * <p>
+ * {@link #fold(Tree, Env)} 还会把参数全为数字的纯函数 ({@link Fn#pure()}) 调用折叠为 {@link NumberTree},
+ * 函数在折叠时从 env 查找; 之后替换 env 中的同名函数不影响已折叠的结果
+ */
+public final class Folder {
+
+  private Folder() {
+  }
+
+  public static Tree fold(Tree tree) {
+    return fold(tree, null);
+  }
+
+  /**
+   * @param env 查找纯函数, 为 null 时不折叠函数调用
+   */
+  public static Tree fold(Tree tree,
+                          Env env) {
+    if (tree instanceof ParTree p) {
+      var root = new ParTree(p.slice());
+      for (Tree kid : p.kids()) {
+        root.kids().addLast(foldTree(kid, env));
+      }
+      root.markCompleted();
+      return root;
+    }
+    return foldTree(tree, env);
+  }
+
+  private static Tree foldTree(Tree tree,
+                               Env env) {
+    return switch (tree) {
+      case NumberTree n -> n;
+      case VarTree v -> v;
+      case ParTree p -> p.kids().size() == 1 ? foldTree(p.kids().getFirst(), env) : copy(p, new ParTree(p.slice()), env);
+      case CallTree c -> foldCall(c, env);
+      case PostfixTree p -> copy(p, new PostfixTree(p.value, p.slice()), env);
+      case PrefixTree p -> foldPrefix(p, env);
+      case InfixTree i -> foldInfix(i, env);
+    };
+  }
+
+  private static Tree copy(Tree from,
+                           Tree to,
+                           Env env) {
+    for (Tree kid : from.kids()) {
+      to.kids().addLast(foldTree(kid, env));
+    }
+    if (from.isCompleted()) to.markCompleted();
+    return to;
+  }
+
+  private static Tree foldCall(CallTree c,
+                               Env env) {
+    if (c.isIf() && c.kids().size() == 3 && foldTree(c.kids().getFirst(), env) instanceof NumberTree cond) {
+      var kids = c.kids().iterator();
+      kids.next();
+      var then = kids.next();
+      var otherwise = kids.next();
+      return foldTree(cond.value != 0 ? then : otherwise, env);
+    }
+    var result = (CallTree) copy(c, new CallTree(c.value, c.slice()), env);
+    if (env == null || c.isIf()) return result;
+    var fn = env.findFn(c.value);
+    if (fn == null || !fn.pure() || fn.paramCount() != result.kids().size()) return result;
+    var params = new double[result.kids().size()];
+    int i = 0;
+    for (Tree kid : result.kids()) {
+      if (!(kid instanceof NumberTree n)) return result;
+      params[i++] = n.value;
+    }
+    try {
+      return new NumberTree(fn.call(params), c.slice());
+    } catch (RuntimeException e) {
+      // 留到求值时再报错
+      return result;
+    }
+  }
+
+  private static Tree foldPrefix(PrefixTree p,
+                                 Env env) {
+    if (p.kids().size() != 1 || p.value != Operator.Not) return copy(p, new PrefixTree(p.value, p.slice()), env);
+    var kid = foldTree(p.kids().getFirst(), env);
+    if (kid instanceof NumberTree n) {
+      return new NumberTree(p.value.prefix(n.value), p.slice());
+    }
+    // !(!x) => x
+    if (kid instanceof PrefixTree inner && inner.value == Operator.Not && isBool(inner.kids().getFirst())) {
+      return inner.kids().getFirst();
+    }
+    var result = new PrefixTree(p.value, p.slice());
+    result.kids().addLast(kid);
+    return result;
+  }
+
+  private static Tree foldInfix(InfixTree i,
+                                Env env) {
+    if (i.kids().size() != 2 || i.value == Operator.Not) return copy(i, new InfixTree(i.value, i.slice()), env);
+    var lhs = foldTree(i.kids().getFirst(), env);
+    var rhs = foldTree(i.kids().getLast(), env);
+    if (lhs instanceof NumberTree l && rhs instanceof NumberTree r) {
+      return new NumberTree(i.value.infix(l.value, r.value), i.slice());
+    }
+    switch (i.value) {
+      case Multi -> {
+        if (is(rhs, 1)) return lhs;
+        if (is(lhs, 1)) return rhs;
+      }
+      case Div -> {
+        if (is(rhs, 1)) return lhs;
+      }
+      case Minus -> {
+        if (is(rhs, 0.0)) return lhs;
+      }
+      case Plus -> {
+        if (is(rhs, -0.0)) return lhs;
+        if (is(lhs, -0.0)) return rhs;
+      }
+      // lhs 为 NaN 时与非 0 相同, 继续求 rhs
+      case And -> {
+        if (lhs instanceof NumberTree l) {
+          if (l.value == 0) return new NumberTree(0, i.slice());
+          if (isBool(rhs)) return rhs;
+        }
+      }
+      case Or -> {
+        if (lhs instanceof NumberTree l) {
+          if (l.value != 0) return new NumberTree(1, i.slice());
+          if (isBool(rhs)) return rhs;
+        }
+      }
+      case Pow -> {
+        if (is(rhs, 1)) return lhs;
+        if (is(rhs, 2) && (lhs instanceof VarTree || lhs instanceof NumberTree)) {
+          var result = new InfixTree(Operator.Multi, i.slice());
+          result.kids().addLast(lhs);
+          // 第二个操作数使用副本, 保持为树而不是 DAG
+          result.kids().addLast(lhs instanceof VarTree v
+                  ? new VarTree(v.value, v.slice())
+                  : new NumberTree(((NumberTree) lhs).value, lhs.slice()));
+          return result;
+        }
+      }
+      default -> {
+      }
+    }
+    var result = new InfixTree(i.value, i.slice());
+    result.kids().addLast(lhs);
+    result.kids().addLast(rhs);
+    return result;
+  }
+
+  /**
+   * 按位比较, 区分 +0 / -0
+   */
+  private static boolean is(Tree tree,
+                            double value) {
+    return tree instanceof NumberTree n
+           && Double.doubleToRawLongBits(n.value) == Double.doubleToRawLongBits(value);
+  }
+
+  /**
+   * 值是否一定为 1 或 0
+   */
+  static boolean isBool(Tree tree) {
+    return switch (tree) {
+      case NumberTree n -> n.value == 0 || n.value == 1;
+      case PrefixTree p -> p.value == Operator.Not;
+      case InfixTree i -> switch (i.value) {
+        case And, Or, Lt, Le, Gt, Ge, Eq, Ne -> true;
+        default -> false;
+      };
+      case ParTree p -> p.kids().size() == 1 && isBool(p.kids().getFirst());
+      default -> false;
+    };
+  }
+}
@@ -0,0 +1,149 @@
+package lost.calc.opt;
+
+import lost.calc.api.Env;
+import lost.calc.api.Tree;
+import lost.calc.api.Tree.*;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 对固定变量做部分求值
+ * <p>
+ * 把 tree 中属于 fixed 的 {@link VarTree} 替换为当前值的 {@link NumberTree}, 再经 {@link Folder#fold(Tree, Env)}
+ * 预先计算只依赖它们 (以及数字与纯函数) 的部分, 得到较小的剩余 tree.
+ * 剩余 tree 被缓存, 只在某个固定变量的值 (按位比较) 或是否存在发生变化时重建; 其余变量照常在求值时读取.
+ * 可被多个线程共享
+ */
+public final class Specializer {
+  private final Tree tree;
+  /**
+   * tree 中实际引用的固定变量
+   */
+  private final String[] fixed;
+  private volatile State state;
+  private final AtomicInteger rebuilds = new AtomicInteger();
+
+  /**
+   * @param values  固定变量的值, 不存在的变量为 0
+   * @param present 固定变量是否存在于 env
+   */
+  private record State(long[] values, boolean[] present, Tree residual) {
+  }
+
+  /**
+   * @param fixed 固定变量名
+   */
+  public Specializer(Tree tree,
+                     Set<String> fixed) {
+    this.tree = tree;
+    var used = new LinkedHashSet<String>();
+    collect(tree, fixed, used);
+    this.fixed = used.toArray(String[]::new);
+  }
+
+  private static void collect(Tree tree,
+                              Set<String> fixed,
+                              Set<String> used) {
+    if (tree instanceof VarTree v && fixed.contains(v.value)) used.add(v.value);
+    for (Tree kid : tree.kids()) {
+      collect(kid, fixed, used);
+    }
+  }
+
+  /**
+   * 一次性特化, 不缓存
+   */
+  public static Tree specialize(Tree tree,
+                                Env env,
+                                Set<String> fixed) {
+    var values = new HashMap<String, Double>();
+    for (String name : fixed) {
+      if (env.hasVar(name)) values.put(name, env.getVar(name));
+    }
+    return Folder.fold(substitute(tree, values), env);
+  }
+
+  public Tree tree() {
+    return this.tree;
+  }
+
+  /**
+   * tree 中引用到的固定变量
+   */
+  public Set<String> fixed() {
+    return Set.of(this.fixed);
+  }
+
+  /**
+   * 重建剩余 tree 的次数
+   */
+  public int rebuilds() {
+    return this.rebuilds.get();
+  }
+
+  /**
+   * 返回与 env 中固定变量当前值对应的剩余 tree, 值未变化时复用缓存
+   */
+  public Tree residual(Env env) {
+    var current = this.state;
+    int n = this.fixed.length;
+    if (current != null) {
+      boolean same = true;
+      for (int i = 0; i < n && same; i++) {
+        var name = this.fixed[i];
+        boolean present = env.hasVar(name);
+        same = present == current.present[i]
+               && (!present || Double.doubleToRawLongBits(env.getVar(name)) == current.values[i]);
+      }
+      if (same) return current.residual;
+    }
+    var values = new long[n];
+    var present = new boolean[n];
+    for (int i = 0; i < n; i++) {
+      present[i] = env.hasVar(this.fixed[i]);
+      if (present[i]) values[i] = Double.doubleToRawLongBits(env.getVar(this.fixed[i]));
+    }
+    // 只按上面读到的值替换, 不再读取 env, 保证缓存的值与剩余 tree 一致
+    var substitution = new HashMap<String, Double>();
+    for (int i = 0; i < n; i++) {
+      if (present[i]) substitution.put(this.fixed[i], Double.longBitsToDouble(values[i]));
+    }
+    var residual = Folder.fold(substitute(this.tree, substitution), env);
+    this.state = new State(values, present, residual);
+    this.rebuilds.incrementAndGet();
+    return residual;
+  }
+
+  public double eval(Env env) {
+    return residual(env).eval(env);
+  }
+
+  /**
+   * 复制 tree, values 中的变量替换为数字
+   */
+  private static Tree substitute(Tree tree,
+                                 Map<String, Double> values) {
+    var result = switch (tree) {
+      case NumberTree n -> n;
+      case VarTree v -> {
+        var value = values.get(v.value);
+        yield value != null ? new NumberTree(value, v.slice()) : v;
+      }
+      case CallTree c -> new CallTree(c.value, c.slice());
+      case ParTree p -> new ParTree(p.slice());
+      case PrefixTree p -> new PrefixTree(p.value, p.slice());
+      case InfixTree i -> new InfixTree(i.value, i.slice());
+      case PostfixTree p -> new PostfixTree(p.value, p.slice());
+    };
+    if (result == tree) return result;
+    for (Tree kid : tree.kids()) {
+      result.kids().addLast(substitute(kid, values));
+    }
+    if (tree.isCompleted()) result.markCompleted();
+    return result;
+  }
+}
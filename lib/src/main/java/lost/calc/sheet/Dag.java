@@ -0,0 +1,234 @@
+package lost.calc.sheet;
+
+import lost.calc.api.Env;
+import lost.calc.api.Operator;
+import lost.calc.api.Tree;
+import lost.calc.api.Tree.*;
+import lost.calc.error.EvalerError;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * 把一组具名公式编译为共享的 DAG
+ * <p>
+ * 结构相同的子树 (节点类型, 运算符 / 数字 / 名字, 子节点) 合并为一个节点, 每轮求值只计算一次,
+ * 所有包含它的公式共用结果; {@link ParTree} 是透明的, 不产生节点
+ * <p>
+ * 函数调用只有在构建时确认为纯函数 ({@link lost.calc.api.Fn#pure()}) 才合并, 其余调用各自求值,
+ * 如 {@code rand() + rand()} 仍调用两次
+ * <p>
+ * 求值按需进行, 保留 {@code &&} {@code ||} {@code if} 的短路: 未选中的分支不求值, 也不报错
+ * <p>
+ * 构建后不可变, 每次求值使用独立的中间结果, 可并发求值
+ */
+public final class Dag {
+  private final List<String> names;
+  final int[] roots;
+  /**
+   * 拓扑序, 子节点在前
+   */
+  final Node[] nodes;
+
+  private Dag(List<String> names,
+              int[] roots,
+              Node[] nodes) {
+    this.names = names;
+    this.roots = roots;
+    this.nodes = nodes;
+  }
+
+  /**
+   * 不合并函数调用
+   *
+   * @param formulas 公式名 => tree, 结果按遍历顺序排列
+   */
+  public static Dag of(Map<String, Tree> formulas) {
+    return of(formulas, name -> false);
+  }
+
+  /**
+   * 合并 env 中纯函数的调用, 构建后替换 env 中的函数不影响已合并的节点
+   *
+   * @param formulas 公式名 => tree, 结果按遍历顺序排列
+   * @param env      用于判断函数是否为纯函数
+   */
+  public static Dag of(Map<String, Tree> formulas,
+                       Env env) {
+    return of(formulas, name -> {
+      var fn = env.findFn(name);
+      return fn != null && fn.pure();
+    });
+  }
+
+  private static Dag of(Map<String, Tree> formulas,
+                        Predicate<String> pure) {
+    var builder = new Builder(pure);
+    var names = new ArrayList<String>(formulas.size());
+    var roots = new int[formulas.size()];
+    int i = 0;
+    for (var e : formulas.entrySet()) {
+      names.add(e.getKey());
+      roots[i++] = builder.add(e.getValue());
+    }
+    return new Dag(List.copyOf(names), roots, builder.nodes.toArray(Node[]::new));
+  }
+
+  /**
+   * 公式名, 与 {@link #eval(Env)} 结果的下标对应
+   */
+  public List<String> names() {
+    return this.names;
+  }
+
+  /**
+   * 合并后的节点个数
+   */
+  public int nodeCount() {
+    return this.nodes.length;
+  }
+
+  /**
+   * 求值所有公式, 每个共享节点只计算一次
+   *
+   * @return 按 {@link #names()} 顺序排列的结果
+   */
+  public double[] eval(Env env) {
+    var round = new Round(this.nodes, env);
+    var result = new double[this.roots.length];
+    for (int i = 0; i < this.roots.length; i++) {
+      result[i] = round.eval(this.roots[i]);
+    }
+    return result;
+  }
+
+  /**
+   * 求值单个节点, 已求值的节点直接取结果
+   */
+  static final class Round {
+    final Node[] nodes;
+    final Env env;
+    final double[] values;
+    final boolean[] done;
+
+    Round(Node[] nodes,
+          Env env) {
+      this.nodes = nodes;
+      this.env = env;
+      this.values = new double[nodes.length];
+      this.done = new boolean[nodes.length];
+    }
+
+    double eval(int id) {
+      if (this.done[id]) return this.values[id];
+      var v = compute(this.nodes[id]);
+      this.values[id] = v;
+      this.done[id] = true;
+      return v;
+    }
+
+    private double compute(Node node) {
+      return switch (node) {
+        case Node.Num n -> n.value();
+        case Node.Var v -> {
+          if (this.env.hasVar(v.name()))
+            yield this.env.getVar(v.name());
+          throw new EvalerError(STR."var `\{v.name()}` not found from env 😡");
+        }
+        case Node.Call c -> call(c);
+        case Node.If f -> eval(f.cond()) != 0 ? eval(f.then()) : eval(f.otherwise());
+        case Node.Prefix p -> p.op().prefix(eval(p.kid()));
+        case Node.Infix i -> switch (i.op()) {
+          case And -> eval(i.lhs()) == 0 ? 0 : (eval(i.rhs()) != 0 ? 1 : 0);
+          case Or -> eval(i.lhs()) != 0 ? 1 : (eval(i.rhs()) != 0 ? 1 : 0);
+          default -> i.op().infix(eval(i.lhs()), eval(i.rhs()));
+        };
+        case Node.Bad b -> throw new EvalerError(b.message());
+      };
+    }
+
+    private double call(Node.Call c) {
+      var fn = this.env.findFn(c.name());
+      if (fn == null)
+        throw new EvalerError(STR."fn `\{c.name()}` not found from env 😡");
+      var args = c.args();
+      if (args.length != fn.paramCount())
+        throw new EvalerError(STR."fn `\{c.name()}` params count not match 😡");
+      return switch (args.length) {
+        case 0 -> fn.call0();
+        case 1 -> fn.call1(eval(args[0]));
+        case 2 -> fn.call2(eval(args[0]), eval(args[1]));
+        case 3 -> fn.call3(eval(args[0]), eval(args[1]), eval(args[2]));
+        case 4 -> fn.call4(eval(args[0]), eval(args[1]), eval(args[2]), eval(args[3]));
+        default -> {
+          var params = new double[args.length];
+          for (int i = 0; i < args.length; i++) {
+            params[i] = eval(args[i]);
+          }
+          yield fn.call(params);
+        }
+      };
+    }
+  }
+
+  /**
+   * 自底向上构建, 相同节点只登记一次, 非纯函数的调用除外
+   */
+  private static final class Builder {
+    final List<Node> nodes = new ArrayList<>();
+    final Map<Node, Integer> ids = new HashMap<>();
+    final Predicate<String> pure;
+
+    Builder(Predicate<String> pure) {
+      this.pure = pure;
+    }
+
+    int add(Tree tree) {
+      if (tree instanceof ParTree p && p.kids().size() == 1) return add(p.kids().getFirst());
+      var node = switch (tree) {
+        case NumberTree n -> new Node.Num(n.value);
+        case VarTree v -> new Node.Var(v.value);
+        case ParTree p -> new Node.Bad(STR."\{p} params count not match 😡");
+        case CallTree c -> {
+          var args = new int[c.kids().size()];
+          int i = 0;
+          for (Tree kid : c.kids()) {
+            args[i++] = add(kid);
+          }
+          if (!c.isIf()) yield new Node.Call(c.value, args);
+          if (args.length != 3) yield new Node.Bad(STR."\{c} params count not match 😡");
+          yield new Node.If(args[0], args[1], args[2]);
+        }
+        case PrefixTree p -> {
+          if (p.kids().size() != 1) yield new Node.Bad(STR."\{p} params count not match 😡");
+          if (p.value != Operator.Not) yield new Node.Bad(STR."\{p} is not a prefix-operator 😡");
+          yield new Node.Prefix(p.value, add(p.kids().getFirst()));
+        }
+        case InfixTree i -> {
+          if (i.kids().size() != 2) yield new Node.Bad(STR."\{i} params count not match 😡");
+          if (i.value == Operator.Not) yield new Node.Bad(STR."\{i} is not a infix-operator 😡");
+          yield new Node.Infix(i.value, add(i.kids().getFirst()), add(i.kids().getLast()));
+        }
+        case PostfixTree p -> new Node.Bad(STR."\{p} is not a post-operator 😡");
+      };
+      if (node instanceof Node.Call c && !this.pure.test(c.name())) return append(node);
+      return intern(node);
+    }
+
+    private int intern(Node node) {
+      var id = this.ids.get(node);
+      if (id != null) return id;
+      id = append(node);
+      this.ids.put(node, id);
+      return id;
+    }
+
+    private int append(Node node) {
+      this.nodes.add(node);
+      return this.nodes.size() - 1;
+    }
+  }
+}
@@ -0,0 +1,177 @@
+package lost.calc.sheet;
+
+import lost.calc.api.Env;
+import lost.calc.api.Tree;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * 电子表格式的增量求值
+ * <p>
+ * 公式编译为共享的 {@link Dag}, 每个节点缓存上次的值; {@link #putVar} 只把依赖该变量的节点标记为失效,
+ * {@link #recalc()} 只重算失效的公式并返回值真正变化的公式, 工作量与变化成正比
+ * <p>
+ * 被短路跳过的分支不会被求值, 其中变量的变化也不会使上层节点失效; 函数视为纯函数,
+ * 修改 env 中的函数后需调用 {@link #invalidateAll()}
+ * <p>
+ * 非线程安全
+ */
+public final class Engine {
+  private final Dag dag;
+  private final Env env;
+  private final Dag.Round round;
+  /**
+   * 节点 => 父节点
+   */
+  private final int[][] parents;
+  /**
+   * 变量名 => 变量节点
+   */
+  private final Map<String, Integer> vars = new HashMap<>();
+  /**
+   * 公式名 => 下标
+   */
+  private final Map<String, Integer> index = new HashMap<>();
+  /**
+   * 公式的上次结果
+   */
+  private final double[] last;
+  private boolean initialized;
+
+  private Engine(Dag dag,
+                 Env env) {
+    this.dag = dag;
+    this.env = env;
+    this.round = new Dag.Round(dag.nodes, env);
+    this.last = new double[dag.roots.length];
+    for (int i = 0; i < dag.names().size(); i++) {
+      this.index.put(dag.names().get(i), i);
+    }
+
+    var nodes = dag.nodes;
+    var counts = new int[nodes.length];
+    for (Node node : nodes) {
+      for (int kid : node.kids()) counts[kid]++;
+    }
+    this.parents = new int[nodes.length][];
+    for (int i = 0; i < nodes.length; i++) {
+      this.parents[i] = new int[counts[i]];
+    }
+    for (int i = 0; i < nodes.length; i++) {
+      for (int kid : nodes[i].kids()) this.parents[kid][--counts[kid]] = i;
+      if (nodes[i] instanceof Node.Var v) this.vars.put(v.name(), i);
+    }
+  }
+
+  /**
+   * @param formulas 公式名 => tree
+   * @param env      变量与函数, 变量须通过 {@link #putVar} 修改
+   */
+  public static Engine of(Map<String, Tree> formulas,
+                          Env env) {
+    return new Engine(Dag.of(formulas, env), env);
+  }
+
+  public List<String> names() {
+    return this.dag.names();
+  }
+
+  /**
+   * 修改变量, 值 (按位) 不变时不产生失效
+   */
+  public Engine putVar(String name,
+                       double value) {
+    if (this.env.hasVar(name)
+        && Double.doubleToRawLongBits(this.env.getVar(name)) == Double.doubleToRawLongBits(value)) {
+      return this;
+    }
+    this.env.putVar(name, value);
+    var id = this.vars.get(name);
+    if (id != null) invalidate(id);
+    return this;
+  }
+
+  /**
+   * 所有节点失效, 用于 env 中的函数发生变化
+   */
+  public void invalidateAll() {
+    Arrays.fill(this.round.done, false);
+  }
+
+  /**
+   * 重算失效的公式
+   *
+   * @return 值 (按位) 发生变化的公式名, 按 {@link #names()} 顺序; 第一次调用返回所有公式
+   */
+  public Set<String> recalc() {
+    var changed = new LinkedHashSet<String>();
+    var roots = this.dag.roots;
+    for (int i = 0; i < roots.length; i++) {
+      if (this.initialized && this.round.done[roots[i]]) continue;
+      var v = this.round.eval(roots[i]);
+      if (!this.initialized || Double.doubleToRawLongBits(v) != Double.doubleToRawLongBits(this.last[i])) {
+        changed.add(this.dag.names().get(i));
+      }
+      this.last[i] = v;
+    }
+    this.initialized = true;
+    return changed;
+  }
+
+  /**
+   * 公式上次 {@link #recalc()} 的结果
+   */
+  public double get(String name) {
+    return this.last[indexOf(name)];
+  }
+
+  /**
+   * 公式引用的所有变量名, 含可能被短路跳过的分支
+   */
+  public Set<String> dependsOn(String name) {
+    int i = indexOf(name);
+    var result = new TreeSet<String>();
+    var seen = new BitSet();
+    var stack = new ArrayDeque<Integer>();
+    stack.push(this.dag.roots[i]);
+    while (!stack.isEmpty()) {
+      int id = stack.pop();
+      if (seen.get(id)) continue;
+      seen.set(id);
+      var node = this.dag.nodes[id];
+      if (node instanceof Node.Var v) result.add(v.name());
+      for (int kid : node.kids()) stack.push(kid);
+    }
+    return result;
+  }
+
+  private int indexOf(String name) {
+    var i = this.index.get(name);
+    if (i == null) throw new NoSuchElementException(STR."formula `\{name}` not found");
+    return i;
+  }
+
+  /**
+   * 把节点及依赖它的已求值节点标记为失效; 未求值的节点没有被任何父节点使用, 到此为止
+   */
+  private void invalidate(int id) {
+    var done = this.round.done;
+    var stack = new ArrayDeque<Integer>();
+    stack.push(id);
+    while (!stack.isEmpty()) {
+      int n = stack.pop();
+      if (!done[n]) continue;
+      done[n] = false;
+      for (int parent : this.parents[n]) stack.push(parent);
+    }
+  }
+}
@@ -0,0 +1,84 @@
+package lost.calc.sheet;
+
+import lost.calc.api.Operator;
+
+import java.util.Arrays;
+
+/**
+ * {@link Dag} 中的节点, 子节点以下标引用, 下标总是小于自身
+ * <p>
+ * 记录的 equals / hashCode 即结构相等, 用于合并相同子树
+ */
+sealed interface Node {
+  int[] NONE = {};
+
+  /**
+   * 子节点下标
+   */
+  int[] kids();
+
+  /**
+   * 数字, 按位比较 (区分 +0 / -0)
+   */
+  record Num(double value) implements Node {
+    @Override
+    public int[] kids() {
+      return NONE;
+    }
+  }
+
+  record Var(String name) implements Node {
+    @Override
+    public int[] kids() {
+      return NONE;
+    }
+  }
+
+  record Call(String name, int[] args) implements Node {
+    @Override
+    public int[] kids() {
+      return this.args;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof Call c && c.name.equals(this.name) && Arrays.equals(c.args, this.args);
+    }
+
+    @Override
+    public int hashCode() {
+      return this.name.hashCode() * 31 + Arrays.hashCode(this.args);
+    }
+  }
+
+  record If(int cond, int then, int otherwise) implements Node {
+    @Override
+    public int[] kids() {
+      return new int[]{this.cond, this.then, this.otherwise};
+    }
+  }
+
+  record Prefix(Operator op, int kid) implements Node {
+    @Override
+    public int[] kids() {
+      return new int[]{this.kid};
+    }
+  }
+
+  record Infix(Operator op, int lhs, int rhs) implements Node {
+    @Override
+    public int[] kids() {
+      return new int[]{this.lhs, this.rhs};
+    }
+  }
+
+  /**
+   * 无法求值的子树, 求值到它时才抛出, 与 {@link lost.calc.api.Tree#eval} 一致
+   */
+  record Bad(String message) implements Node {
+    @Override
+    public int[] kids() {
+      return NONE;
+    }
+  }
+}
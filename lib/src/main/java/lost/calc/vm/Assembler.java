@@ -0,0 +1,149 @@
+package lost.calc.vm;
+
+import lost.calc.api.Fn;
+import lost.calc.api.Operator;
+import lost.calc.api.Tree;
+import lost.calc.error.EvalerError;
+import lost.calc.impl.SEnv;
+import lost.calc.link.Linked;
+import lost.calc.link.Linker;
+import lost.calc.link.Program;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static lost.calc.vm.Bytecode.*;
+
+/**
+ * 把表达式编译为 {@link Bytecode}
+ * <p>
+ * 先经 {@link Linker} 解析变量槽位与函数并检查错误, 再后序展开为指令; {@code &&} {@code ||} {@code if} 编译为跳转
+ */
+public final class Assembler {
+  private int[] code = new int[16];
+  private int size;
+  private int stack;
+  private int maxStack;
+  private final List<Double> consts = new ArrayList<>();
+  private final Map<Long, Integer> constIndex = new HashMap<>();
+  private final List<Fn> fns = new ArrayList<>();
+  private final Map<Fn, Integer> fnIndex = new IdentityHashMap<>();
+
+  private Assembler() {
+  }
+
+  public static Bytecode compile(Tree tree,
+                                 SEnv env) {
+    return compile(Linker.link(tree, env));
+  }
+
+  public static Bytecode compile(Program program) {
+    var asm = new Assembler();
+    asm.emit(program.root());
+    return new Bytecode(Arrays.copyOf(asm.code, asm.size),
+            asm.consts.stream().mapToDouble(Double::doubleValue).toArray(),
+            asm.fns.toArray(Fn[]::new),
+            asm.maxStack,
+            program.env());
+  }
+
+  private void emit(Linked node) {
+    switch (node) {
+      case Linked.Num n -> {
+        var index = this.constIndex.computeIfAbsent(Double.doubleToRawLongBits(n.value()), k -> {
+          this.consts.add(n.value());
+          return this.consts.size() - 1;
+        });
+        add(CONST, index, 1);
+      }
+      case Linked.Var v -> add(LOAD, v.slot(), 1);
+      case Linked.Call c -> {
+        for (Linked arg : c.args()) {
+          emit(arg);
+        }
+        var index = this.fnIndex.computeIfAbsent(c.fn(), k -> {
+          this.fns.add(k);
+          return this.fns.size() - 1;
+        });
+        add(CALL, index, 1 - c.args().length);
+      }
+      case Linked.If f -> {
+        emit(f.cond());
+        int jz = add(JZ, 0, -1);
+        emit(f.then());
+        int jmp = add(JMP, 0, 0);
+        // 两个分支各压入一个值, 只计一次
+        this.stack--;
+        patch(jz);
+        emit(f.otherwise());
+        patch(jmp);
+      }
+      case Linked.Prefix p -> {
+        emit(p.kid());
+        switch (p.op()) {
+          case Not -> add(NOT, 0, 0);
+          default -> throw new EvalerError(STR."\{p.op()} is not a prefix-operator 😡");
+        }
+      }
+      case Linked.Infix i -> {
+        emit(i.lhs());
+        switch (i.op()) {
+          case And, Or -> {
+            // 跳转时栈顶保留结果, 否则弹出 lhs 后求 rhs
+            int jump = add(i.op() == Operator.And ? AND : OR, 0, -1);
+            emit(i.rhs());
+            add(BOOL, 0, 0);
+            patch(jump);
+            return;
+          }
+          default -> emit(i.rhs());
+        }
+        int op = switch (i.op()) {
+          case Pow -> POW;
+          case Multi -> MUL;
+          case Div -> DIV;
+          case Plus -> ADD;
+          case Minus -> SUB;
+          case Mod -> MOD;
+          case Lt -> LT;
+          case Le -> LE;
+          case Gt -> GT;
+          case Ge -> GE;
+          case Eq -> EQ;
+          case Ne -> NE;
+          default -> throw new EvalerError(STR."\{i.op()} is not a infix-operator 😡");
+        };
+        add(op, 0, -1);
+      }
+    }
+  }
+
+  /**
+   * @param delta 执行后操作数栈深度的变化
+   * @return 指令下标
+   */
+  private int add(int op,
+                  int operand,
+                  int delta) {
+    if (operand > MAX_OPERAND)
+      throw new EvalerError(STR."bytecode operand \{operand} exceeds \{MAX_OPERAND} 😡");
+    if (this.size == this.code.length) this.code = Arrays.copyOf(this.code, this.size * 2);
+    this.code[this.size] = operand << 8 | op;
+    this.stack += delta;
+    this.maxStack = Math.max(this.maxStack, this.stack);
+    return this.size++;
+  }
+
+  /**
+   * 把跳转指令的目标设为当前位置
+   */
+  private void patch(int at) {
+    if (this.size > MAX_OPERAND)
+      throw new EvalerError(STR."bytecode size exceeds \{MAX_OPERAND} 😡");
+    this.code[at] = this.size << 8 | op(this.code[at]);
+  }
+}
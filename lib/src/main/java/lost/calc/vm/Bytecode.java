@@ -0,0 +1,113 @@
+package lost.calc.vm;
+
+import lost.calc.api.Fn;
+import lost.calc.impl.SEnv;
+
+/**
+ * 栈式虚拟机的指令序列
+ * <p>
+ * 每条指令一个 int: 低 8 位为操作码, 高 24 位为操作数 (常量下标, 槽位, 函数下标或跳转目标)
+ *
+ * @param code     指令
+ * @param consts   常量池
+ * @param fns      函数表
+ * @param maxStack 操作数栈最大深度
+ * @param env      编译时使用的 env, 槽位布局以它为准
+ */
+public record Bytecode(int[] code, double[] consts, Fn[] fns, int maxStack, SEnv env) {
+  /**
+   * 压入 consts[x]
+   */
+  public static final int CONST = 0;
+  /**
+   * 压入 vars[x]
+   */
+  public static final int LOAD = 1;
+  /**
+   * 调用 fns[x], 参数个数为其 paramCount
+   */
+  public static final int CALL = 2;
+  public static final int NOT = 3;
+  public static final int POW = 4;
+  public static final int MUL = 5;
+  public static final int DIV = 6;
+  public static final int ADD = 7;
+  public static final int SUB = 8;
+  public static final int MOD = 9;
+  public static final int LT = 10;
+  public static final int LE = 11;
+  public static final int GT = 12;
+  public static final int GE = 13;
+  public static final int EQ = 14;
+  public static final int NE = 15;
+  /**
+   * 栈顶转为 1 / 0
+   */
+  public static final int BOOL = 16;
+  /**
+   * {@code &&}: 栈顶为 0 时置为 0 并跳转到 x, 否则弹出
+   */
+  public static final int AND = 17;
+  /**
+   * {@code ||}: 栈顶非 0 时置为 1 并跳转到 x, 否则弹出
+   */
+  public static final int OR = 18;
+  /**
+   * 弹出, 为 0 时跳转到 x
+   */
+  public static final int JZ = 19;
+  /**
+   * 跳转到 x
+   */
+  public static final int JMP = 20;
+
+  private static final ThreadLocal<Vm> VM = ThreadLocal.withInitial(Vm::new);
+
+  static final int OPERAND_BITS = 24;
+  static final int MAX_OPERAND = (1 << OPERAND_BITS) - 1;
+
+  static int op(int ins) {
+    return ins & 0xFF;
+  }
+
+  static int operand(int ins) {
+    return ins >>> 8;
+  }
+
+  /**
+   * 使用当前线程复用的 {@link Vm} 执行; 函数内嵌套调用时使用临时的 Vm
+   */
+  public double eval() {
+    var vm = VM.get();
+    if (vm.busy) return new Vm().run(this, this.env.values());
+    vm.busy = true;
+    try {
+      return vm.run(this, this.env.values());
+    } finally {
+      vm.busy = false;
+    }
+  }
+
+  /**
+   * 反汇编, 每行一条指令
+   */
+  public String disassemble() {
+    String[] names = {"CONST", "LOAD", "CALL", "NOT", "POW", "MUL", "DIV", "ADD", "SUB", "MOD",
+            "LT", "LE", "GT", "GE", "EQ", "NE", "BOOL", "AND", "OR", "JZ", "JMP"};
+    var sb = new StringBuilder();
+    for (int pc = 0; pc < this.code.length; pc++) {
+      int ins = this.code[pc];
+      sb.append(STR."\{pc}: \{names[op(ins)]}");
+      switch (op(ins)) {
+        case CONST -> sb.append(STR." \{this.consts[operand(ins)]}");
+        case LOAD -> sb.append(STR." $\{operand(ins)}");
+        case CALL -> sb.append(STR." \{this.fns[operand(ins)].name()}");
+        case AND, OR, JZ, JMP -> sb.append(STR." @\{operand(ins)}");
+        default -> {
+        }
+      }
+      sb.append('\n');
+    }
+    return sb.toString();
+  }
+}
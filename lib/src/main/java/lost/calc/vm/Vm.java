@@ -0,0 +1,128 @@
+package lost.calc.vm;
+
+import static lost.calc.vm.Bytecode.*;
+
+/**
+ * 执行 {@link Bytecode} 的解释器
+ * <p>
+ * 单个循环按操作码分派, 操作数栈是复用的 double 数组, 除参数多于 4 个的函数调用外不分配对象;
+ * 非线程安全, 每个线程使用自己的 Vm
+ */
+public final class Vm {
+  private double[] stack = new double[16];
+  /**
+   * 是否正被 {@link Bytecode#eval()} 使用, 函数中再次调用时改用新的 Vm
+   */
+  boolean busy;
+
+  /**
+   * @param vars 槽位数组, 布局须与 {@link Bytecode#env()} 一致
+   */
+  public double run(Bytecode bytecode,
+                    double[] vars) {
+    if (this.stack.length < bytecode.maxStack()) this.stack = new double[bytecode.maxStack()];
+    final var s = this.stack;
+    final var code = bytecode.code();
+    final var consts = bytecode.consts();
+    final var fns = bytecode.fns();
+    int sp = -1;
+    int pc = 0;
+    while (pc < code.length) {
+      int ins = code[pc++];
+      switch (ins & 0xFF) {
+        case CONST -> s[++sp] = consts[ins >>> 8];
+        case LOAD -> s[++sp] = vars[ins >>> 8];
+        case CALL -> {
+          var fn = fns[ins >>> 8];
+          int n = fn.paramCount();
+          sp -= n;
+          s[sp + 1] = switch (n) {
+            case 0 -> fn.call0();
+            case 1 -> fn.call1(s[sp + 1]);
+            case 2 -> fn.call2(s[sp + 1], s[sp + 2]);
+            case 3 -> fn.call3(s[sp + 1], s[sp + 2], s[sp + 3]);
+            case 4 -> fn.call4(s[sp + 1], s[sp + 2], s[sp + 3], s[sp + 4]);
+            default -> {
+              var params = new double[n];
+              System.arraycopy(s, sp + 1, params, 0, n);
+              yield fn.call(params);
+            }
+          };
+          sp++;
+        }
+        case NOT -> s[sp] = s[sp] == 0 ? 1 : 0;
+        case POW -> {
+          sp--;
+          s[sp] = Math.pow(s[sp], s[sp + 1]);
+        }
+        case MUL -> {
+          sp--;
+          s[sp] = s[sp] * s[sp + 1];
+        }
+        case DIV -> {
+          sp--;
+          s[sp] = s[sp] / s[sp + 1];
+        }
+        case ADD -> {
+          sp--;
+          s[sp] = s[sp] + s[sp + 1];
+        }
+        case SUB -> {
+          sp--;
+          s[sp] = s[sp] - s[sp + 1];
+        }
+        case MOD -> {
+          sp--;
+          s[sp] = s[sp] % s[sp + 1];
+        }
+        case LT -> {
+          sp--;
+          s[sp] = s[sp] < s[sp + 1] ? 1 : 0;
+        }
+        case LE -> {
+          sp--;
+          s[sp] = s[sp] <= s[sp + 1] ? 1 : 0;
+        }
+        case GT -> {
+          sp--;
+          s[sp] = s[sp] > s[sp + 1] ? 1 : 0;
+        }
+        case GE -> {
+          sp--;
+          s[sp] = s[sp] >= s[sp + 1] ? 1 : 0;
+        }
+        case EQ -> {
+          sp--;
+          s[sp] = s[sp] == s[sp + 1] ? 1 : 0;
+        }
+        case NE -> {
+          sp--;
+          s[sp] = s[sp] != s[sp + 1] ? 1 : 0;
+        }
+        case BOOL -> s[sp] = s[sp] != 0 ? 1 : 0;
+        case AND -> {
+          if (s[sp] == 0) {
+            s[sp] = 0;
+            pc = ins >>> 8;
+          } else {
+            sp--;
+          }
+        }
+        case OR -> {
+          if (s[sp] != 0) {
+            s[sp] = 1;
+            pc = ins >>> 8;
+          } else {
+            sp--;
+          }
+        }
+        case JZ -> {
+          if (s[sp--] == 0) pc = ins >>> 8;
+        }
+        case JMP -> pc = ins >>> 8;
+        default -> throw new IllegalStateException(STR."bad opcode \{ins & 0xFF} at \{pc - 1}");
+      }
+    }
+    return s[sp];
+  }
+}
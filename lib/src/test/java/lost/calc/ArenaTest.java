@@ -0,0 +1,180 @@
+package lost.calc;
+
+import lost.calc.api.Fn;
+import lost.calc.api.Operator;
+import lost.calc.api.Token.Slice;
+import lost.calc.api.Tree;
+import lost.calc.arena.Arena;
+import lost.calc.arena.Footprint;
+import lost.calc.error.EvalerError;
+import lost.calc.impl.DEnv;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ArenaTest {
+  static final String[] EXPRS = {
+          "1",
+          "a + b * 2",
+          "(a + b) ** 2 == a ** 2 + 2 * a * b + b ** 2 && !(a < b)",
+          "log10(a * 100) + sum5(1, 2, 3, a, b) + pi()",
+          "if(a > b, log10(a), 0) || (b && 0)",
+          "max(a, b, ) - a % b / 2",
+  };
+
+  static DEnv env() {
+    var env = new DEnv();
+    env.putVar("a", 3).putVar("b", 1.5)
+            .installFn(LinkerTest.LOG10)
+            .installFn("pi", () -> Math.PI)
+            .installFn(Fn.of("max", Math::max).asPure())
+            .installFn(new Fn() {
+              @Override
+              public String name() {
+                return "sum5";
+              }
+
+              @Override
+              public int paramCount() {
+                return 5;
+              }
+
+              @Override
+              public double call(double... params) {
+                double sum = 0;
+                for (double p : params) sum += p;
+                return sum;
+              }
+            });
+    return env;
+  }
+
+  @Test
+  void eval() {
+    var evaler = Evaler.create();
+    var env = env();
+    var builder = Arena.builder();
+    var trees = new ArrayList<Tree>();
+    for (String s : EXPRS) {
+      var tree = evaler.compile(s).tree();
+      trees.add(tree);
+      assertEquals(trees.size() - 1, builder.add(tree));
+    }
+    var arena = builder.build();
+    assertEquals(EXPRS.length, arena.size());
+    for (int i = 0; i < EXPRS.length; i++) {
+      assertEquals(trees.get(i).eval(env), arena.eval(i, env), EXPRS[i]);
+      // 还原的 tree 不含括号, 求值结果相同
+      assertEquals(trees.get(i).eval(env), arena.tree(i).eval(env), EXPRS[i]);
+    }
+    // 常量与标识符去重
+    assertEquals(List.of("a", "b"), List.of(arena.ident(0), arena.ident(1)));
+    assertTrue(arena.numberCount() < 10);
+  }
+
+  @Test
+  void error() {
+    var evaler = Evaler.create();
+    var builder = Arena.builder();
+    builder.add(evaler.compile("a + c").tree());
+    builder.add(evaler.compile("nope(a)").tree());
+    builder.add(evaler.compile("log10(a, b)").tree());
+    var arena = builder.build();
+    var env = env();
+    assertTrue(assertThrows(EvalerError.class, () -> arena.eval(0, env)).getMessage().contains("Var(c) [4,4] not found"));
+    assertTrue(assertThrows(EvalerError.class, () -> arena.eval(1, env)).getMessage().contains("not found"));
+    assertTrue(assertThrows(EvalerError.class, () -> arena.eval(2, env)).getMessage().contains("params count not match"));
+
+    var postfix = new Tree.PostfixTree(Operator.Not, Slice.both(1));
+    postfix.kids().addLast(new Tree.VarTree("a", Slice.both(0)));
+    assertThrows(EvalerError.class, () -> builder.add(postfix));
+    // 出错的公式不留下节点
+    assertEquals(3, builder.size());
+    assertEquals(arena.nodeCount(), builder.build().nodeCount());
+  }
+
+  @Test
+  void footprint() {
+    var evaler = Evaler.create();
+    var trees = new ArrayList<Tree>();
+    for (int i = 0; i < 100; i++) {
+      trees.add(evaler.compile(EXPRS[i % EXPRS.length]).tree());
+    }
+    var footprint = Footprint.measure(trees);
+    System.out.println(footprint.report());
+    assertEquals(100, footprint.formulas());
+    assertTrue(footprint.arenaNodes() < footprint.treeNodes());
+    assertTrue(footprint.treeBytesPerNode() > 5 * footprint.arenaBytesPerNode());
+  }
+
+  /**
+   * 0 - 4 个参数经由 call0 - call4 分派, 不调用 call(double...)
+   */
+  static Fn arity(int n) {
+    return new Fn() {
+      @Override
+      public String name() {
+        return STR."f\{n}";
+      }
+
+      @Override
+      public int paramCount() {
+        return n;
+      }
+
+      @Override
+      public double call(double... params) {
+        throw new UnsupportedOperationException(name());
+      }
+
+      @Override
+      public double call0() {
+        return 0;
+      }
+
+      @Override
+      public double call1(double a) {
+        return a;
+      }
+
+      @Override
+      public double call2(double a,
+                          double b) {
+        return a + b;
+      }
+
+      @Override
+      public double call3(double a,
+                          double b,
+                          double c) {
+        return a + b + c;
+      }
+
+      @Override
+      public double call4(double a,
+                          double b,
+                          double c,
+                          double d) {
+        return a + b + c + d;
+      }
+    };
+  }
+
+  @Test
+  void dispatch() {
+    var env = new DEnv();
+    env.putVar("a", 1);
+    for (int n = 0; n <= 4; n++) {
+      env.installFn(arity(n));
+    }
+    var tree = Evaler.create().compile("f0() + f1(a) + f2(a, 2) + f3(a, 2, 3) + f4(a, 2, 3, 4)").tree();
+    var builder = Arena.builder();
+    builder.add(tree);
+    var arena = builder.build();
+    assertEquals(20, arena.eval(0, env));
+    assertEquals(tree.eval(env), arena.eval(0, env));
+  }
+}
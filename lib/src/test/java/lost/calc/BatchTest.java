@@ -0,0 +1,49 @@
+package lost.calc;
+
+import lost.calc.batch.Batch;
+import lost.calc.impl.DEnv;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class BatchTest {
+
+  @Test
+  void eval() {
+    int rows = 3000;
+    var random = new Random(42);
+    var a = new double[rows];
+    var b = new double[rows];
+    for (int i = 0; i < rows; i++) {
+      a[i] = random.nextInt(7) - 3;
+      b[i] = i % 11 == 0 ? Double.NaN : random.nextDouble() * 10;
+    }
+    var columns = Map.of("a", a, "b", b);
+    var env = new DEnv();
+    env.putVar("c", 2).installFn(LinkerTest.LOG10);
+
+    String[] expr = {
+            "a+b*c",
+            "(a - b) / c % 3",
+            "a ** c",
+            "a < b", "a <= b", "a > b", "a >= b", "a == 0", "b != b",
+            "!a || b > 5 && a",
+            "log10(b) * c",
+            "c * 10",
+    };
+    var evaler = Evaler.create();
+    for (String s : expr) {
+      var tree = evaler.compile(s).tree();
+      for (boolean vector : new boolean[]{false, true}) {
+        var result = Batch.of(tree, vector).eval(columns, env);
+        for (int i = 0; i < rows; i++) {
+          env.putVar("a", a[i]).putVar("b", b[i]);
+          assertEquals(tree.eval(env), result[i], STR."\{s} at row \{i}");
+        }
+      }
+    }
+  }
+}
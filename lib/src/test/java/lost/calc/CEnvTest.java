@@ -0,0 +1,63 @@
+package lost.calc;
+
+import lost.calc.impl.CEnv;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CEnvTest {
+
+  @Test
+  void env() {
+    var env = new CEnv();
+    env.putVar("a", 1).putVar("b", 2).installFn(LinkerTest.LOG10);
+    assertTrue(env.hasVar("a"));
+    assertFalse(env.hasVar("c"));
+    assertEquals(2, env.getVar("b"));
+    assertNotNull(env.findFn("log10"));
+
+    var snapshot = env.snapshot();
+    env.putVar("a", 10).uninstallFn(LinkerTest.LOG10);
+    assertEquals(1, snapshot.getVar("a"));
+    assertNotNull(snapshot.findFn("log10"));
+    assertEquals(10, env.getVar("a"));
+    assertNull(env.findFn("log10"));
+    assertThrows(UnsupportedOperationException.class, () -> snapshot.putVar("a", 1));
+
+    var evaler = Evaler.create();
+    assertEquals(12, evaler.eval("a+b", env));
+    assertEquals(3, evaler.eval("a+b", snapshot));
+  }
+
+  @Test
+  void snapshotIsConsistent() throws InterruptedException {
+    var env = new CEnv();
+    env.update(b -> b.putVar("a", 0).putVar("b", 0));
+    var expr = Evaler.create().compile("a + b");
+
+    var stop = new AtomicBoolean();
+    var torn = new AtomicInteger();
+    var readers = new Thread[4];
+    for (int i = 0; i < readers.length; i++) {
+      readers[i] = new Thread(() -> {
+        while (!stop.get()) {
+          if (expr.eval(env.snapshot()) != 0) torn.incrementAndGet();
+        }
+      });
+      readers[i].start();
+    }
+    for (int i = 1; i <= 100_000; i++) {
+      double v = i;
+      env.update(b -> b.putVar("a", v).putVar("b", -v));
+    }
+    stop.set(true);
+    for (Thread reader : readers) {
+      reader.join();
+    }
+    assertEquals(0, torn.get());
+    assertEquals(100_001, env.version());
+  }
+}
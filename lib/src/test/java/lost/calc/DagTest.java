@@ -0,0 +1,83 @@
+package lost.calc;
+
+import lost.calc.api.Fn;
+import lost.calc.api.Tree;
+import lost.calc.error.EvalerError;
+import lost.calc.impl.DEnv;
+import lost.calc.sheet.Dag;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DagTest {
+
+  @Test
+  void eval() {
+    var evaler = Evaler.create();
+    var calls = new int[1];
+    var env = new DEnv();
+    env.putVar("a", 2).putVar("b", 50).putVar("c", 0);
+    env.installFn(Fn.of("log10", v -> {
+      calls[0]++;
+      return Math.log10(v);
+    }).asPure());
+
+    var formulas = new LinkedHashMap<String, Tree>();
+    formulas.put("x", evaler.compile("log10(a*b) + c").tree());
+    formulas.put("y", evaler.compile("(log10(a * b)) * 2").tree());
+    formulas.put("z", evaler.compile("c && (log10(a*b) > 1) || log10(b)").tree());
+    formulas.put("w", evaler.compile("if(c, missing, a*b - c)").tree());
+    var dag = Dag.of(formulas, env);
+
+    assertEquals(List.of("x", "y", "z", "w"), dag.names());
+    // a, b, a*b, log10(a*b), c 只出现一次
+    int total = 0;
+    for (Tree tree : formulas.values()) {
+      total += FolderTest.count(tree);
+    }
+    assertTrue(dag.nodeCount() < total / 2, STR."\{dag.nodeCount()} / \{total}");
+
+    var result = dag.eval(env);
+    int i = 0;
+    for (Tree tree : formulas.values()) {
+      assertEquals(tree.eval(env), result[i++]);
+    }
+    calls[0] = 0;
+    dag.eval(env);
+    // log10(a*b) 与 log10(b) 各一次
+    assertEquals(2, calls[0]);
+
+    env.putVar("c", 1);
+    assertThrows(EvalerError.class, () -> dag.eval(env));
+  }
+
+  @Test
+  void impure() {
+    var evaler = Evaler.create();
+    var calls = new int[1];
+    var env = new DEnv();
+    env.putVar("a", 8);
+    env.installFn("rand", () -> ++calls[0]);
+    env.installFn(Fn.of("half", v -> v / 2).asPure());
+
+    var formulas = new LinkedHashMap<String, Tree>();
+    formulas.put("x", evaler.compile("rand() + rand()").tree());
+    formulas.put("y", evaler.compile("half(a) + half(a)").tree());
+
+    // 未给出 env 时不合并任何调用
+    assertEquals(7, Dag.of(formulas).nodeCount());
+    // 只合并 half(a)
+    var dag = Dag.of(formulas, env);
+    assertEquals(6, dag.nodeCount());
+
+    var result = dag.eval(env);
+    assertEquals(2, calls[0]);
+    assertEquals(1 + 2, result[0]);
+    assertEquals(8, result[1]);
+    dag.eval(env);
+    assertEquals(4, calls[0]);
+  }
+}
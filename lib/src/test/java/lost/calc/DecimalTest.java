@@ -0,0 +1,148 @@
+package lost.calc;
+
+import lost.calc.decimal.Decimal;
+import lost.calc.decimal.DecimalEnv;
+import lost.calc.decimal.DecimalExpr;
+import lost.calc.decimal.DecimalFn;
+import lost.calc.error.EvalerError;
+import lost.calc.opt.Folder;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DecimalTest {
+  final Evaler evaler = Evaler.create();
+
+  Decimal eval(String text,
+               DecimalEnv env) {
+    return this.evaler.compile(text).decimal().eval(env);
+  }
+
+  @Test
+  public void exactLiterals() {
+    var env = new DecimalEnv();
+    assertEquals(Decimal.parse("0.3"), eval("0.1 + 0.2", env));
+    assertEquals("0.3", eval("0.1 + 0.2", env).toString());
+    assertEquals(Decimal.ONE, eval("0.1 + 0.2 == 0.3", env));
+    assertNotEquals(0.3, 0.1 + 0.2);
+    assertEquals("123456789.123456789", eval("123456789.123456789", env).toString());
+    assertEquals("1.10", eval("1.10", env).toString());
+    assertEquals(Decimal.parse("1.1"), eval("1.10", env));
+  }
+
+  @Test
+  public void foldedLiterals() {
+    // 折叠出的数字没有对应的源文本, 退回 double 的最短表示
+    var expr = this.evaler.compile("0.5 * 3 + x");
+    var folded = DecimalExpr.compile(expr.text(), Folder.fold(expr.tree()), DecimalExpr.DEFAULT_DIVISION_SCALE);
+    assertEquals(Decimal.parse("2.5"), folded.eval(new DecimalEnv().putVar("x", 1)));
+  }
+
+  @Test
+  public void billing() {
+    var env = new DecimalEnv()
+            .putVar("price", "19.99")
+            .putVar("qty", 3)
+            .putVar("rate", "0.0825")
+            .installFn("round2", a -> Decimal.of(a.toBigDecimal().setScale(2, RoundingMode.HALF_EVEN)));
+    assertEquals("64.92", eval("round2(price * qty * (1 + rate))", env).toString());
+    assertEquals("64.917525", eval("price * qty * (1 + rate)", env).toString());
+  }
+
+  @Test
+  public void overflowFallsBackToBig() {
+    var env = new DecimalEnv()
+            .putVar("a", Long.MAX_VALUE)
+            .putVar("b", "0.000000000000000001");
+    var sum = eval("a + a", env);
+    assertFalse(sum.isCompact());
+    assertEquals(BigDecimal.valueOf(Long.MAX_VALUE).multiply(BigDecimal.valueOf(2)), sum.toBigDecimal());
+    var product = eval("a * a * b", env);
+    var expected = BigDecimal.valueOf(Long.MAX_VALUE).pow(2).multiply(new BigDecimal("0.000000000000000001"));
+    assertEquals(0, expected.compareTo(product.toBigDecimal()));
+    // 回到 long 范围内时恢复为紧凑表示
+    assertTrue(eval("a + a - a", env).isCompact());
+    assertEquals(Decimal.of(Long.MAX_VALUE), eval("a + a - a", env));
+  }
+
+  @Test
+  public void division() {
+    var env = new DecimalEnv();
+    assertEquals("0.3333333333333333", eval("1 / 3", env).toString());
+    assertEquals("0.6666666666666667", eval("2 / 3", env).toString());
+    assertEquals("2.5", eval("5 / 2", env).toString());
+    assertEquals("0.25", eval("2 ** (0 - 2)", env).toString());
+    assertEquals("1024", eval("2 ** 10", env).toString());
+    assertEquals("1.5", eval("7.5 % 2", env).toString());
+
+    var scale2 = DecimalExpr.compile("2 / 3", this.evaler.compile("2 / 3").tree(), 2);
+    assertEquals("0.67", scale2.eval(env).toString());
+    var big = DecimalExpr.compile("1 / 7", this.evaler.compile("1 / 7").tree(), 30);
+    assertEquals("0.142857142857142857142857142857", big.eval(env).toString());
+
+    assertThrows(EvalerError.class, () -> eval("1 / 0", env));
+    assertThrows(EvalerError.class, () -> eval("1 % 0.0", env));
+  }
+
+  @Test
+  public void logic() {
+    var env = new DecimalEnv().putVar("a", "1.5").putVar("b", "1.50");
+    assertEquals(Decimal.ONE, eval("a == b", env));
+    assertEquals(Decimal.ZERO, eval("a != b", env));
+    assertEquals(Decimal.ONE, eval("(a < 2) && (b >= 1.5)", env));
+    assertEquals(Decimal.ONE, eval("!(a > b)", env));
+    assertEquals(Decimal.parse("7"), eval("if(a <= b, 7, 8)", env));
+    // 短路与惰性分支不求值未定义的变量
+    assertEquals(Decimal.ZERO, eval("0 && missing", env));
+    assertEquals(Decimal.ONE, eval("a || missing", env));
+    assertEquals(Decimal.parse("8"), eval("if(0, missing, 8)", env));
+  }
+
+  @Test
+  public void errors() {
+    var env = new DecimalEnv().installFn(DecimalFn.of("neg", Decimal::negate));
+    assertEquals(Decimal.parse("-2.5"), eval("neg(2.5)", env));
+    assertThrows(EvalerError.class, () -> eval("missing + 1", env));
+    assertThrows(EvalerError.class, () -> eval("nope(1)", env));
+    assertThrows(EvalerError.class, () -> eval("neg(1, 2)", env));
+    assertThrows(EvalerError.class, () -> eval("if(1, 2)", env));
+    assertThrows(IllegalArgumentException.class,
+            () -> DecimalExpr.compile("1", this.evaler.compile("1").tree(), -1));
+  }
+
+  @Test
+  public void matchesBigDecimal() {
+    var random = new Random(42);
+    for (int i = 0; i < 10_000; i++) {
+      var a = randomBig(random);
+      var b = randomBig(random);
+      var x = Decimal.of(a);
+      var y = Decimal.of(b);
+      var context = STR."\{a} \{b}";
+      assertEquals(0, a.add(b).compareTo(x.add(y).toBigDecimal()), context);
+      assertEquals(0, a.subtract(b).compareTo(x.subtract(y).toBigDecimal()), context);
+      assertEquals(0, a.multiply(b).compareTo(x.multiply(y).toBigDecimal()), context);
+      assertEquals(Integer.signum(a.compareTo(b)), Integer.signum(x.compareTo(y)), context);
+      assertEquals(x.equals(y), a.compareTo(b) == 0, context);
+      if (b.signum() != 0) {
+        var expected = a.divide(b, 16, RoundingMode.HALF_EVEN);
+        assertEquals(0, expected.compareTo(x.divide(y, 16).toBigDecimal()), context);
+        assertEquals(0, a.remainder(b).compareTo(x.remainder(y).toBigDecimal()), context);
+      }
+      assertEquals(x, Decimal.parse(a.toPlainString()), context);
+    }
+  }
+
+  static BigDecimal randomBig(Random random) {
+    long unscaled = switch (random.nextInt(3)) {
+      case 0 -> random.nextInt(1000) - 500;
+      case 1 -> random.nextLong() >> random.nextInt(64);
+      default -> random.nextLong();
+    };
+    return BigDecimal.valueOf(unscaled, random.nextInt(20));
+  }
+}
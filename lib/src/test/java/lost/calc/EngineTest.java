@@ -0,0 +1,71 @@
+package lost.calc;
+
+import lost.calc.api.Fn;
+import lost.calc.api.Tree;
+import lost.calc.impl.DEnv;
+import lost.calc.sheet.Engine;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class EngineTest {
+
+  @Test
+  void recalc() {
+    var evaler = Evaler.create();
+    var calls = new int[1];
+    var env = new DEnv();
+    env.putVar("a", 1).putVar("b", 2).putVar("c", 0).putVar("d", 5);
+    env.installFn(Fn.of("slow", v -> {
+      calls[0]++;
+      return v * 10;
+    }).asPure());
+
+    var formulas = new LinkedHashMap<String, Tree>();
+    formulas.put("x", evaler.compile("slow(a) + b").tree());
+    formulas.put("y", evaler.compile("slow(a) * 2").tree());
+    formulas.put("z", evaler.compile("if(c, slow(d), b > 1)").tree());
+    var engine = Engine.of(formulas, env);
+
+    assertEquals(Set.of("a", "b"), engine.dependsOn("x"));
+    assertEquals(Set.of("b", "c", "d"), engine.dependsOn("z"));
+
+    assertEquals(Set.of("x", "y", "z"), engine.recalc());
+    assertEquals(1, calls[0]);
+    assertEquals(12, engine.get("x"));
+    assertEquals(20, engine.get("y"));
+    assertEquals(1, engine.get("z"));
+
+    // 未变化
+    calls[0] = 0;
+    engine.putVar("a", 1);
+    assertEquals(Set.of(), engine.recalc());
+    assertEquals(0, calls[0]);
+
+    // b 变化, 不依赖 b 的 slow(a) 不重算; z 仍为 1
+    engine.putVar("b", 3);
+    assertEquals(Set.of("x"), engine.recalc());
+    assertEquals(0, calls[0]);
+    assertEquals(13, engine.get("x"));
+
+    // d 只在未选中的分支中
+    engine.putVar("d", 6);
+    assertEquals(Set.of(), engine.recalc());
+    assertEquals(0, calls[0]);
+
+    engine.putVar("c", 1);
+    assertEquals(Set.of("z"), engine.recalc());
+    assertEquals(1, calls[0]);
+    assertEquals(60, engine.get("z"));
+
+    engine.putVar("a", 2).putVar("d", 7);
+    assertEquals(Set.of("x", "y", "z"), engine.recalc());
+    assertEquals(3, calls[0]);
+    for (var e : formulas.entrySet()) {
+      assertEquals(e.getValue().eval(env), engine.get(e.getKey()), e.getKey());
+    }
+  }
+}
@@ -1,9 +1,19 @@
 package lost.calc;
 
+import lost.calc.api.Env;
 import lost.calc.api.Fn;
+import lost.calc.error.EvalerError;
+import lost.calc.error.LexerError;
+import lost.calc.impl.BLexer;
+import lost.calc.impl.PParser;
 import org.junit.jupiter.api.Test;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
 
 public class EvalerTest {
   @Test
@@ -40,4 +50,127 @@ public class EvalerTest {
     assertEquals(1, evaler.eval("log10(100) == 2", env));
     assertEquals(1, evaler.eval("log10(a) * b  == 0", env));
   }
+
+  @Test
+  void compile() {
+    var evaler = Evaler.create();
+    var env = Evaler.createEnv();
+    var expr = evaler.compile("a*2 + b");
+
+    env.putVar("a", 1).putVar("b", 2);
+    assertEquals(4, expr.eval(env));
+    env.putVar("a", 3);
+    assertEquals(8, expr.eval(env));
+  }
+
+  @Test
+  void cache() {
+    var evaler = Evaler.create(2);
+    var env = Evaler.createEnv();
+    env.putVar("a", 1).putVar("b", 2);
+
+    assertEquals(3, evaler.eval("a+b", env));
+    assertEquals(3, evaler.eval("a+b", env));
+    assertSame(evaler.compile("a+b"), evaler.compile("a+b"));
+    assertEquals(2, evaler.eval("a*b", env));
+    assertEquals(-1, evaler.eval("a-b", env));
+
+    var stats = evaler.cache().orElseThrow().stats();
+    System.out.println(stats);
+    assertEquals(3, stats.hits());
+    assertEquals(3, stats.misses());
+    assertEquals(1, stats.evictions());
+    assertEquals(2, stats.size());
+  }
+
+  @Test
+  void evalAll() {
+    var evaler = Evaler.create(64);
+    var env = Evaler.createEnv();
+    env.putVar("a", 1).putVar("b", 2);
+
+    var texts = new ArrayList<String>();
+    for (int i = 0; i < 3000; i++) {
+      texts.add(switch (i % 5) {
+        case 0 -> STR."a * \{i} + b";
+        case 1 -> STR."(a + \{i % 7}) ** 2";
+        case 2 -> "missing + 1";
+        case 3 -> "a $ b";
+        default -> STR."b - \{i}";
+      });
+    }
+    var pool = new ForkJoinPool(3);
+    var fixed = Executors.newFixedThreadPool(2);
+    try {
+      for (var result : new BulkResult[]{evaler.evalAll(texts, env, pool), evaler.evalAll(texts, env, fixed)}) {
+        assertEquals(texts.size(), result.size());
+        assertEquals(texts.size() * 2 / 5, result.errorCount());
+        for (int i = 0; i < texts.size(); i++) {
+          switch (i % 5) {
+            case 2 -> assertInstanceOf(EvalerError.class, result.error(i));
+            case 3 -> assertInstanceOf(LexerError.class, result.error(i));
+            default -> {
+              assertTrue(result.isOk(i));
+              assertEquals(evaler.eval(texts.get(i), env), result.values()[i], texts.get(i));
+            }
+          }
+        }
+      }
+
+      var envs = new ArrayList<Env>();
+      for (int i = 0; i < 1000; i++) {
+        envs.add(Evaler.createEnv().putVar("a", i).putVar("b", 2));
+      }
+      var result = evaler.evalAll("a * b", envs, pool);
+      for (int i = 0; i < envs.size(); i++) {
+        assertEquals(i * 2, result.values()[i]);
+      }
+      var bad = evaler.evalAll("a *", envs, pool);
+      assertEquals(envs.size(), bad.errorCount());
+      assertTrue(Double.isNaN(bad.values()[0]));
+
+      var pairs = evaler.evalAll(texts.subList(0, 1000), envs, pool);
+      assertEquals(evaler.eval(texts.get(999), envs.get(999)), pairs.values()[999]);
+    } finally {
+      pool.shutdown();
+      fixed.shutdown();
+    }
+  }
+
+  @Test
+  void evalAllUsesConfiguredParser() {
+    var env = Evaler.createEnv();
+    env.putVar("a", 1).putVar("b", 2).installFn("f", (x, y) -> x + y);
+    // DParser 接受未闭合的 `(`, PParser 报错, 批量与单个求值结果必须一致
+    var text = "f((a,b)";
+    var texts = List.of(text, "a + b");
+    assertEquals(3, Evaler.create().evalAll(texts, env).values()[0]);
+    for (var evaler : new Evaler[]{Evaler.create(), Evaler.create(8),
+            new Evaler(new BLexer(), new PParser())}) {
+      var result = evaler.evalAll(texts, env);
+      double single;
+      try {
+        single = evaler.eval(text, env);
+      } catch (RuntimeException e) {
+        assertFalse(result.isOk(0));
+        assertEquals(e.getClass(), result.error(0).getClass());
+        continue;
+      }
+      assertTrue(result.isOk(0));
+      assertEquals(single, result.values()[0]);
+      assertEquals(3, result.values()[1]);
+    }
+  }
+
+  @Test
+  void evalAllStackOverflow() {
+    var env = Evaler.createEnv();
+    env.putVar("a", 1);
+    var deep = "(".repeat(1_000_000) + "a" + ")".repeat(1_000_000);
+    var result = Evaler.create().evalAll(List.of("a + 1", deep, "a * 3"), env);
+    assertEquals(2, result.values()[0]);
+    assertEquals(3, result.values()[2]);
+    assertInstanceOf(EvalerError.class, result.error(1));
+    assertInstanceOf(StackOverflowError.class, result.error(1).getCause());
+  }
 }
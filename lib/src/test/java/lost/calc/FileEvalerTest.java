@@ -0,0 +1,89 @@
+package lost.calc;
+
+import lost.calc.impl.DEnv;
+import lost.calc.io.FileEvaler;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FileEvalerTest {
+
+  @Test
+  void run() throws IOException {
+    var env = new DEnv();
+    env.putVar("a", 2).putVar("b", 3);
+    var evaler = Evaler.create();
+
+    var lines = new ArrayList<String>();
+    for (int i = 0; i < 10_000; i++) {
+      lines.add(switch (i % 6) {
+        case 0 -> STR."a * \{i} + b";
+        case 1 -> "";
+        case 2 -> "missing * 2";
+        case 3 -> "a $ b";
+        case 4 -> STR."if(a > b, 1, \{i}) ** 0.5";
+        default -> STR."(a + b) / \{i}";
+      });
+    }
+    var input = Files.createTempFile("calc", ".in");
+    var output = Files.createTempFile("calc", ".out");
+    try {
+      // CRLF, 末行无换行符
+      Files.writeString(input, String.join("\r\n", lines));
+      // 小区域使行跨越区域边界
+      var stats = new FileEvaler(env, 3, 1000).run(input, output);
+      assertEquals(lines.size(), stats.lines());
+      assertEquals(lines.stream().filter(l -> l.contains("missing") || l.contains("$")).count(), stats.errors());
+      assertEquals(Files.size(input), stats.bytes());
+
+      List<String> results = Files.readAllLines(output);
+      assertEquals(lines.size(), results.size());
+      for (int i = 0; i < lines.size(); i++) {
+        var line = lines.get(i);
+        var result = results.get(i);
+        switch (i % 6) {
+          case 1 -> assertEquals("", result);
+          case 2, 3 -> assertTrue(result.startsWith("ERROR: "), result);
+          default -> assertEquals(Double.toString(evaler.eval(line, env)), result, line);
+        }
+      }
+
+      Files.writeString(input, "a + b + a + b + a + b\n");
+      assertThrows(IOException.class, () -> new FileEvaler(env, 1, 8).run(input, output));
+    } finally {
+      Files.delete(input);
+      Files.delete(output);
+    }
+  }
+
+  @Test
+  void unicode() throws IOException {
+    var env = new DEnv();
+    env.putVar("日", 2).putVar("Ī", 3).putVar("a", 5);
+    var evaler = Evaler.create();
+
+    var lines = List.of("日 * 2", "Ī + 日", "a + 1", "if(日 < Ī, a, 0)");
+    var input = Files.createTempFile("calc", ".in");
+    var output = Files.createTempFile("calc", ".out");
+    try {
+      Files.writeString(input, String.join("\n", lines));
+      var stats = new FileEvaler(env, 2).run(input, output);
+      assertEquals(0, stats.errors());
+
+      List<String> results = Files.readAllLines(output);
+      for (int i = 0; i < lines.size(); i++) {
+        assertEquals(Double.toString(evaler.eval(lines.get(i), env)), results.get(i), lines.get(i));
+      }
+    } finally {
+      Files.delete(input);
+      Files.delete(output);
+    }
+  }
+}
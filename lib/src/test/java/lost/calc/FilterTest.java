@@ -0,0 +1,166 @@
+package lost.calc;
+
+import lost.calc.api.Fn;
+import lost.calc.batch.Filter;
+import lost.calc.batch.Filter.Match;
+import lost.calc.batch.ZoneMap;
+import lost.calc.error.EvalerError;
+import lost.calc.impl.DEnv;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FilterTest {
+  final Evaler evaler = Evaler.create();
+
+  /**
+   * price 递增, qty 在 0 - 9 循环
+   */
+  static Map<String, double[]> orders(int rows) {
+    var price = new double[rows];
+    var qty = new double[rows];
+    for (int i = 0; i < rows; i++) {
+      price[i] = i * 0.1;
+      qty[i] = i % 10;
+    }
+    return Map.of("price", price, "qty", qty);
+  }
+
+  @Test
+  public void match() {
+    var columns = orders(1000);
+    var zones = ZoneMap.of(columns, 100);
+    assertEquals(10, zones.blocks());
+    assertEquals(0, zones.min("price", 0));
+    assertEquals(9, zones.max("qty", 3));
+
+    var env = new DEnv();
+    var filter = Filter.of(this.evaler.compile("(price > 50) && (qty <= 5)").tree());
+    assertEquals(Match.NEVER, filter.match(zones, 0, env));
+    assertEquals(Match.MAYBE, filter.match(zones, 6, env));
+
+    var range = Filter.of(this.evaler.compile("(price >= 10) && (price < 20)").tree());
+    assertEquals(Match.NEVER, range.match(zones, 0, env));
+    assertEquals(Match.ALWAYS, range.match(zones, 1, env));
+    assertEquals(Match.NEVER, range.match(zones, 2, env));
+
+    // 标量变量取自 env
+    env.putVar("limit", 80);
+    var scalar = Filter.of(this.evaler.compile("price * 2 - qty > limit * 2").tree());
+    assertEquals(Match.NEVER, scalar.match(zones, 4, env));
+    assertEquals(Match.ALWAYS, scalar.match(zones, 9, env));
+    assertEquals(Match.MAYBE, scalar.match(zones, 8, env));
+  }
+
+  @Test
+  public void select() {
+    var columns = orders(100_000);
+    var zones = ZoneMap.of(columns);
+    var env = new DEnv();
+    var tree = this.evaler.compile("(price > 9000) && (qty <= 5)").tree();
+    var selection = Filter.of(tree).select(columns, zones, env);
+
+    assertEquals(zones.blocks(), selection.blocks());
+    assertTrue(selection.never() > selection.blocks() * 0.8, selection.toString());
+    for (int i = 0; i < 100_000; i++) {
+      env.putVar("price", columns.get("price")[i]).putVar("qty", columns.get("qty")[i]);
+      assertEquals(tree.eval(env) != 0, selection.rows().get(i), STR."row \{i}");
+    }
+  }
+
+  @Test
+  public void skippedBlocksDoNotCall() {
+    var columns = orders(10_000);
+    var zones = ZoneMap.of(columns, 1000);
+    var calls = new AtomicInteger();
+    var env = new DEnv();
+    env.installFn("tick", x -> {
+      calls.incrementAndGet();
+      return x;
+    });
+    var selection = Filter.of(this.evaler.compile("(price < 100) && tick(qty)").tree())
+            .select(columns, zones, env);
+    assertEquals(1, selection.maybe());
+    assertEquals(1000, calls.get());
+    assertEquals(900, selection.count());
+  }
+
+  @Test
+  public void errors() {
+    var columns = orders(10);
+    var zones = ZoneMap.of(columns, 4);
+    var env = new DEnv();
+    assertThrows(EvalerError.class, () -> Filter.of(this.evaler.compile("missing > 1").tree()).match(zones, 0, env));
+    assertThrows(EvalerError.class, () -> Filter.of(this.evaler.compile("nope(price)").tree()).match(zones, 0, env));
+    assertThrows(EvalerError.class,
+            () -> Filter.of(this.evaler.compile("price").tree()).select(Map.of("price", new double[3]), zones, env));
+    assertThrows(EvalerError.class, () -> ZoneMap.of(Map.of("a", new double[1], "b", new double[2])));
+    assertThrows(IllegalArgumentException.class, () -> ZoneMap.of(columns, 0));
+  }
+
+  /**
+   * 随机数据与表达式: 判为 ALWAYS / NEVER 的块逐行求值必须一致, select 与逐行求值一致
+   */
+  @Test
+  public void sound() {
+    int rows = 4096;
+    var random = new Random(42);
+    var a = new double[rows];
+    var b = new double[rows];
+    var c = new double[rows];
+    for (int i = 0; i < rows; i++) {
+      a[i] = i / 64 - 30 + random.nextInt(3);
+      b[i] = random.nextInt(20) == 0 ? Double.NaN : random.nextDouble() * (i / 512);
+      c[i] = i % 128 < 64 ? 0 : i % 7 - 3;
+    }
+    c[100] = Double.POSITIVE_INFINITY;
+    for (int i = 1024; i < 1088; i++) b[i] = Double.NaN;
+    var columns = Map.of("a", a, "b", b, "c", c);
+    var zones = ZoneMap.of(columns, 64);
+
+    var env = new DEnv();
+    env.putVar("k", 3)
+            .installFn(LinkerTest.LOG10)
+            .installFn(Fn.of("max", Math::max).asPure());
+
+    String[] operands = {"a", "b", "c", "k", "0", "2.5", "(a + b)", "(a - c)", "(a * c)", "(b / c)", "(a % 4)",
+            "(b ** 2)", "(2 ** (0 - a))", "max(a, c)", "max(k, 1)", "log10(b)", "if(c, a, b)", "!a", "(a != a)"};
+    String[] compares = {"<", "<=", ">", ">=", "==", "!="};
+    String[] logics = {"&&", "||"};
+    int decided = 0;
+    for (int n = 0; n < 400; n++) {
+      var lhs = STR."(\{pick(random, operands)} \{pick(random, compares)} \{pick(random, operands)})";
+      var rhs = STR."(\{pick(random, operands)} \{pick(random, compares)} \{pick(random, operands)})";
+      var text = random.nextBoolean() ? lhs : STR."\{lhs} \{pick(random, logics)} \{rhs}";
+      var tree = this.evaler.compile(text).tree();
+      var filter = Filter.of(tree, false);
+      var expected = new boolean[rows];
+      for (int i = 0; i < rows; i++) {
+        env.putVar("a", a[i]).putVar("b", b[i]).putVar("c", c[i]);
+        expected[i] = tree.eval(env) != 0;
+      }
+      for (int block = 0; block < zones.blocks(); block++) {
+        var match = filter.match(zones, block, env);
+        if (match == Match.MAYBE) continue;
+        decided++;
+        for (int i = block * 64; i < (block + 1) * 64; i++) {
+          assertEquals(match == Match.ALWAYS, expected[i], STR."\{text} \{match} at row \{i}");
+        }
+      }
+      var selection = filter.select(columns, zones, env);
+      for (int i = 0; i < rows; i++) {
+        assertEquals(expected[i], selection.rows().get(i), STR."\{text} at row \{i}");
+      }
+    }
+    assertTrue(decided > 0);
+  }
+
+  static String pick(Random random,
+                     String[] xs) {
+    return xs[random.nextInt(xs.length)];
+  }
+}
@@ -0,0 +1,64 @@
+package lost.calc;
+
+import lost.calc.api.Fn;
+import lost.calc.batch.Batch;
+import lost.calc.impl.SEnv;
+import lost.calc.jit.Jit;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class FnTest {
+
+  @Test
+  void arity() {
+    var env = new SEnv();
+    env.putVar("a", 1).putVar("b", 2);
+    env.installFn("pi", () -> Math.PI)
+            .installFn("neg", a -> -a)
+            .installFn("sub", (a, b) -> a - b)
+            .installFn("mad", (a, b, c) -> a * b + c)
+            .installFn("sum4", (a, b, c, d) -> a + b + c + d)
+            .installFn(new Fn() {
+              @Override
+              public String name() {
+                return "sum5";
+              }
+
+              @Override
+              public int paramCount() {
+                return 5;
+              }
+
+              @Override
+              public double call(double... params) {
+                return params[0] + params[1] + params[2] + params[3] + params[4];
+              }
+            });
+
+    assertEquals(2, env.findFn("sub").paramCount());
+    assertEquals(-1, env.findFn("sub").call(1, 2));
+
+    String[] expr = {
+            "pi()",
+            "neg(a)",
+            "sub(a, b)",
+            "mad(a, b, 3)",
+            "sum4(a, b, 3, 4)",
+            "sum5(a, b, 3, 4, neg(5))",
+            "LOG10(sub(b, a) * 100) + mad(neg(a), sub(a, b), pi())",
+    };
+    env.installFn("LOG10", Math::log10);
+    double[] expected = {Math.PI, -1, -1, 5, 10, 5, 2 + 1 + Math.PI};
+    var evaler = Evaler.create();
+    for (int i = 0; i < expr.length; i++) {
+      var tree = evaler.compile(expr[i]).tree();
+      assertEquals(expected[i], tree.eval(env), expr[i]);
+      assertEquals(expected[i], evaler.compile(expr[i]).link(env).eval(), expr[i]);
+      assertEquals(expected[i], Jit.compile(tree, env).evaluate(env.values()), expr[i]);
+      assertEquals(expected[i], Batch.of(tree).eval(Map.of("a", new double[]{1}), env)[0], expr[i]);
+    }
+  }
+}
@@ -0,0 +1,60 @@
+package lost.calc;
+
+import lost.calc.api.Tree;
+import lost.calc.impl.DEnv;
+import lost.calc.opt.Folder;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FolderTest {
+
+  static int count(Tree tree) {
+    int n = 1;
+    for (Tree kid : tree.kids()) {
+      n += count(kid);
+    }
+    return n;
+  }
+
+  @Test
+  void fold() {
+    var evaler = Evaler.create();
+    var env = new DEnv();
+    env.installFn(LinkerTest.LOG10);
+
+    String[] expr = {
+            "(2*3)**2 + x",
+            "x*1 + 1*y - (x/1) - (y - 0)",
+            "!(!(x > y)) && !(!x)",
+            "((x))**2 + log10((10*10))",
+            "x**1 + y**2 + (x+y)**2",
+            "x + 0",
+            "x + 0 * (0 - 1)",
+    };
+    double[] values = {0, -0.0, 1.5, -2, Double.NaN, Double.POSITIVE_INFINITY};
+    for (String s : expr) {
+      var before = evaler.compile(s).tree();
+      var after = Folder.fold(before);
+      System.out.println(STR."expr = \{s}");
+      System.out.println(STR."before:\n\{before.dump(2)}");
+      System.out.println(STR."after:\n\{after.dump(2)}");
+      assertTrue(count(after) <= count(before));
+      for (double x : values) {
+        for (double y : values) {
+          env.putVar("x", x).putVar("y", y);
+          assertEquals(before.eval(env), after.eval(env), STR."\{s} with x=\{x}, y=\{y}");
+        }
+      }
+    }
+
+    assertEquals(4, count(Folder.fold(evaler.compile("(2*3)**2 + x").tree())));
+
+    // x**2 => x*x 的两个操作数是不同的节点
+    var square = Folder.fold(evaler.compile("x**2").tree()).kids().getFirst();
+    assertEquals(2, square.kids().size());
+    assertNotSame(square.kids().getFirst(), square.kids().getLast());
+  }
+}
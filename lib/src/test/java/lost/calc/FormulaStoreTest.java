@@ -0,0 +1,89 @@
+package lost.calc;
+
+import lost.calc.api.Fn;
+import lost.calc.api.Tree;
+import lost.calc.impl.DEnv;
+import lost.calc.io.FormulaStore;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.LinkedHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class FormulaStoreTest {
+
+  @Test
+  void roundTrip() throws IOException {
+    var evaler = Evaler.create();
+    var env = new DEnv();
+    env.putVar("a", 2).putVar("b", 3).putVar("c", -0.0);
+    env.installFn(LinkerTest.LOG10);
+    env.installFn(new Fn() {
+      @Override
+      public String name() {
+        return "sum5";
+      }
+
+      @Override
+      public int paramCount() {
+        return 5;
+      }
+
+      @Override
+      public double call(double... params) {
+        return params[0] + params[1] + params[2] + params[3] + params[4];
+      }
+    });
+
+    String[] expr = {
+            "a+b*c-a/b",
+            "(a+b)**2 % 1.25",
+            "!(a > b) && b || c",
+            "log10(a*100) * b",
+            "sum5(a, b, c, 1, 2)",
+            "if(c, missing, a && (b || missing))",
+            "0 && missing",
+            "a!",
+    };
+    var formulas = new LinkedHashMap<String, Tree>();
+    for (int i = 0; i < expr.length; i++) {
+      formulas.put("f" + i, evaler.compile(expr[i]).tree());
+    }
+
+    for (boolean slices : new boolean[]{true, false}) {
+      var file = Files.createTempFile("calc", ".store");
+      try {
+        FormulaStore.write(formulas, slices, file);
+        var store = FormulaStore.open(file);
+        assertEquals(expr.length, store.size());
+        for (int i = 0; i < expr.length; i++) {
+          var name = "f" + i;
+          assertEquals(name, store.name(i));
+          assertEquals(i, store.indexOf(name));
+          var tree = formulas.get(name);
+          var decoded = store.tree(i);
+          if (slices) assertEquals(tree.dump(2), decoded.dump(2));
+          assertEquals(FolderTest.count(tree), FolderTest.count(decoded));
+          assertEquals(tree.eval(env), decoded.eval(env), expr[i]);
+          assertEquals(tree.eval(env), store.eval(i, env), expr[i]);
+        }
+      } finally {
+        Files.delete(file);
+      }
+    }
+    assertEquals(-1, FormulaStore.of(bytes(formulas)).indexOf("nope"));
+    var bad = bytes(formulas);
+    bad[5] = 9;
+    assertThrows(IllegalArgumentException.class, () -> FormulaStore.of(bad));
+  }
+
+  private static byte[] bytes(LinkedHashMap<String, Tree> formulas) throws IOException {
+    var out = new ByteArrayOutputStream();
+    FormulaStore.write(formulas, false, out);
+    return out.toByteArray();
+  }
+}
@@ -0,0 +1,54 @@
+package lost.calc;
+
+import lost.calc.impl.SEnv;
+import lost.calc.jit.Jit;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class JitTest {
+
+  @Test
+  void compile() {
+    var evaler = Evaler.create();
+    var env = new SEnv();
+    env.installFn(LinkerTest.LOG10);
+
+    String[] expr = {
+            "a+b*c-a/b",
+            "(a+b)**2 % c",
+            "a < b", "a <= b", "a > b", "a >= b", "a == b", "a != b",
+            "!a", "!(!b)", "a && b", "a || c", "!(a > b) && b",
+            "log10(a*100) * b + log10(log10(c))",
+            "1.5 * a + 0 - 1",
+            "log10(if(a, 10, 100)) + (a || b) * if(c, a && b, c)",
+    };
+    double[][] values = {
+            {1, 2, 3},
+            {2, 2, 0},
+            {0, -1, 0.5},
+            {Double.NaN, 1, 2},
+            {1, Double.NaN, Double.POSITIVE_INFINITY},
+            {-0.0, 0.0, -7},
+    };
+    for (double[] v : values) {
+      env.putVar("a", v[0]).putVar("b", v[1]).putVar("c", v[2]);
+      for (String s : expr) {
+        var tree = evaler.compile(s).tree();
+        var formula = Jit.compile(tree, env);
+        assertEquals(tree.eval(env), formula.evaluate(env.values()), STR."\{s} with a=\{v[0]}, b=\{v[1]}, c=\{v[2]}");
+      }
+    }
+  }
+
+  @Test
+  void wideSlots() {
+    // 超出 short 范围的槽位经由常量池加载
+    var env = new SEnv();
+    for (int i = 0; i <= 70_000; i++) {
+      env.putVar(STR."v\{i}", i);
+    }
+    var tree = Evaler.create().compile("v1 + v40000 * 2 + v65537 + v70000").tree();
+    assertEquals(1 + 80_000 + 65_537 + 70_000, Jit.compile(tree, env).evaluate(env.values()));
+  }
+}
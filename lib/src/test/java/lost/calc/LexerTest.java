@@ -1,9 +1,15 @@
 package lost.calc;
 
+import lost.calc.api.TokenBuffer;
 import lost.calc.error.LexerError;
+import lost.calc.impl.BLexer;
 import lost.calc.impl.DLexer;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 public class LexerTest {
@@ -48,4 +54,46 @@ public class LexerTest {
 
   }
 
+  @Test
+  void blex() {
+    var dLexer = new DLexer();
+    var bLexer = new BLexer();
+    var buffer = new TokenBuffer(4);
+
+    var exprs = new ArrayList<String>();
+    exprs.add("a**2 + 2*a*B + B**2 == (a+B)**2");
+    exprs.add("log(2) + log(3) > log(5)");
+    exprs.add("1.1 * 100 == 110");
+    exprs.add("10 % 3 == 1 && !(x1y2 <= 0.25) || f(a,b,c) != 3.");
+    exprs.add("2a 3.5b a2");
+    exprs.add("");
+    var random = new Random(42);
+    for (int i = 0; i < 200; i++) {
+      exprs.add(STR."\{random.nextDouble() * Math.pow(10, random.nextInt(30) - 10)} + \{random.nextLong()}");
+    }
+    exprs.add("12345678901234567890.123456789012345678901234567890");
+
+    for (String expr : exprs) {
+      var expected = dLexer.tokenStream(expr).toList();
+      var actual = new ArrayList<>();
+      bLexer.lex(expr, buffer).tokens().forEach(actual::add);
+      assertEquals(expected, actual, expr);
+    }
+  }
+
+  @Test
+  void blexError() {
+    var lexer = new BLexer();
+    var buffer = new TokenBuffer();
+
+    assertThrows(LexerError.class, () -> lexer.lex("100_", buffer));
+
+    assertThrows(LexerError.class, () -> lexer.lex(">>>", buffer));
+
+    assertThrows(LexerError.class, () -> lexer.lex("2.2.2", buffer));
+
+    assertThrows(LexerError.class, () -> lexer.lex(".2", buffer));
+
+  }
+
 }
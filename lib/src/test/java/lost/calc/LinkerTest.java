@@ -0,0 +1,66 @@
+package lost.calc;
+
+import lost.calc.api.Fn;
+import lost.calc.error.EvalerError;
+import lost.calc.impl.SEnv;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class LinkerTest {
+
+  static final Fn LOG10 = new Fn() {
+    @Override
+    public String name() {
+      return "log10";
+    }
+
+    @Override
+    public int paramCount() {
+      return 1;
+    }
+
+    @Override
+    public double call(double... params) {
+      return Math.log10(params[0]);
+    }
+  };
+
+  @Test
+  void link() {
+    var evaler = Evaler.create();
+    var env = new SEnv();
+    env.putVar("a", 1).putVar("b", 2).installFn(LOG10);
+
+    String[] expr = {
+            "a+b == b+a",
+            "(a+b)**2 == 9",
+            "a%b",
+            "!(a > b) && b",
+            "log10(a*100) * b",
+    };
+    for (String s : expr) {
+      var compiled = evaler.compile(s);
+      var program = compiled.link(env);
+      assertEquals(compiled.eval(env), program.eval());
+    }
+
+    var program = evaler.compile("a*b").link(env);
+    env.putVar(env.slotOf("a"), 5);
+    assertEquals(10, program.eval());
+    env.putVar("c", 3);
+    assertEquals(10, program.eval());
+  }
+
+  @Test
+  void linkError() {
+    var evaler = Evaler.create();
+    var env = new SEnv();
+    env.putVar("a", 1).installFn(LOG10);
+
+    assertThrows(EvalerError.class, () -> evaler.compile("a+b").link(env));
+    assertThrows(EvalerError.class, () -> evaler.compile("log(a)").link(env));
+    assertThrows(EvalerError.class, () -> evaler.compile("log10(a, a)").link(env));
+  }
+}
@@ -0,0 +1,177 @@
+package lost.calc;
+
+import lost.calc.api.Fn;
+import lost.calc.api.Memo;
+import lost.calc.api.Tree.NumberTree;
+import lost.calc.api.Env;
+import lost.calc.impl.CEnv;
+import lost.calc.impl.DEnv;
+import lost.calc.impl.SEnv;
+import lost.calc.opt.Folder;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MemoTest {
+
+  static DEnv env(Memo memo) {
+    return new DEnv().memo(memo);
+  }
+
+  @Test
+  void memo() {
+    var calls = new AtomicInteger();
+    var slow = Fn.of("slow", (a, b) -> {
+      calls.incrementAndGet();
+      return a * b;
+    }).asPure();
+    var memo = new Memo(64);
+    var env = env(memo);
+    env.putVar("x", 3).installFn(slow);
+    var tree = Evaler.create().compile("slow(x, 2) + slow(2, x) + slow(x, 2)").tree();
+
+    for (int i = 0; i < 10; i++) {
+      assertEquals(18, tree.eval(env));
+    }
+    assertEquals(2, calls.get());
+    assertEquals(new Memo.Stats(28, 2), memo.stats(slow));
+    assertEquals(28.0 / 30, memo.stats().get("slow").hitRate());
+
+    env.putVar("x", 4);
+    assertEquals(24, tree.eval(env));
+    assertEquals(4, calls.get());
+
+    // -0 与 +0 是不同的参数
+    env.putVar("x", 0.0);
+    tree.eval(env);
+    env.putVar("x", -0.0);
+    tree.eval(env);
+    assertEquals(8, calls.get());
+
+    memo.clear();
+    assertEquals(new Memo.Stats(0, 0), memo.stats(slow));
+  }
+
+  @Test
+  void notMemoized() {
+    var calls = new AtomicInteger();
+    Fn.Fn1 body = a -> calls.incrementAndGet();
+    var tree = Evaler.create().compile("f(1) + f(1)").tree();
+
+    // 非纯函数不缓存
+    var env = env(new Memo(16));
+    env.installFn("f", body);
+    tree.eval(env);
+    assertEquals(2, calls.get());
+
+    // memo() 返回 null 时不缓存
+    env = env(null);
+    env.installFn(Fn.of("f", body).asPure());
+    tree.eval(env);
+    assertEquals(4, calls.get());
+  }
+
+  @Test
+  void optIn() {
+    var calls = new AtomicInteger();
+    var tree = Evaler.create().compile("f(1) + f(1)").tree();
+    // 默认 env 不缓存纯函数
+    var env = new DEnv();
+    env.installFn(Fn.of("f", a -> calls.incrementAndGet()).asPure());
+    tree.eval(env);
+    assertEquals(2, calls.get());
+  }
+
+  @Test
+  void envs() {
+    var calls = new AtomicInteger();
+    var f = Fn.of("f", a -> calls.incrementAndGet()).asPure();
+    var tree = Evaler.create().compile("f(1) + f(1)").tree();
+    var memo = new Memo(16);
+    for (Env env : new Env[]{new DEnv().memo(memo), new SEnv().memo(memo), new CEnv().memo(memo)}) {
+      memo.clear();
+      calls.set(0);
+      env.installFn(f);
+      tree.eval(env);
+      assertEquals(1, calls.get(), env.getClass().getSimpleName());
+      assertSame(memo, env.memo());
+    }
+    var cEnv = new CEnv().memo(memo);
+    assertSame(memo, cEnv.snapshot().memo());
+    assertNull(new SEnv().memo());
+  }
+
+  @Test
+  void arities() {
+    var calls = new AtomicInteger();
+    var memo = new Memo(256);
+    var env = env(memo);
+    env.installFn(Fn.of("f0", () -> calls.incrementAndGet()).asPure())
+            .installFn(Fn.of("f3", (a, b, c) -> calls.incrementAndGet() * 0 + a + b + c).asPure())
+            .installFn(Fn.of("f4", (a, b, c, d) -> calls.incrementAndGet() * 0 + a * b * c * d).asPure())
+            .installFn(new Fn() {
+              @Override
+              public String name() {
+                return "f5";
+              }
+
+              @Override
+              public int paramCount() {
+                return 5;
+              }
+
+              @Override
+              public double call(double... params) {
+                calls.incrementAndGet();
+                return params[0] + params[4];
+              }
+            }.asPure());
+    var tree = Evaler.create().compile("f0() * 0 + f3(1, 2, 3) + f4(1, 2, 3, 4) + f5(1, 2, 3, 4, 5)").tree();
+    for (int i = 0; i < 5; i++) {
+      assertEquals(36, tree.eval(env));
+    }
+    assertEquals(4, calls.get());
+    assertEquals(new Memo.Stats(4, 1), memo.stats().get("f4"));
+    // 数组形式与 call0 - call4 共用条目
+    assertEquals(6, memo.call(env.findFn("f3"), new double[]{1, 2, 3}));
+    assertEquals(4, calls.get());
+  }
+
+  @Test
+  void evict() {
+    var memo = new Memo(5);
+    assertEquals(8, memo.capacity());
+    var sq = Fn.of("sq", a -> a * a).asPure();
+    for (int i = 0; i < 1000; i++) {
+      assertEquals(i * i, memo.call(sq, new double[]{i}));
+    }
+    assertEquals(1000, memo.stats(sq).misses());
+    assertSame(sq, sq.asPure());
+    assertFalse(Fn.of("sq", a -> a).pure());
+  }
+
+  @Test
+  void fold() {
+    var env = new DEnv();
+    env.installFn(Fn.of("lerp", (a, b, t) -> a + (b - a) * t).asPure())
+            .installFn("noise", a -> a + 1)
+            .installFn(Fn.of("boom", a -> {
+              throw new IllegalStateException("boom");
+            }).asPure());
+    var evaler = Evaler.create();
+
+    var folded = Folder.fold(evaler.compile("lerp(0, 10, 1 / 4) * 2").tree(), env);
+    assertInstanceOf(NumberTree.class, folded.kids().getFirst());
+    assertEquals(5, folded.eval(env));
+
+    // 非纯函数, 含变量的参数, 求值出错的调用都保留
+    for (String s : new String[]{"noise(1)", "lerp(0, 10, x)", "boom(1)", "lerp(0, 1)"}) {
+      var tree = Folder.fold(evaler.compile(s).tree(), env);
+      assertEquals(FolderTest.count(evaler.compile(s).tree()), FolderTest.count(tree), s);
+    }
+    // 没有 env 时不折叠
+    assertEquals(5, FolderTest.count(Folder.fold(evaler.compile("lerp(0, 10, 1)").tree())));
+  }
+}
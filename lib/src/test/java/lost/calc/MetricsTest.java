@@ -0,0 +1,80 @@
+package lost.calc;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordingFile;
+import lost.calc.api.Fn;
+import lost.calc.error.ParserError;
+import lost.calc.metrics.Histogram;
+import lost.calc.metrics.JfrMetrics;
+import lost.calc.metrics.Metrics;
+import lost.calc.metrics.Recorder;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MetricsTest {
+  @Test
+  void recorder() {
+    var recorder = new Recorder();
+    var evaler = Evaler.create(16).withMetrics(recorder);
+    var env = Evaler.createEnv();
+    env.putVar("a", 100).installFn(recorder.timed(LinkerTest.LOG10));
+
+    assertEquals(3, evaler.eval("log10(a) + 1", env));
+    assertEquals(3, evaler.eval("log10(a) + 1", env));
+    // 第二次命中缓存, 只编译一次
+    assertEquals(1, recorder.lex().count());
+    assertEquals(1, recorder.parse().count());
+    assertEquals(6, recorder.tokens());
+    assertEquals(2, recorder.eval().count());
+    assertEquals(2, recorder.expression().count());
+    assertEquals(2, recorder.fns().get("log10").count());
+
+    // 出错的表达式也计入
+    assertThrows(ParserError.class, () -> evaler.eval("1 +", env));
+    assertEquals(3, recorder.expression().count());
+    assertEquals(2, recorder.eval().count());
+
+    assertSame(recorder, evaler.metrics());
+    assertSame(Metrics.NOOP, Evaler.create().metrics());
+    assertSame(LinkerTest.LOG10, Metrics.NOOP.timed(LinkerTest.LOG10));
+  }
+
+  @Test
+  void histogram() {
+    var h = new Histogram();
+    for (int i = 1; i <= 100; i++) {
+      h.record(i);
+    }
+    assertEquals(100, h.count());
+    assertEquals(5050, h.sum());
+    assertEquals(100, h.max());
+    assertEquals(63, h.percentile(0.5));
+    assertEquals(100, h.percentile(0.99));
+  }
+
+  @Test
+  void jfr() throws Exception {
+    var evaler = Evaler.create().withMetrics(new JfrMetrics(Duration.ZERO));
+    var env = Evaler.createEnv().putVar("a", 1);
+    var file = Files.createTempFile("calc", ".jfr");
+    try (var recording = new Recording()) {
+      recording.enable("lost.calc.SlowExpression");
+      recording.enable("lost.calc.Parse");
+      recording.start();
+      evaler.eval("a + 2 * 3", env);
+      recording.stop();
+      recording.dump(file);
+    }
+    var names = RecordingFile.readAllEvents(file).stream()
+            .map(e -> e.getEventType().getName())
+            .toList();
+    Files.delete(file);
+    assertTrue(names.contains("lost.calc.SlowExpression"));
+    assertTrue(names.contains("lost.calc.Parse"));
+    assertFalse(names.contains("lost.calc.Lex"));
+  }
+}
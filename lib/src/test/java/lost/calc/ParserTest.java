@@ -1,16 +1,23 @@
 package lost.calc;
 
+import lost.calc.api.Parser;
+import lost.calc.api.TokenBuffer;
 import lost.calc.error.ParserError;
+import lost.calc.impl.BLexer;
 import lost.calc.impl.DLexer;
 import lost.calc.impl.DParser;
+import lost.calc.impl.PParser;
 import org.junit.jupiter.api.Test;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 public class ParserTest {
 
-  void doParse(String expr) {
-    var parser = new DParser();
+  static final Parser[] PARSERS = {new DParser(), new PParser()};
+
+  void doParse(Parser parser,
+               String expr) {
     var lexer = new DLexer();
 
     System.out.println(STR."expr = \{expr}");
@@ -25,8 +32,10 @@ public class ParserTest {
             "a**2 + 2*a*B + B**2 == (a+B)**2",
             "log(aa+bb)*cc+(dd)"
     };
-    for (String s : expr) {
-      doParse(s);
+    for (Parser parser : PARSERS) {
+      for (String s : expr) {
+        doParse(parser, s);
+      }
     }
   }
 
@@ -39,8 +48,44 @@ public class ParserTest {
             "a,b",
             "log(a,,)"
     };
+    for (Parser parser : PARSERS) {
+      for (String s : expr) {
+        assertThrows(ParserError.class, () -> doParse(parser, s));
+      }
+    }
+  }
+
+  @Test
+  void sameTree() {
+    String[] expr = {
+            "a**2 + 2*a*B + B**2 == (a+B)**2",
+            "log(aa+bb)*cc+(dd)",
+            "a - b * c ** 2 ** 3 / d % e",
+            "!a + b * c && !(!d) || e < f == g",
+            "a * !b + c - d",
+            "!a!",
+            "f() + g(a) * h(a, b+c, (d))",
+            "f(a,)",
+            "((((a))))",
+            "",
+    };
+    var lexer = new DLexer();
+    var bLexer = new BLexer();
+    var buffer = new TokenBuffer();
+    var dParser = new DParser();
+    var pParser = new PParser();
     for (String s : expr) {
-      assertThrows(ParserError.class, () -> doParse(s));
+      var expected = dParser.parse(lexer.lex(s)).dump(2);
+      assertEquals(expected, pParser.parse(lexer.lex(s)).dump(2), s);
+      assertEquals(expected, pParser.parse(bLexer.lex(s, buffer)).dump(2), s);
+      assertEquals(expected, dParser.parse(bLexer.lex(s, buffer)).dump(2), s);
+    }
+
+    var sb = new StringBuilder("x0");
+    for (int i = 1; i < 500; i++) {
+      sb.append(i % 3 == 0 ? " * " : " + ").append(STR."f(x\{i}, \{i})");
     }
+    var s = sb.toString();
+    assertEquals(dParser.parse(lexer.lex(s)).dump(1), pParser.parse(bLexer.lex(s, buffer)).dump(1));
   }
 }
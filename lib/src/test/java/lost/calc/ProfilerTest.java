@@ -0,0 +1,106 @@
+package lost.calc;
+
+import lost.calc.api.Fn;
+import lost.calc.api.Memo;
+import lost.calc.api.Tree;
+import lost.calc.error.EvalerError;
+import lost.calc.impl.DEnv;
+import lost.calc.metrics.Profiler;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ProfilerTest {
+  @Test
+  void profile() {
+    var tree = Evaler.create().compile("if(a > 1, log10(a), 0) + (a || b)").tree();
+    var env = Evaler.createEnv().putVar("a", 100).putVar("b", 0).installFn(LinkerTest.LOG10);
+    var profiler = new Profiler(tree);
+    for (int i = 0; i < 10; i++) {
+      assertEquals(tree.eval(env), profiler.eval(env));
+    }
+    assertEquals(10, profiler.evals());
+    assertEquals(10, profiler.sampled());
+    assertEquals(10, profiler.stats(tree).count());
+
+    var plus = tree.kids().getFirst();
+    var call = plus.kids().getFirst();
+    var branches = call.kids().stream().toList();
+    // 只求值被选中的分支
+    assertEquals(10, profiler.stats(branches.get(1)).count());
+    assertEquals(0, profiler.stats(branches.get(2)).count());
+    var log10 = branches.get(1);
+    assertTrue(profiler.stats(log10).fnNanos() > 0);
+    assertTrue(profiler.stats(log10).fnNanos() <= profiler.stats(log10).nanos());
+    // `||` 短路
+    var or = plus.kids().getLast().kids().getFirst();
+    assertEquals(0, profiler.stats(or.kids().getLast()).count());
+
+    var dump = profiler.dump(2);
+    assertEquals(tree.dump(2).lines().count(), dump.lines().count());
+    assertTrue(dump.lines().findFirst().orElseThrow().contains("[count=10 total=100.0%"));
+    assertTrue(dump.contains("fn="));
+
+    profiler.reset();
+    assertEquals(0, profiler.stats(tree).count());
+    assertEquals(0, profiler.evals());
+  }
+
+  @Test
+  void sample() {
+    var tree = Evaler.create().compile("a * 2").tree();
+    var env = Evaler.createEnv().putVar("a", 3);
+    var sampled = new Profiler(tree, 10, Duration.ofMinutes(1));
+    for (int i = 0; i < 1000; i++) {
+      assertEquals(6, sampled.eval(env));
+    }
+    assertEquals(1000, sampled.evals());
+    assertTrue(sampled.sampled() > 20 && sampled.sampled() < 500);
+    assertEquals(sampled.sampled(), sampled.stats(tree).count());
+
+    var expired = new Profiler(tree, 1, Duration.ZERO);
+    assertFalse(expired.isActive());
+    assertEquals(6, expired.eval(env));
+    assertEquals(0, expired.sampled());
+  }
+
+  @Test
+  void error() {
+    var tree = Evaler.create().compile("a + nope(1)").tree();
+    var env = Evaler.createEnv().putVar("a", 3);
+    var profiler = new Profiler(tree);
+    var e = assertThrows(EvalerError.class, () -> profiler.eval(env));
+    assertEquals(assertThrows(EvalerError.class, () -> tree.eval(env)).getMessage(), e.getMessage());
+    assertEquals(1, profiler.stats(tree).count());
+  }
+
+  @Test
+  void memo() {
+    // 与 Tree.eval 一致, 纯函数经由 env.memo() 缓存
+    var calls = new AtomicInteger();
+    var memo = new Memo(16);
+    var env = new DEnv().memo(memo);
+    env.putVar("a", 2).installFn(Fn.of("sq", x -> {
+      calls.incrementAndGet();
+      return x * x;
+    }).asPure());
+    var tree = Evaler.create().compile("sq(a) + sq(a)").tree();
+    var profiler = new Profiler(tree);
+    for (int i = 0; i < 5; i++) {
+      assertEquals(8, profiler.eval(env));
+    }
+    assertEquals(1, calls.get());
+    assertEquals(new Memo.Stats(9, 1), memo.stats().get("sq"));
+  }
+
+  @Test
+  void dumpNote() {
+    Tree tree = Evaler.create().compile("1 + 2").tree();
+    var dump = tree.dump(2, t -> t.kids().isEmpty() ? "leaf" : "");
+    assertEquals(2, dump.lines().filter(l -> l.contains(" leaf {")).count());
+    assertEquals(tree.dump(2), tree.dump(2, t -> ""));
+  }
+}
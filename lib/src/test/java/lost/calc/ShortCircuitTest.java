@@ -0,0 +1,85 @@
+package lost.calc;
+
+import lost.calc.batch.Batch;
+import lost.calc.error.EvalerError;
+import lost.calc.impl.SEnv;
+import lost.calc.jit.Jit;
+import lost.calc.link.Linker;
+import lost.calc.opt.Folder;
+import lost.calc.vm.Assembler;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class ShortCircuitTest {
+
+  @Test
+  void lazy() {
+    var evaler = Evaler.create();
+    var hits = new int[1];
+    var env = new SEnv();
+    env.installFn("hit", a -> {
+      hits[0]++;
+      return a;
+    });
+
+    // expr, a, 结果, hit 调用次数
+    Object[][] cases = {
+            {"a && hit(2)", 0.0, 0.0, 0},
+            {"a && hit(2)", 3.0, 1.0, 1},
+            {"a || hit(0)", 3.0, 1.0, 0},
+            {"a || hit(0)", 0.0, 0.0, 1},
+            {"a && hit(1) || hit(0)", 0.0, 0.0, 1},
+            {"if(a, hit(10), hit(20))", 1.0, 10.0, 1},
+            {"if(a, hit(10), hit(20))", 0.0, 20.0, 1},
+            {"if(a > 1, 1, if(a < 0 - 1, 0 - 1, hit(a)))", 0.5, 0.5, 1},
+            {"if(a, 1, 2) + if(!a, 3, 4)", Double.NaN, 5.0, 0},
+    };
+    for (Object[] c : cases) {
+      var s = (String) c[0];
+      env.putVar("a", (double) c[1]);
+      var tree = evaler.compile(s).tree();
+      var program = Linker.link(tree, env);
+      var formula = Jit.compile(program);
+      var bytecode = Assembler.compile(program);
+
+      hits[0] = 0;
+      assertEquals((double) c[2], tree.eval(env), s);
+      assertEquals((int) c[3], hits[0], STR."tree: \{s}");
+
+      hits[0] = 0;
+      assertEquals((double) c[2], program.eval(), s);
+      assertEquals((int) c[3], hits[0], STR."linked: \{s}");
+
+      hits[0] = 0;
+      assertEquals((double) c[2], formula.evaluate(env.values()), s);
+      assertEquals((int) c[3], hits[0], STR."jit: \{s}");
+
+      hits[0] = 0;
+      assertEquals((double) c[2], bytecode.eval(), s);
+      assertEquals((int) c[3], hits[0], STR."vm: \{s}");
+
+      var column = Batch.of(tree, false).eval(Map.of("a", new double[]{(double) c[1]}), env);
+      assertEquals((double) c[2], column[0], STR."batch: \{s}");
+
+      assertEquals((double) c[2], Folder.fold(tree).eval(env), STR."fold: \{s}");
+    }
+
+    // 被跳过的一侧即使引用不存在的变量也不报错
+    assertEquals(0, evaler.eval("0 && missing", env));
+    assertEquals(7, evaler.eval("if(1, 7, missing)", env));
+    assertThrows(EvalerError.class, () -> evaler.eval("if(1, 2)", env));
+  }
+
+  @Test
+  void fold() {
+    var evaler = Evaler.create();
+    assertEquals(2, FolderTest.count(Folder.fold(evaler.compile("0 && (a > b)").tree())));
+    assertEquals(2, FolderTest.count(Folder.fold(evaler.compile("2 || f(a)").tree())));
+    assertEquals(4, FolderTest.count(Folder.fold(evaler.compile("1 && (a > b)").tree())));
+    assertEquals(4, FolderTest.count(Folder.fold(evaler.compile("if(1 - 1, f(a), a + b)").tree())));
+  }
+}
@@ -0,0 +1,89 @@
+package lost.calc;
+
+import lost.calc.api.Fn;
+import lost.calc.impl.DEnv;
+import lost.calc.opt.Specializer;
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SpecializerTest {
+  @Test
+  void specialize() {
+    var env = new DEnv();
+    env.putVar("rate", 0.05).putVar("years", 10).putVar("price", 100).putVar("qty", 3)
+            .installFn(Fn.of("pow", Math::pow).asPure())
+            .installFn("jitter", a -> a);
+    var tree = Evaler.create().compile("price * qty * pow(1 + rate, years) + jitter(rate * 2) + (years > 5 && qty > 1)").tree();
+    var specializer = new Specializer(tree, Set.of("rate", "years", "unused"));
+    assertEquals(Set.of("rate", "years"), specializer.fixed());
+
+    var residual = specializer.residual(env);
+    assertTrue(FolderTest.count(residual) < FolderTest.count(tree));
+    // `pow(1 + rate, years)` 与 `rate * 2` 已预先计算, 非纯函数 jitter 保留
+    assertFalse(residual.dump(0).contains("VarTree(rate)"));
+    assertTrue(residual.dump(0).contains("CallTree(jitter)"));
+    assertFalse(residual.dump(0).contains("CallTree(pow)"));
+
+    for (int i = 0; i < 5; i++) {
+      env.putVar("price", 100 + i).putVar("qty", i);
+      assertEquals(tree.eval(env), specializer.eval(env));
+    }
+    assertEquals(1, specializer.rebuilds());
+
+    env.putVar("rate", 0.07);
+    assertEquals(tree.eval(env), specializer.eval(env));
+    assertEquals(2, specializer.rebuilds());
+    // 值不变时不重建
+    env.putVar("rate", 0.07);
+    specializer.eval(env);
+    assertEquals(2, specializer.rebuilds());
+    assertNotSame(residual, specializer.residual(env));
+  }
+
+  @Test
+  void missing() {
+    var tree = Evaler.create().compile("a + b").tree();
+    var specializer = new Specializer(tree, Set.of("a"));
+    var env = new DEnv();
+    env.putVar("b", 1);
+    // 固定变量不存在时保留原样, 求值时报错
+    assertThrows(RuntimeException.class, () -> specializer.eval(env));
+    env.putVar("a", 2);
+    assertEquals(3, specializer.eval(env));
+    assertEquals(2, specializer.rebuilds());
+  }
+
+  @Test
+  void restore() {
+    var tree = Evaler.create().compile("k * 10 + x").tree();
+    var specializer = new Specializer(tree, Set.of("k"));
+    var env = new DEnv();
+    env.putVar("k", 1).putVar("x", 2);
+    assertEquals(12, specializer.eval(env));
+    env.putVar("k", 3);
+    assertEquals(32, specializer.eval(env));
+    env.putVar("k", 1);
+    assertEquals(12, specializer.eval(env));
+    assertEquals(3, specializer.rebuilds());
+  }
+
+  @Test
+  void readsFixedVarOnce() {
+    // 模拟并发修改: 每次读取 k 都得到下一个值
+    var reads = new int[1];
+    var env = new DEnv() {
+      @Override
+      public double getVar(String name) {
+        return name.equals("k") ? ++reads[0] : super.getVar(name);
+      }
+    };
+    env.putVar("k", 0).putVar("x", 0);
+    var specializer = new Specializer(Evaler.create().compile("k * 10 + x").tree(), Set.of("k"));
+    var residual = specializer.residual(env);
+    assertEquals(1, reads[0]);
+    assertEquals(10, residual.eval(env));
+  }
+}
@@ -0,0 +1,93 @@
+package lost.calc;
+
+import lost.calc.api.Token.Slice;
+import lost.calc.api.TokenBuffer;
+import lost.calc.check.Problem;
+import lost.calc.check.Validator;
+import lost.calc.error.EvalerError;
+import lost.calc.error.LexerError;
+import lost.calc.error.ParserError;
+import lost.calc.impl.BLexer;
+import lost.calc.impl.PParser;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ValidatorTest {
+  @Test
+  void valid() {
+    var validator = new Validator();
+    for (String s : List.of("", "1", "a + b * 2", "f(a, b,)", "!a && (b || c)", "if(a > 1, 1.5, 0)", "g()")) {
+      var result = validator.validate(s);
+      assertTrue(result.isOk(), STR."\{s} \{result.problems()}");
+    }
+  }
+
+  @Test
+  void problems() {
+    var validator = new Validator();
+    var result = validator.validate("1 + $a + #2 + (3");
+    assertEquals(List.of(Problem.Kind.LEXER, Problem.Kind.LEXER, Problem.Kind.PARSER),
+            result.problems().stream().map(Problem::kind).toList());
+    assertEquals(List.of(Slice.both(4), Slice.both(9), Slice.both(14)),
+            result.problems().stream().map(Problem::slice).toList());
+
+    result = validator.validate("f(1 2, ) + (a b c) + ) + *");
+    assertEquals(List.of(Slice.both(4), Slice.both(14), Slice.both(21), Slice.both(23), Slice.both(25)),
+            result.problems().stream().map(Problem::slice).toList());
+
+    // 非法运算符不引起连带错误
+    result = validator.validate("a +- b");
+    assertEquals(1, result.problems().size());
+    assertEquals(new Slice(2, 3), result.problems().get(0).slice());
+
+    result = validator.validate("1 +");
+    assertEquals(1, result.problems().size());
+    assertTrue(result.problems().get(0).message().startsWith("`+` expects an operand"));
+  }
+
+  /**
+   * 与 BLexer + PParser 接受的表达式一致
+   */
+  @Test
+  void agree() {
+    var validator = new Validator();
+    var lexer = new BLexer();
+    var parser = new PParser();
+    var tokens = new TokenBuffer();
+    var chars = "a1 .+*!(),&|<=f$".toCharArray();
+    var random = new Random(42);
+    for (int n = 0; n < 20000; n++) {
+      var sb = new StringBuilder();
+      int len = random.nextInt(10);
+      for (int i = 0; i < len; i++) {
+        sb.append(chars[random.nextInt(chars.length)]);
+      }
+      var s = sb.toString();
+      boolean ok;
+      try {
+        parser.parse(lexer.lex(s, tokens));
+        ok = true;
+      } catch (LexerError | ParserError e) {
+        ok = false;
+      }
+      var result = validator.validate(s);
+      assertEquals(ok, result.isOk(), STR."`\{s}` \{result.problems()}");
+    }
+  }
+
+  @Test
+  void stackless() {
+    var e = new EvalerError(() -> {
+      throw new AssertionError("should be lazy");
+    });
+    assertEquals(0, e.getStackTrace().length);
+    var tree = Evaler.create().compile("a + 1").tree();
+    var error = assertThrows(EvalerError.class, () -> tree.eval(Evaler.createEnv()));
+    assertEquals(0, error.getStackTrace().length);
+    assertTrue(error.getMessage().startsWith("VarTree(a)"));
+  }
+}
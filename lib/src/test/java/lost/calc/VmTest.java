@@ -0,0 +1,84 @@
+package lost.calc;
+
+import lost.calc.api.Fn;
+import lost.calc.impl.SEnv;
+import lost.calc.vm.Assembler;
+import lost.calc.vm.Vm;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class VmTest {
+
+  @Test
+  void run() {
+    var evaler = Evaler.create();
+    var env = new SEnv();
+    env.installFn(LinkerTest.LOG10);
+    env.installFn("clamp", (x, lo, hi) -> Math.min(Math.max(x, lo), hi));
+    env.installFn(new Fn() {
+      @Override
+      public String name() {
+        return "sum5";
+      }
+
+      @Override
+      public int paramCount() {
+        return 5;
+      }
+
+      @Override
+      public double call(double... params) {
+        return params[0] + params[1] + params[2] + params[3] + params[4];
+      }
+    });
+
+    String[] expr = {
+            "a+b*c-a/b",
+            "(a+b)**2 % c",
+            "a < b", "a <= b", "a > b", "a >= b", "a == b", "a != b",
+            "!a", "!(!b)", "a && b", "a || c", "!(a > b) && b",
+            "log10(a*100) * b + log10(log10(c))",
+            "1.5 * a + 0 - 1",
+            "clamp(a, 0, 1) + sum5(a, b, c, a && b, if(c, 1, 2))",
+            "if(a > b, if(b, a, missing + 0), c || a) * 2",
+            "a && missing || b",
+    };
+    double[][] values = {
+            {1, 2, 3},
+            {2, 2, 0},
+            {0, -1, 0.5},
+            {Double.NaN, 1, 2},
+            {1, Double.NaN, Double.POSITIVE_INFINITY},
+            {-0.0, 0.0, -7},
+    };
+    var vm = new Vm();
+    env.putVar("missing", 0);
+    for (double[] v : values) {
+      env.putVar("a", v[0]).putVar("b", v[1]).putVar("c", v[2]);
+      for (String s : expr) {
+        var tree = evaler.compile(s).tree();
+        var bytecode = Assembler.compile(tree, env);
+        var message = STR."\{s} with a=\{v[0]}, b=\{v[1]}, c=\{v[2]}\n\{bytecode.disassemble()}";
+        assertEquals(tree.eval(env), vm.run(bytecode, env.values()), message);
+        assertEquals(tree.eval(env), bytecode.eval(), message);
+      }
+    }
+  }
+
+  @Test
+  void nested() {
+    // 函数中再次调用 Bytecode.eval, 不能覆盖外层正在使用的栈
+    var evaler = Evaler.create();
+    var inner = new SEnv();
+    inner.putVar("x", 2);
+    var square = Assembler.compile(evaler.compile("(x + 1) * (x + 2) - (x + 3)").tree(), inner);
+    var env = new SEnv();
+    env.putVar("a", 10);
+    env.installFn("inner", () -> square.eval());
+    var outer = Assembler.compile(evaler.compile("a * (a + (a - inner()))").tree(), env);
+    for (int i = 0; i < 3; i++) {
+      assertEquals(10 * (10 + (10 - 7)), outer.eval());
+    }
+  }
+}